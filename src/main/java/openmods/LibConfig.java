@@ -18,4 +18,33 @@ public class LibConfig {
 	@ConfigProperty(category = "debug", name = "tessellatorPoolLimit", comment = "Maximum allowed size of tessellator pool")
 	public static int tessellatorPoolLimit = 20;
 
+	@OnLineModifiable
+	@ConfigProperty(category = "network", name = "aggregateSyncPackets", comment = "Send all sync updates for single player produced during tick in one packet")
+	public static boolean aggregateSyncPackets = true;
+
+	@OnLineModifiable
+	@ConfigProperty(category = "network", name = "syncBytesPerPlayerTick", comment = "Bytes of sync updates per player per tick after which normal and low priority updates are moved to next ticks (0 - no limit)")
+	public static int syncBytesPerPlayerTick = 8192;
+
+	@OnLineModifiable
+	@ConfigProperty(category = "network", name = "coalesceOutboundPackets", comment = "Queue OpenMods packets sent to players during tick and write them on tick end with single flush")
+	public static boolean coalesceOutboundPackets = false;
+
+	@OnLineModifiable
+	@ConfigProperty(category = "network", name = "outboundFlushBytes", comment = "When coalescing packets, flush connection after every this many bytes (0 - only once per tick)")
+	public static int outboundFlushBytes = 65536;
+
+	@ConfigProperty(category = "network", name = "networkEventWorkers", comment = "Number of threads handling network events marked for execution on worker pool")
+	public static int networkEventWorkers = 2;
+
+	@ConfigProperty(category = "network", name = "networkEventQueueSize", comment = "Number of events waiting for worker threads, after which they are handled on network thread")
+	public static int networkEventQueueSize = 1024;
+
+	@OnLineModifiable
+	@ConfigProperty(category = "network", name = "networkEventMaxPending", comment = "Number of not yet handled events from single connection, after which reading from it is paused")
+	public static int networkEventMaxPending = 64;
+
+	@ConfigProperty(category = "debug", name = "collectTrafficStats", comment = "Collect network traffic statistics from start (can be also enabled with om_netstats_s command)")
+	public static boolean collectTrafficStats = false;
+
 }
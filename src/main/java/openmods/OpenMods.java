@@ -24,7 +24,11 @@ import openmods.fakeplayer.FakePlayerPool;
 import openmods.integration.Integration;
 import openmods.integration.modules.BuildCraftPipes;
 import openmods.liquids.BucketFillHandler;
+import openmods.network.CommandNetStats;
 import openmods.network.IdSyncManager;
+import openmods.network.OutboundPacketQueue;
+import openmods.network.PlayerGroup;
+import openmods.network.TrafficStats;
 import openmods.network.event.NetworkEventManager;
 import openmods.network.rpc.RpcCallDispatcher;
 import openmods.network.rpc.targets.EntityRpcTarget;
@@ -35,8 +39,11 @@ import openmods.reflection.TypeVariableHolderHandler;
 import openmods.source.ClassSourceCollector;
 import openmods.source.CommandSource;
 import openmods.sync.SyncChannelHolder;
+import openmods.sync.SyncPacketAggregator;
+import openmods.sync.SyncScheduler;
 import openmods.utils.bitmap.IRpcDirectionBitMap;
 import openmods.utils.bitmap.IRpcIntBitMap;
+import openmods.world.ChunkWatchersIndex;
 import openmods.world.DelayedActionTickHandler;
 import openmods.world.DropCapture;
 
@@ -81,18 +88,27 @@ public class OpenMods {
 
 		if (config.hasChanged()) config.save();
 
+		TrafficStats.setEnabled(LibConfig.collectTrafficStats);
+
 		MinecraftForge.EVENT_BUS.register(DelayedEntityLoadManager.instance);
 
 		MinecraftForge.EVENT_BUS.register(FakePlayerPool.instance);
 
 		MinecraftForge.EVENT_BUS.register(DropCapture.instance);
 
+		MinecraftForge.EVENT_BUS.register(ChunkWatchersIndex.instance);
+
 		MinecraftForge.EVENT_BUS.register(BucketFillHandler.instance);
 
 		MinecraftForge.EVENT_BUS.register(BlockDropsStore.instance.createForgeListener());
 
 		FMLCommonHandler.instance().bus().register(DelayedActionTickHandler.INSTANCE);
 
+		FMLCommonHandler.instance().bus().register(SyncPacketAggregator.INSTANCE);
+		FMLCommonHandler.instance().bus().register(SyncScheduler.INSTANCE);
+		FMLCommonHandler.instance().bus().register(OutboundPacketQueue.INSTANCE);
+		FMLCommonHandler.instance().bus().register(PlayerGroup.createFmlListener());
+
 		FMLCommonHandler.instance().bus().register(BlockDropsStore.instance.createFmlListener());
 
 		FMLCommonHandler.instance().bus().register(ConfigStorage.instance);
@@ -126,5 +142,6 @@ public class OpenMods {
 	public void severStart(FMLServerStartingEvent evt) {
 		evt.registerServerCommand(new CommandConfig("om_config_s", true));
 		evt.registerServerCommand(new CommandSource("om_source_s", true, collector));
+		evt.registerServerCommand(new CommandNetStats("om_netstats_s", true));
 	}
 }
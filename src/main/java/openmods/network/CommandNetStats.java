@@ -0,0 +1,79 @@
+package openmods.network;
+
+import static openmods.utils.CommandUtils.filterPrefixes;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.SyntaxErrorException;
+import net.minecraft.util.ChatComponentTranslation;
+import openmods.utils.SidedCommand;
+
+public class CommandNetStats extends SidedCommand {
+
+	private static final String COMMAND_ON = "on";
+
+	private static final String COMMAND_OFF = "off";
+
+	private static final String COMMAND_RESET = "reset";
+
+	private static final String COMMAND_SHOW = "show";
+
+	private static final int DEFAULT_SHOW_COUNT = 10;
+
+	private final List<String> subcommands = ImmutableList.of(COMMAND_ON, COMMAND_OFF, COMMAND_RESET, COMMAND_SHOW);
+
+	public CommandNetStats(String name, boolean restricted) {
+		super(name, restricted);
+	}
+
+	@Override
+	public String getCommandUsage(ICommandSender icommandsender) {
+		return name + " on|off|reset|show [count]";
+	}
+
+	@Override
+	public void processCommand(ICommandSender sender, String[] args) {
+		if (args.length < 1) throw new SyntaxErrorException();
+
+		final String subCommand = args[0];
+
+		if (subCommand.equals(COMMAND_ON)) {
+			TrafficStats.setEnabled(true);
+			sender.addChatMessage(new ChatComponentTranslation("openmodslib.command.netstats_enabled"));
+		} else if (subCommand.equals(COMMAND_OFF)) {
+			TrafficStats.setEnabled(false);
+			sender.addChatMessage(new ChatComponentTranslation("openmodslib.command.netstats_disabled"));
+		} else if (subCommand.equals(COMMAND_RESET)) {
+			TrafficStats.reset();
+			sender.addChatMessage(new ChatComponentTranslation("openmodslib.command.netstats_reset"));
+		} else if (subCommand.equals(COMMAND_SHOW)) {
+			final int count = args.length > 1? CommandBase.parseIntWithMin(sender, args[1], 1) : DEFAULT_SHOW_COUNT;
+			final List<TrafficStats.Snapshot> stats = TrafficStats.snapshot();
+			if (stats.isEmpty()) {
+				sender.addChatMessage(new ChatComponentTranslation(TrafficStats.isEnabled()? "openmodslib.command.netstats_empty" : "openmodslib.command.netstats_not_enabled"));
+			} else {
+				for (TrafficStats.Snapshot entry : stats.subList(0, Math.min(count, stats.size())))
+					sender.addChatMessage(new ChatComponentTranslation("openmodslib.command.netstats_entry",
+							entry.category, entry.direction, entry.name, entry.count, entry.packets, entry.bytes, String.format("%.3f", entry.nanos / 1e6)));
+			}
+		} else {
+			throw new SyntaxErrorException();
+		}
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public List addTabCompletionOptions(ICommandSender sender, String[] args) {
+		if (args.length == 1) return filterPrefixes(args[0], subcommands);
+
+		return null;
+	}
+
+	@Override
+	public boolean isUsernameIndex(String[] astring, int i) {
+		return false;
+	}
+
+}
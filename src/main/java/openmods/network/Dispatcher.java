@@ -42,6 +42,9 @@ public abstract class Dispatcher {
 
 		public final ITargetedPacketSender<Entity> entity = ExtPacketSenderFactory.createEntitySender(serverChannel());
 
+		// message is encoded once and same packet is sent to every member
+		public final ITargetedPacketSender<PlayerGroup> group = ExtPacketSenderFactory.createPlayerGroupSender(serverChannel());
+
 		public List<Object> serialize(Object msg) {
 			nowhere.sendMessage(msg);
 
@@ -1,10 +1,11 @@
 package openmods.network;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import cpw.mods.fml.common.network.FMLEmbeddedChannel;
 import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.FMLOutboundHandler.OutboundTarget;
 import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.NetworkRegistry.TargetPoint;
 import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
 import cpw.mods.fml.common.network.internal.FMLProxyPacket;
 import cpw.mods.fml.relauncher.Side;
@@ -13,16 +14,92 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.util.AttributeKey;
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import openmods.utils.NetUtils;
 
 public class ExtendedOutboundHandler extends ChannelOutboundHandlerAdapter {
 	public static final AttributeKey<IPacketTargetSelector<?>> MESSAGETARGET = new AttributeKey<IPacketTargetSelector<?>>("om:outboundTarget");
 
-	private static <T> Collection<NetworkDispatcher> getDispatchers(IPacketTargetSelector<T> target, Object arg) {
-		final Collection<NetworkDispatcher> output = Lists.newArrayList();
-		target.listDispatchers(target.castArg(arg), output);
-		return output;
+	private static class PacketSender implements IDispatcherVisitor {
+		private final FMLProxyPacket packet;
+
+		private final boolean coalesce;
+
+		public PacketSender(FMLProxyPacket packet, boolean coalesce) {
+			this.packet = packet;
+			this.coalesce = coalesce;
+		}
+
+		@Override
+		public void visit(NetworkDispatcher dispatcher) {
+			if (coalesce) OutboundPacketQueue.INSTANCE.queue(dispatcher, packet);
+			else dispatcher.sendProxy(packet);
+		}
+	}
+
+	private static <T> void sendToDispatchers(IPacketTargetSelector<T> target, Object arg, IDispatcherVisitor visitor) {
+		target.forEachDispatcher(target.castArg(arg), visitor);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<EntityPlayerMP> getPlayers() {
+		return MinecraftServer.getServer().getConfigurationManager().playerEntityList;
+	}
+
+	private static boolean isInRange(EntityPlayerMP player, TargetPoint point) {
+		if (player.dimension != point.dimension) return false;
+		final double dx = point.x - player.posX;
+		final double dy = point.y - player.posY;
+		final double dz = point.z - player.posZ;
+		return dx * dx + dy * dy + dz * dz < point.range * point.range;
+	}
+
+	/**
+	 * Same selection as in {@link FMLOutboundHandler}, but packets are queued, so they keep order with ones sent via {@link #MESSAGETARGET}.
+	 *
+	 * @return false if target is not handled here and packet should be passed to FML
+	 */
+	private static boolean queueFmlPacket(Channel channel, FMLProxyPacket pkt) {
+		final OutboundTarget fmlTarget = channel.attr(FMLOutboundHandler.FML_MESSAGETARGET).get();
+		if (fmlTarget == null) return false;
+
+		final Object arg = channel.attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).get();
+		final PacketSender sender = new PacketSender(pkt, true);
+
+		switch (fmlTarget) {
+			case PLAYER:
+				NetUtils.visitPlayerDispatcher((EntityPlayerMP)arg, sender);
+				return true;
+			case ALL:
+				NetUtils.visitPlayerDispatchers(getPlayers(), sender);
+				return true;
+			case DIMENSION: {
+				final int dimension = (Integer)arg;
+				for (EntityPlayerMP player : getPlayers())
+					if (player.dimension == dimension) NetUtils.visitPlayerDispatcher(player, sender);
+				return true;
+			}
+			case ALLAROUNDPOINT: {
+				final TargetPoint point = (TargetPoint)arg;
+				for (EntityPlayerMP player : getPlayers())
+					if (isInRange(player, point)) NetUtils.visitPlayerDispatcher(player, sender);
+				return true;
+			}
+			case DISPATCHER:
+				sender.visit((NetworkDispatcher)arg);
+				return true;
+			case REPLY: {
+				final NetworkDispatcher dispatcher = channel.attr(NetworkDispatcher.FML_DISPATCHER).get();
+				if (dispatcher == null) return false;
+				sender.visit(dispatcher);
+				return true;
+			}
+			default:
+				return false;
+		}
 	}
 
 	@Override
@@ -34,29 +111,28 @@ public class ExtendedOutboundHandler extends ChannelOutboundHandlerAdapter {
 
 		final Channel channel = ctx.channel();
 
+		final FMLProxyPacket pkt = (FMLProxyPacket)msg;
+
+		final Side channelSide = channel.attr(NetworkRegistry.CHANNEL_SOURCE).get();
+
+		final boolean coalesce = channelSide == Side.SERVER && OutboundPacketQueue.INSTANCE.isEnabled();
+
 		final IPacketTargetSelector<?> target = channel.attr(MESSAGETARGET).get();
 		if (target == null) {
-			ctx.write(msg);
+			// when coalescing, all FML targets must be queued too - otherwise they would overtake packets queued earlier in tick
+			if (!coalesce || !queueFmlPacket(channel, pkt)) ctx.write(msg);
 			return;
 		}
 
-		final FMLProxyPacket pkt = (FMLProxyPacket)msg;
-
-		final Side channelSide = channel.attr(NetworkRegistry.CHANNEL_SOURCE).get();
-
 		Preconditions.checkState(target.isAllowedOnSide(channelSide), "Packet not allowed on side");
 
-		final String channelName = channel.attr(NetworkRegistry.FML_CHANNEL).get();
-
 		Object arg = channel.attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).get();
 
 		try {
-			final Collection<NetworkDispatcher> dispatchers = getDispatchers(target, arg);
-			for (NetworkDispatcher dispatcher : dispatchers)
-				dispatcher.sendProxy(pkt);
-
+			// new visitor for every write - handler is shared by all threads writing to channel (like network event workers)
+			sendToDispatchers(target, arg, new PacketSender(pkt, coalesce));
 		} catch (Throwable t) {
-
+			final String channelName = channel.attr(NetworkRegistry.FML_CHANNEL).get();
 			throw new IllegalStateException(String.format(
 					"Failed to select and send message (selector %s, arg: %s, channel: %s, side: %s)",
 					target, arg, channelName, channelSide), t);
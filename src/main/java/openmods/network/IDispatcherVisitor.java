@@ -0,0 +1,7 @@
+package openmods.network;
+
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+
+public interface IDispatcherVisitor {
+	public void visit(NetworkDispatcher dispatcher);
+}
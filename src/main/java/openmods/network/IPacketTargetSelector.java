@@ -10,4 +10,10 @@ public interface IPacketTargetSelector<T> {
 	public T castArg(Object arg);
 
 	public void listDispatchers(T arg, Collection<NetworkDispatcher> result);
+
+	/**
+	 * Visits target dispatchers directly in underlying structures (without creating intermediate collections).
+	 * Visitor must not modify those structures (for example by sending vanilla packets that add or remove watchers).
+	 */
+	public void forEachDispatcher(T arg, IDispatcherVisitor visitor);
 }
@@ -1,7 +1,6 @@
 package openmods.network;
 
 import com.google.common.base.Preconditions;
-import com.google.common.io.Closer;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.LoaderState;
@@ -18,15 +17,10 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 import openmods.Log;
 import openmods.OpenMods;
 import openmods.datastore.DataStoreBuilder;
@@ -35,10 +29,17 @@ import openmods.datastore.DataStoreManager;
 import openmods.datastore.DataStoreReader;
 import openmods.datastore.DataStoreWrapper;
 import openmods.datastore.DataStoreWriter;
+import openmods.network.compression.DeflateCompressionStrategy;
+import openmods.network.compression.ICompressionStrategy;
+import openmods.network.compression.PayloadCompression;
 
 public class IdSyncManager extends DataStoreManager {
 
 	private static final String CHANNEL_NAME = "OpenMods|I";
+
+	// id tables are sent once per connection, so it's worth to spend more time on compression
+	private static final ICompressionStrategy COMPRESSION = new DeflateCompressionStrategy(Deflater.DEFAULT_COMPRESSION, DeflateCompressionStrategy.DEFAULT_THRESHOLD);
+
 	public static final IdSyncManager INSTANCE = new IdSyncManager();
 
 	@Sharable
@@ -66,20 +67,14 @@ public class IdSyncManager extends DataStoreManager {
 	}
 
 	private static FMLProxyPacket serializeToPacket(DataStoreKey<?, ?> key, DataStoreWriter<?, ?> writer) {
+		ByteBuf raw = Unpooled.buffer();
 		ByteBuf payload = Unpooled.buffer();
 
-		Closer closer = Closer.create();
-
 		try {
-			try {
-				OutputStream raw = closer.register(new ByteBufOutputStream(payload));
-				OutputStream compressed = closer.register(new GZIPOutputStream(raw));
-				DataOutput output = new DataOutputStream(compressed);
-				output.writeUTF(key.id);
-				writer.write(output);
-			} finally {
-				closer.close();
-			}
+			DataOutput output = new ByteBufOutputStream(raw);
+			output.writeUTF(key.id);
+			writer.write(output);
+			PayloadCompression.write(COMPRESSION, raw, payload);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -112,21 +107,14 @@ public class IdSyncManager extends DataStoreManager {
 	}
 
 	private void decodeIds(ByteBuf buf) throws IOException {
-		Closer closer = Closer.create();
-		try {
-			InputStream raw = closer.register(new ByteBufInputStream(buf));
-			InputStream compressed = closer.register(new GZIPInputStream(raw));
-			DataInput input = new DataInputStream(compressed);
-
-			String keyId = input.readUTF();
-
-			Log.debug("Received data store for key %s, packet size = %d", keyId, buf.writerIndex());
-			DataStoreWrapper<?, ?> wrapper = getDataStoreMeta(keyId);
-			DataStoreReader<?, ?> reader = wrapper.createReader();
-			reader.read(input);
-		} finally {
-			closer.close();
-		}
+		DataInput input = new ByteBufInputStream(PayloadCompression.read(COMPRESSION, buf, PayloadCompression.MAX_UNCOMPRESSED_SIZE));
+
+		String keyId = input.readUTF();
+
+		Log.debug("Received data store for key %s, packet size = %d", keyId, buf.writerIndex());
+		DataStoreWrapper<?, ?> wrapper = getDataStoreMeta(keyId);
+		DataStoreReader<?, ?> reader = wrapper.createReader();
+		reader.read(input);
 	}
 
 	@SubscribeEvent
@@ -0,0 +1,78 @@
+package openmods.network;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import cpw.mods.fml.common.eventhandler.EventPriority;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent.Phase;
+import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import io.netty.channel.Channel;
+import java.util.List;
+import java.util.Map;
+import openmods.LibConfig;
+import openmods.utils.NetUtils;
+
+/**
+ * Collects server-to-client packets produced during tick and writes them on tick end, with single flush per connection (or one per {@link LibConfig#outboundFlushBytes} bytes).
+ * Runs after other tick end handlers, so packets aggregated by them (like {@link openmods.sync.SyncPacketAggregator}) are sent in same tick.
+ */
+public class OutboundPacketQueue {
+
+	public static final OutboundPacketQueue INSTANCE = new OutboundPacketQueue();
+
+	private OutboundPacketQueue() {}
+
+	private Map<NetworkDispatcher, List<FMLProxyPacket>> pending = Maps.newIdentityHashMap();
+
+	public boolean isEnabled() {
+		return LibConfig.coalesceOutboundPackets;
+	}
+
+	public synchronized void queue(NetworkDispatcher dispatcher, FMLProxyPacket packet) {
+		List<FMLProxyPacket> packets = pending.get(dispatcher);
+		if (packets == null) {
+			packets = Lists.newArrayList();
+			pending.put(dispatcher, packets);
+		}
+
+		packets.add(packet);
+	}
+
+	public void flush() {
+		final Map<NetworkDispatcher, List<FMLProxyPacket>> toSend;
+		synchronized (this) {
+			if (pending.isEmpty()) return;
+			toSend = pending;
+			pending = Maps.newIdentityHashMap();
+		}
+
+		final int flushBytes = LibConfig.outboundFlushBytes;
+
+		for (Map.Entry<NetworkDispatcher, List<FMLProxyPacket>> e : toSend.entrySet()) {
+			final Channel channel = e.getKey().manager.channel();
+			// player disconnected since packets were queued
+			if (!channel.isOpen()) continue;
+
+			int unflushedBytes = 0;
+			for (FMLProxyPacket packet : e.getValue()) {
+				// goes through whole connection pipeline, so FML dispatcher handler still converts it to vanilla packets
+				channel.write(packet).addListener(NetUtils.LOGGING_LISTENER);
+				unflushedBytes += packet.payload().readableBytes();
+
+				if (flushBytes > 0 && unflushedBytes >= flushBytes) {
+					channel.flush();
+					unflushedBytes = 0;
+				}
+			}
+
+			if (unflushedBytes > 0) channel.flush();
+		}
+	}
+
+	@SubscribeEvent(priority = EventPriority.LOWEST)
+	public void onServerTick(ServerTickEvent evt) {
+		if (evt.phase == Phase.END) flush();
+	}
+}
@@ -0,0 +1,102 @@
+package openmods.network;
+
+import com.google.common.collect.Maps;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerLoggedOutEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerRespawnEvent;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+/**
+ * Set of players that can be used as target of {@link Dispatcher.Senders#group} (like team or players in minigame).
+ * Members are kept between sends and updated when player respawns (new entity is created) or logs out, so membership doesn't need to be rebuilt before every send.
+ * Must be only used from server thread.
+ */
+public class PlayerGroup {
+
+	// groups with at least one member, weak so abandoned groups can be collected
+	private static final Set<PlayerGroup> activeGroups = Collections.newSetFromMap(new WeakHashMap<PlayerGroup, Boolean>());
+
+	private final Map<UUID, EntityPlayerMP> members = Maps.newLinkedHashMap();
+
+	private final Collection<EntityPlayerMP> membersView = Collections.unmodifiableCollection(members.values());
+
+	public boolean add(EntityPlayerMP player) {
+		final EntityPlayerMP prev = members.put(player.getUniqueID(), player);
+		if (prev == null && members.size() == 1) activeGroups.add(this);
+		return prev != player;
+	}
+
+	public boolean remove(EntityPlayer player) {
+		return remove(player.getUniqueID());
+	}
+
+	public boolean remove(UUID playerId) {
+		final boolean removed = members.remove(playerId) != null;
+		if (removed && members.isEmpty()) activeGroups.remove(this);
+		return removed;
+	}
+
+	public void clear() {
+		members.clear();
+		activeGroups.remove(this);
+	}
+
+	public boolean contains(EntityPlayer player) {
+		return members.containsKey(player.getUniqueID());
+	}
+
+	public int size() {
+		return members.size();
+	}
+
+	public boolean isEmpty() {
+		return members.isEmpty();
+	}
+
+	/**
+	 * Live, read-only view of current members.
+	 */
+	public Collection<EntityPlayerMP> getMembers() {
+		return membersView;
+	}
+
+	private void replaceEntity(EntityPlayerMP player) {
+		final UUID id = player.getUniqueID();
+		if (members.containsKey(id)) members.put(id, player);
+	}
+
+	public static class FmlListener {
+		@SubscribeEvent
+		public void onPlayerRespawn(PlayerRespawnEvent evt) {
+			if (evt.player instanceof EntityPlayerMP) {
+				final EntityPlayerMP player = (EntityPlayerMP)evt.player;
+				for (PlayerGroup group : activeGroups)
+					group.replaceEntity(player);
+			}
+		}
+
+		@SubscribeEvent
+		public void onPlayerLogout(PlayerLoggedOutEvent evt) {
+			final UUID id = evt.player.getUniqueID();
+			// copy, since groups may become empty and be removed from set
+			for (PlayerGroup group : activeGroups.toArray(new PlayerGroup[activeGroups.size()]))
+				group.remove(id);
+		}
+	}
+
+	public static Object createFmlListener() {
+		return new FmlListener();
+	}
+
+	@Override
+	public String toString() {
+		return "PlayerGroup" + members.keySet();
+	}
+}
@@ -0,0 +1,228 @@
+package openmods.network;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import openmods.network.rpc.RpcCallDispatcher;
+
+/**
+ * Counts packets, bytes and encoding/decoding time of OpenMods traffic, per category (events, RPC, sync) and key (event class, method id, handler class).
+ * Disabled by default - then call sites only check {@link #isEnabled()}.
+ *
+ * Usage pattern: <code>final long start = TrafficStats.start(); ... if (start != 0) TrafficStats.EVENTS.record(...);</code>
+ */
+public class TrafficStats {
+
+	public enum Direction {
+		SENT,
+		RECEIVED
+	}
+
+	/**
+	 * Power-of-two buckets: bucket N contains values in range [2^(N-1), 2^N), bucket 0 contains only 0.
+	 */
+	public static class Histogram {
+		public static final int BUCKETS = 40;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		public static int bucket(long value) {
+			if (value <= 0) return 0;
+			return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(value));
+		}
+
+		public void add(long value) {
+			buckets.incrementAndGet(bucket(value));
+		}
+
+		public long[] snapshot() {
+			final long[] result = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				result[i] = buckets.get(i);
+			return result;
+		}
+	}
+
+	public static class Counter {
+		private final AtomicLong packets = new AtomicLong();
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong nanos = new AtomicLong();
+
+		private final Histogram sizes = new Histogram();
+
+		private final Histogram times = new Histogram();
+
+		public void record(int packets, int bytes, long nanos) {
+			this.count.incrementAndGet();
+			this.packets.addAndGet(packets);
+			this.bytes.addAndGet(bytes);
+			this.nanos.addAndGet(nanos);
+			this.sizes.add(bytes);
+			this.times.add(nanos / 1000);
+		}
+	}
+
+	public static class Snapshot {
+		public final String category;
+
+		public final Direction direction;
+
+		public final String name;
+
+		/**
+		 * Number of encoded or decoded messages.
+		 */
+		public final long count;
+
+		public final long packets;
+
+		public final long bytes;
+
+		public final long nanos;
+
+		/**
+		 * Message sizes in bytes, see {@link Histogram} for bucket ranges.
+		 */
+		public final long[] sizeHistogram;
+
+		/**
+		 * Encoding/decoding times in microseconds, see {@link Histogram} for bucket ranges.
+		 */
+		public final long[] timeHistogram;
+
+		private Snapshot(String category, Direction direction, String name, Counter counter) {
+			this.category = category;
+			this.direction = direction;
+			this.name = name;
+			this.count = counter.count.get();
+			this.packets = counter.packets.get();
+			this.bytes = counter.bytes.get();
+			this.nanos = counter.nanos.get();
+			this.sizeHistogram = counter.sizes.snapshot();
+			this.timeHistogram = counter.times.snapshot();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s %s: %d messages, %d packets, %d bytes, %.3f ms", category, direction, name, count, packets, bytes, nanos / 1e6);
+		}
+	}
+
+	public static class Category {
+		public final String name;
+
+		private final Function<Object, String> keyFormatter;
+
+		private final Map<Direction, ConcurrentMap<Object, Counter>> counters = Maps.newEnumMap(Direction.class);
+
+		private Category(String name, Function<Object, String> keyFormatter) {
+			this.name = name;
+			this.keyFormatter = keyFormatter;
+			for (Direction direction : Direction.values())
+				counters.put(direction, Maps.<Object, Counter> newConcurrentMap());
+		}
+
+		private Counter getCounter(Direction direction, Object key) {
+			final ConcurrentMap<Object, Counter> map = counters.get(direction);
+			Counter result = map.get(key);
+			if (result == null) {
+				final Counter newCounter = new Counter();
+				result = map.putIfAbsent(key, newCounter);
+				if (result == null) result = newCounter;
+			}
+			return result;
+		}
+
+		/**
+		 * @param startTime
+		 *            value returned by {@link TrafficStats#start()}
+		 */
+		public void record(Direction direction, Object key, int packets, int bytes, long startTime) {
+			getCounter(direction, key).record(packets, bytes, System.nanoTime() - startTime);
+		}
+
+		private void snapshot(List<Snapshot> output) {
+			for (Map.Entry<Direction, ConcurrentMap<Object, Counter>> e : counters.entrySet())
+				for (Map.Entry<Object, Counter> c : e.getValue().entrySet())
+					output.add(new Snapshot(name, e.getKey(), keyFormatter.apply(c.getKey()), c.getValue()));
+		}
+
+		private void reset() {
+			for (ConcurrentMap<Object, Counter> map : counters.values())
+				map.clear();
+		}
+	}
+
+	private static final Function<Object, String> CLASS_NAME = new Function<Object, String>() {
+		@Override
+		public String apply(Object input) {
+			return ((Class<?>)input).getName();
+		}
+	};
+
+	public static final Category EVENTS = new Category("event", CLASS_NAME);
+
+	public static final Category SYNC = new Category("sync", CLASS_NAME);
+
+	// keyed by method id, names are resolved when snapshot is created (ids may change after connecting to server)
+	public static final Category RPC = new Category("rpc", new Function<Object, String>() {
+		@Override
+		public String apply(Object input) {
+			return RpcCallDispatcher.INSTANCE.getMethodName((Integer)input);
+		}
+	});
+
+	private static final List<Category> categories = ImmutableList.of(EVENTS, RPC, SYNC);
+
+	private static volatile boolean enabled;
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		TrafficStats.enabled = enabled;
+	}
+
+	/**
+	 * @return current time if stats are enabled or 0 otherwise
+	 */
+	public static long start() {
+		return enabled? Math.max(System.nanoTime(), 1) : 0;
+	}
+
+	public static void reset() {
+		for (Category category : categories)
+			category.reset();
+	}
+
+	/**
+	 * @return all counters, sorted by bytes (highest first)
+	 */
+	public static List<Snapshot> snapshot() {
+		final List<Snapshot> result = Lists.newArrayList();
+		for (Category category : categories)
+			category.snapshot(result);
+
+		Collections.sort(result, new Comparator<Snapshot>() {
+			@Override
+			public int compare(Snapshot o1, Snapshot o2) {
+				return Long.compare(o2.bytes, o1.bytes);
+			}
+		});
+
+		return result;
+	}
+}
@@ -0,0 +1,130 @@
+package openmods.network.compression;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate (no gzip/zlib header and checksum). {@link Deflater} and {@link Inflater} are kept in compressor, reset between payloads and ended on {@link ICompressor#close()}.
+ */
+public class DeflateCompressionStrategy implements ICompressionStrategy {
+
+	public static final int DEFAULT_THRESHOLD = 256;
+
+	public static final DeflateCompressionStrategy DEFAULT = new DeflateCompressionStrategy(Deflater.BEST_SPEED, DEFAULT_THRESHOLD);
+
+	private static final int MIN_BUFFER_SIZE = 256;
+
+	private final int level;
+
+	private final int threshold;
+
+	public DeflateCompressionStrategy(int level, int threshold) {
+		Preconditions.checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION), "Invalid level: %s", level);
+		Preconditions.checkArgument(threshold >= 0, "Invalid threshold: %s", threshold);
+		this.level = level;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public int getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	public ICompressor createCompressor() {
+		return new Compressor(level);
+	}
+
+	private static class Compressor implements ICompressor {
+		private final Deflater deflater;
+
+		private final Inflater inflater = new Inflater(true);
+
+		public Compressor(int level) {
+			this.deflater = new Deflater(level, true);
+		}
+
+		private static byte[] array(ByteBuf buf) {
+			if (buf.hasArray()) return buf.array();
+			final byte[] result = new byte[buf.readableBytes()];
+			buf.getBytes(buf.readerIndex(), result);
+			return result;
+		}
+
+		private static int offset(ByteBuf buf) {
+			return buf.hasArray()? buf.arrayOffset() + buf.readerIndex() : 0;
+		}
+
+		@Override
+		public void compress(ByteBuf input, ByteBuf output) {
+			final int length = input.readableBytes();
+			deflater.setInput(array(input), offset(input), length);
+			deflater.finish();
+
+			try {
+				while (!deflater.finished()) {
+					output.ensureWritable(Math.max(MIN_BUFFER_SIZE, length / 2));
+					if (output.hasArray()) {
+						final int written = deflater.deflate(output.array(), output.arrayOffset() + output.writerIndex(), output.writableBytes());
+						output.writerIndex(output.writerIndex() + written);
+					} else {
+						final byte[] tmp = new byte[output.writableBytes()];
+						final int written = deflater.deflate(tmp);
+						output.writeBytes(tmp, 0, written);
+					}
+				}
+			} finally {
+				deflater.reset();
+			}
+
+			input.skipBytes(length);
+		}
+
+		@Override
+		public void decompress(ByteBuf input, ByteBuf output, int uncompressedSize) throws IOException {
+			final int length = input.readableBytes();
+			inflater.setInput(array(input), offset(input), length);
+
+			try {
+				int produced = 0;
+				while (produced < uncompressedSize) {
+					// output grows with inflated data, instead of trusting declared size
+					final int remaining = uncompressedSize - produced;
+					output.ensureWritable(Math.min(remaining, Math.max(MIN_BUFFER_SIZE, 2 * length)));
+					final int count;
+					if (output.hasArray()) {
+						count = inflater.inflate(output.array(), output.arrayOffset() + output.writerIndex(), Math.min(remaining, output.writableBytes()));
+						output.writerIndex(output.writerIndex() + count);
+					} else {
+						final byte[] tmp = new byte[Math.min(remaining, output.writableBytes())];
+						count = inflater.inflate(tmp);
+						output.writeBytes(tmp, 0, count);
+					}
+
+					if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) throw new IOException(String.format("Truncated payload: got %d bytes, expected %d", produced, uncompressedSize));
+					produced += count;
+				}
+
+				// end of stream marker may be still unread
+				if (!inflater.finished() && inflater.inflate(new byte[1]) > 0) throw new IOException(String.format("Payload longer than expected %d bytes", uncompressedSize));
+				if (inflater.getRemaining() > 0) throw new IOException(String.format("%d junk bytes left after payload", inflater.getRemaining()));
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.reset();
+			}
+
+			input.skipBytes(length);
+		}
+
+		@Override
+		public void close() {
+			deflater.end();
+			inflater.end();
+		}
+	}
+}
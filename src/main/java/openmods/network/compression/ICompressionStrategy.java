@@ -0,0 +1,13 @@
+package openmods.network.compression;
+
+/**
+ * Describes how payloads are compressed. Implementations must be stateless and thread-safe - all state lives in {@link ICompressor}.
+ */
+public interface ICompressionStrategy {
+	/**
+	 * Payloads smaller than this are sent without compression.
+	 */
+	public int getThreshold();
+
+	public ICompressor createCompressor();
+}
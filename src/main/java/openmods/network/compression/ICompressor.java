@@ -0,0 +1,25 @@
+package openmods.network.compression;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+
+/**
+ * Stateful (and not thread-safe) part of compression strategy, reused between payloads.
+ */
+public interface ICompressor {
+	/**
+	 * Compress all readable bytes from input and append result to output.
+	 */
+	public void compress(ByteBuf input, ByteBuf output) throws IOException;
+
+	/**
+	 * Decompress all readable bytes from input and append result to output. Result must have exactly uncompressedSize bytes.
+	 * Since size comes from remote side, output should be grown while decompressing, not allocated upfront.
+	 */
+	public void decompress(ByteBuf input, ByteBuf output, int uncompressedSize) throws IOException;
+
+	/**
+	 * Release resources (like native memory). Compressor can't be used afterwards.
+	 */
+	public void close();
+}
@@ -0,0 +1,111 @@
+package openmods.network.compression;
+
+import com.google.common.collect.MapMaker;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Payload format: flag byte ({@link #FLAG_RAW} or {@link #FLAG_COMPRESSED}), then either raw payload or varint uncompressed size and compressed data.
+ * Compressors are pooled per strategy - idle ones above {@link #MAX_IDLE_COMPRESSORS} are closed, so their native memory is released.
+ */
+public class PayloadCompression {
+
+	public static final int FLAG_RAW = 0;
+
+	public static final int FLAG_COMPRESSED = 1;
+
+	// upper bounds for single decompressed payload - declared size is checked against them before any data is inflated
+	public static final int MAX_UNCOMPRESSED_SIZE = 32 * 1024 * 1024;
+
+	public static final int MAX_CLIENT_UNCOMPRESSED_SIZE = 2 * 1024 * 1024;
+
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+
+	public static final int MAX_IDLE_COMPRESSORS = 4;
+
+	private static final ConcurrentMap<ICompressionStrategy, Queue<ICompressor>> idleCompressors = new MapMaker().weakKeys().makeMap();
+
+	private static Queue<ICompressor> getIdleCompressors(ICompressionStrategy strategy) {
+		Queue<ICompressor> result = idleCompressors.get(strategy);
+		if (result == null) {
+			final Queue<ICompressor> newQueue = new ArrayBlockingQueue<ICompressor>(MAX_IDLE_COMPRESSORS);
+			result = idleCompressors.putIfAbsent(strategy, newQueue);
+			if (result == null) result = newQueue;
+		}
+		return result;
+	}
+
+	/**
+	 * Returned compressor is owned by caller until it's passed to {@link #releaseCompressor(ICompressionStrategy, ICompressor)}.
+	 */
+	public static ICompressor acquireCompressor(ICompressionStrategy strategy) {
+		final ICompressor result = getIdleCompressors(strategy).poll();
+		return result != null? result : strategy.createCompressor();
+	}
+
+	public static void releaseCompressor(ICompressionStrategy strategy, ICompressor compressor) {
+		if (!getIdleCompressors(strategy).offer(compressor)) compressor.close();
+	}
+
+	/**
+	 * Same as {@link #write(ICompressionStrategy, ICompressor, ByteBuf, ByteBuf)}, but with compressor taken from pool.
+	 */
+	public static void write(ICompressionStrategy strategy, ByteBuf input, ByteBuf output) throws IOException {
+		final ICompressor compressor = acquireCompressor(strategy);
+		try {
+			write(strategy, compressor, input, output);
+		} finally {
+			releaseCompressor(strategy, compressor);
+		}
+	}
+
+	/**
+	 * Same as {@link #read(ICompressor, ByteBuf, int)}, but with compressor taken from pool.
+	 */
+	public static ByteBuf read(ICompressionStrategy strategy, ByteBuf input, int maxSize) throws IOException {
+		final ICompressor compressor = acquireCompressor(strategy);
+		try {
+			return read(compressor, input, maxSize);
+		} finally {
+			releaseCompressor(strategy, compressor);
+		}
+	}
+
+	/**
+	 * Writes readable bytes of input to output, compressing them if they are above strategy threshold.
+	 */
+	public static void write(ICompressionStrategy strategy, ICompressor compressor, ByteBuf input, ByteBuf output) throws IOException {
+		final int size = input.readableBytes();
+		if (size < strategy.getThreshold()) {
+			output.writeByte(FLAG_RAW);
+			output.writeBytes(input);
+		} else {
+			output.writeByte(FLAG_COMPRESSED);
+			ByteBufUtils.writeVarInt(output, size, 5);
+			compressor.compress(input, output);
+		}
+	}
+
+	/**
+	 * Reads payload written by {@link #write(ICompressionStrategy, ICompressor, ByteBuf, ByteBuf)}.
+	 * Returned buffer is either slice of input (for raw payloads) or new buffer.
+	 * Declared size is only used as upper bound - buffer grows with inflated data, so small packets can't force big allocations.
+	 */
+	public static ByteBuf read(ICompressor compressor, ByteBuf input, int maxSize) throws IOException {
+		final int flag = input.readUnsignedByte();
+		if (flag == FLAG_RAW) return input.slice();
+		if (flag != FLAG_COMPRESSED) throw new IOException("Invalid compression flag: " + flag);
+
+		final int size = ByteBufUtils.readVarInt(input, 5);
+		if (size < 0 || size > maxSize) throw new IOException("Invalid uncompressed size: " + size);
+
+		final ByteBuf output = Unpooled.buffer(Math.min(size, INITIAL_BUFFER_SIZE), size);
+		compressor.decompress(input, output, size);
+		return output;
+	}
+}
@@ -0,0 +1,19 @@
+package openmods.network.event;
+
+/**
+ * Where handlers of received event are called. Event is always decoded on network thread.
+ */
+public enum EventExecution {
+	/**
+	 * Handlers are called directly on network thread (default).
+	 */
+	NETWORK_THREAD,
+	/**
+	 * Handlers are called on shared, bounded worker pool. Should be used for events with expensive handlers that don't touch world.
+	 */
+	WORKER_POOL,
+	/**
+	 * Handlers are called on server thread, at end of tick of sender's world. Client-side events are still handled on network thread.
+	 */
+	SERVER_THREAD;
+}
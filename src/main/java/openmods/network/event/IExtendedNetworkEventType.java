@@ -0,0 +1,16 @@
+package openmods.network.event;
+
+import openmods.network.compression.ICompressionStrategy;
+
+/**
+ * Optional extension of {@link INetworkEventType}. For types implementing only base interface {@link INetworkEventType#isCompressed()} selects {@link openmods.network.compression.DeflateCompressionStrategy#DEFAULT}
+ * and events are handled with {@link EventExecution#NETWORK_THREAD}.
+ */
+public interface IExtendedNetworkEventType extends INetworkEventType {
+	/**
+	 * @return compression used for events of this type or null, if they should be sent as is
+	 */
+	public ICompressionStrategy getCompression();
+
+	public EventExecution getExecution();
+}
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.util.List;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
+import openmods.network.PlayerGroup;
 
 public abstract class NetworkEvent extends Event {
 
@@ -47,6 +48,10 @@ public abstract class NetworkEvent extends Event {
 		NetworkEventManager.INSTANCE.dispatcher().senders.entity.sendMessage(this, entity);
 	}
 
+	public void sendToGroup(PlayerGroup group) {
+		NetworkEventManager.INSTANCE.dispatcher().senders.group.sendMessage(this, group);
+	}
+
 	public List<Object> serialize() {
 		return NetworkEventManager.INSTANCE.dispatcher().senders.serialize(this);
 	}
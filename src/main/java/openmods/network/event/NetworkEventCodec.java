@@ -1,30 +1,30 @@
 package openmods.network.event;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
 import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.NetworkRegistry;
 import cpw.mods.fml.common.network.internal.FMLProxyPacket;
 import cpw.mods.fml.relauncher.Side;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ConcurrentMap;
 import net.minecraft.network.INetHandler;
 import openmods.OpenMods;
+import openmods.network.TrafficStats;
+import openmods.network.TrafficStats.Direction;
+import openmods.network.compression.ICompressionStrategy;
+import openmods.network.compression.PayloadCompression;
 import openmods.utils.io.PacketChunker;
 
 @Sharable
@@ -32,18 +32,35 @@ public class NetworkEventCodec extends MessageToMessageCodec<FMLProxyPacket, Net
 
 	private final PacketChunker chunker = new PacketChunker();
 
+	// keyed by connection (NetworkDispatcher), entries are removed when connection is gone
+	private final ConcurrentMap<Object, PacketChunker.Reassembler> reassemblers = new MapMaker().weakKeys().makeMap();
+
 	private final NetworkEventRegistry registry;
 
 	public NetworkEventCodec(NetworkEventRegistry registry) {
 		this.registry = registry;
 	}
 
+	public PacketChunker getChunker() {
+		return chunker;
+	}
+
+	private PacketChunker.Reassembler getReassembler(Object connection) {
+		PacketChunker.Reassembler result = reassemblers.get(connection);
+		if (result == null) {
+			final PacketChunker.Reassembler newReassembler = chunker.createReassembler();
+			result = reassemblers.putIfAbsent(connection, newReassembler);
+			if (result == null) result = newReassembler;
+		}
+		return result;
+	}
+
 	@Override
 	protected void encode(ChannelHandlerContext ctx, NetworkEvent msg, List<Object> out) throws IOException {
+		final long start = TrafficStats.start();
 		int id = registry.getIdForClass(msg.getClass());
 		INetworkEventType type = registry.getTypeForId(id);
 
-		byte[] payload = toRawBytes(msg, type.isCompressed());
 		Channel channel = ctx.channel();
 
 		Side side = channel.attr(NetworkRegistry.CHANNEL_SOURCE).get();
@@ -51,10 +68,39 @@ public class NetworkEventCodec extends MessageToMessageCodec<FMLProxyPacket, Net
 		Preconditions.checkState(validator != null && validator.validateSend(side),
 				"Invalid direction: sending packet %s on side %s", msg.getClass(), side);
 
+		final ByteBuf payload = PooledByteBufAllocator.DEFAULT.heapBuffer();
+		try {
+			msg.writeToStream(new ByteBufOutputStream(payload));
+
+			final ICompressionStrategy compression = NetworkEventRegistry.getCompression(type);
+			if (compression != null) {
+				final ByteBuf compressed = PooledByteBufAllocator.DEFAULT.heapBuffer();
+				try {
+					PayloadCompression.write(compression, payload, compressed);
+					writePackets(id, compressed, side, type, msg, out);
+				} finally {
+					compressed.release();
+				}
+			} else {
+				writePackets(id, payload, side, type, msg, out);
+			}
+		} finally {
+			payload.release();
+		}
+
+		if (start != 0) {
+			int bytes = 0;
+			for (Object packet : out)
+				bytes += ((FMLProxyPacket)packet).payload().readableBytes();
+			TrafficStats.EVENTS.record(Direction.SENT, msg.getClass(), out.size(), bytes, start);
+		}
+	}
+
+	private void writePackets(int id, ByteBuf payload, Side side, INetworkEventType type, NetworkEvent msg, List<Object> out) {
 		if (type.isChunked()) {
 			final int maxChunkSize = side == Side.SERVER? PacketChunker.PACKET_SIZE_S3F : PacketChunker.PACKET_SIZE_C17;
-			byte[][] chunked = chunker.splitIntoChunks(payload, maxChunkSize);
-			for (byte[] chunk : chunked) {
+			ByteBuf[] chunked = chunker.splitIntoChunks(payload, maxChunkSize);
+			for (ByteBuf chunk : chunked) {
 				FMLProxyPacket partialPacket = createPacket(id, chunk);
 				partialPacket.setDispatcher(msg.dispatcher);
 				out.add(partialPacket);
@@ -68,6 +114,7 @@ public class NetworkEventCodec extends MessageToMessageCodec<FMLProxyPacket, Net
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, FMLProxyPacket msg, List<Object> out) throws Exception {
+		final long start = TrafficStats.start();
 		ByteBuf payload = msg.payload();
 		int typeId = ByteBufUtils.readVarInt(payload, 5);
 		INetworkEventType type = registry.getTypeForId(typeId);
@@ -80,17 +127,23 @@ public class NetworkEventCodec extends MessageToMessageCodec<FMLProxyPacket, Net
 		Preconditions.checkState(validator != null && validator.validateReceive(side),
 				"Invalid direction: receiving packet %s on side %s", msg.getClass(), side);
 
-		InputStream input = new ByteBufInputStream(payload);
-
 		if (type.isChunked()) {
-			byte[] fullPayload = chunker.consumeChunk(input, input.available());
-			if (fullPayload == null) return;
-			input = new ByteArrayInputStream(fullPayload);
+			final Object connection = msg.getDispatcher() != null? msg.getDispatcher() : channel;
+			payload = getReassembler(connection).consumeChunk(payload);
+			if (payload == null) return;
 		}
 
-		if (type.isCompressed()) input = new GZIPInputStream(input);
+		final ICompressionStrategy compression = NetworkEventRegistry.getCompression(type);
+		// for chunked events only last (completing) chunk is counted, but with size of whole payload
+		final int size = payload.readableBytes();
+		if (compression != null) {
+			// client packets are limited more, since compression lets them claim ~1000x of their size
+			final int maxSize = side == Side.SERVER? PayloadCompression.MAX_CLIENT_UNCOMPRESSED_SIZE : PayloadCompression.MAX_UNCOMPRESSED_SIZE;
+			payload = PayloadCompression.read(compression, payload, maxSize);
+		}
 
-		DataInput data = new DataInputStream(input);
+		ByteBufInputStream input = new ByteBufInputStream(payload);
+		DataInput data = input;
 
 		NetworkEvent event = type.createPacket();
 		event.readFromStream(data);
@@ -100,31 +153,21 @@ public class NetworkEventCodec extends MessageToMessageCodec<FMLProxyPacket, Net
 		if (handler != null) event.sender = OpenMods.proxy.getPlayerFromHandler(handler);
 
 		int bufferJunkSize = input.available();
-		if (bufferJunkSize > 0) {
-			// compressed stream neads extra read to realize it's finished
-			Preconditions.checkState(input.read() == -1, "%s junk bytes left in buffer, event", bufferJunkSize, event);
-		}
+		Preconditions.checkState(bufferJunkSize == 0, "%s junk bytes left in buffer, event", bufferJunkSize, event);
 		input.close();
 
 		out.add(event);
+
+		if (start != 0) TrafficStats.EVENTS.record(Direction.RECEIVED, event.getClass(), 1, size, start);
 	}
 
-	private static FMLProxyPacket createPacket(int id, byte[] payload) {
-		ByteBuf buf = Unpooled.buffer(payload.length + 5);
+	// FML sends backing array of payload, so every packet needs own, exactly sized one - this is the only copy made
+	private static FMLProxyPacket createPacket(int id, ByteBuf payload) {
+		final int size = ByteBufUtils.varIntByteCount(id) + payload.readableBytes();
+		ByteBuf buf = Unpooled.buffer(size, size);
 		ByteBufUtils.writeVarInt(buf, id, 5);
-		buf.writeBytes(payload);
-		FMLProxyPacket partialPacket = new FMLProxyPacket(buf.copy(), NetworkEventDispatcher.CHANNEL_NAME);
+		buf.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+		FMLProxyPacket partialPacket = new FMLProxyPacket(buf, NetworkEventDispatcher.CHANNEL_NAME);
 		return partialPacket;
 	}
-
-	private static byte[] toRawBytes(NetworkEvent event, boolean compress) throws IOException {
-		ByteArrayOutputStream payload = new ByteArrayOutputStream();
-
-		OutputStream stream = compress? new GZIPOutputStream(payload) : payload;
-		DataOutputStream output = new DataOutputStream(stream);
-		event.writeToStream(output);
-		stream.close();
-
-		return payload.toByteArray();
-	}
 }
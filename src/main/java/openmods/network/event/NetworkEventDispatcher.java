@@ -13,15 +13,22 @@ public class NetworkEventDispatcher extends Dispatcher {
 
 	private final Map<Side, FMLEmbeddedChannel> channels;
 
+	private final NetworkEventCodec codec;
+
 	public final Senders senders;
 
 	public NetworkEventDispatcher(NetworkEventRegistry registry) {
-		this.channels = NetworkRegistry.INSTANCE.newChannel(CHANNEL_NAME, new NetworkEventCodec(registry), new NetworkEventInboundHandler());
+		this.codec = new NetworkEventCodec(registry);
+		this.channels = NetworkRegistry.INSTANCE.newChannel(CHANNEL_NAME, codec, new NetworkEventInboundHandler(registry));
 		ExtendedOutboundHandler.install(this.channels);
 
 		this.senders = new Senders();
 	}
 
+	public NetworkEventCodec getCodec() {
+		return codec;
+	}
+
 	@Override
 	protected FMLEmbeddedChannel getChannel(Side side) {
 		return channels.get(side);
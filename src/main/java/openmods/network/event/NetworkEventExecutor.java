@@ -0,0 +1,186 @@
+package openmods.network.event;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.FMLOutboundHandler.OutboundTarget;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import io.netty.channel.Channel;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.common.MinecraftForge;
+import openmods.LibConfig;
+import openmods.Log;
+import openmods.utils.NetUtils;
+import openmods.world.DelayedActionTickHandler;
+
+/**
+ * Runs handlers of events with {@link EventExecution#WORKER_POOL} and {@link EventExecution#SERVER_THREAD} modes.
+ * When connection has more than {@link LibConfig#networkEventMaxPending} events waiting, reading from it is paused until half of them is handled.
+ * When worker queue is full, events are handled on network thread (which also slows down reading).
+ */
+public class NetworkEventExecutor {
+
+	public static final NetworkEventExecutor INSTANCE = new NetworkEventExecutor();
+
+	private NetworkEventExecutor() {}
+
+	private ThreadPoolExecutor workers;
+
+	private final ConcurrentMap<NetworkDispatcher, AtomicInteger> pendingEvents = new MapMaker().weakKeys().makeMap();
+
+	private final AtomicInteger pendingServerThreadEvents = new AtomicInteger();
+
+	private final AtomicLong handledEvents = new AtomicLong();
+
+	private final AtomicLong rejectedEvents = new AtomicLong();
+
+	private final AtomicLong pausedReads = new AtomicLong();
+
+	private synchronized ThreadPoolExecutor getWorkers() {
+		if (workers == null) {
+			final int threads = Math.max(1, LibConfig.networkEventWorkers);
+			workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, LibConfig.networkEventQueueSize)),
+					new ThreadFactoryBuilder().setDaemon(true).setNameFormat("OpenMods network event worker %d").build(),
+					new RejectedExecutionHandler() {
+						@Override
+						public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+							rejectedEvents.incrementAndGet();
+							task.run();
+						}
+					});
+			workers.allowCoreThreadTimeOut(true);
+		}
+
+		return workers;
+	}
+
+	public int getWorkerQueueSize() {
+		final ThreadPoolExecutor workers = this.workers;
+		return workers != null? workers.getQueue().size() : 0;
+	}
+
+	public int getActiveWorkers() {
+		final ThreadPoolExecutor workers = this.workers;
+		return workers != null? workers.getActiveCount() : 0;
+	}
+
+	public int getPendingServerThreadEvents() {
+		return pendingServerThreadEvents.get();
+	}
+
+	/**
+	 * @return highest number of events waiting for single connection
+	 */
+	public int getMaxConnectionBacklog() {
+		int result = 0;
+		for (AtomicInteger pending : pendingEvents.values())
+			result = Math.max(result, pending.get());
+		return result;
+	}
+
+	public long getHandledEvents() {
+		return handledEvents.get();
+	}
+
+	/**
+	 * @return number of events handled on network thread, since worker queue was full
+	 */
+	public long getRejectedEvents() {
+		return rejectedEvents.get();
+	}
+
+	/**
+	 * @return how many times reading from connection was paused due to too many pending events
+	 */
+	public long getPausedReads() {
+		return pausedReads.get();
+	}
+
+	private static void post(NetworkEvent event) {
+		MinecraftForge.EVENT_BUS.post(event);
+		event.dispatcher = null;
+	}
+
+	private static void sendReplies(Channel eventChannel, NetworkDispatcher dispatcher, List<NetworkEvent> replies) {
+		for (NetworkEvent reply : replies) {
+			// event channel is shared by all connections, so REPLY may go to whoever sent last packet - target must be explicit
+			if (dispatcher != null) {
+				eventChannel.attr(FMLOutboundHandler.FML_MESSAGETARGET).set(OutboundTarget.DISPATCHER);
+				eventChannel.attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).set(dispatcher);
+			} else {
+				eventChannel.attr(FMLOutboundHandler.FML_MESSAGETARGET).set(OutboundTarget.REPLY);
+			}
+			eventChannel.writeAndFlush(reply).addListener(NetUtils.LOGGING_LISTENER);
+		}
+	}
+
+	private AtomicInteger getPendingCounter(NetworkDispatcher dispatcher) {
+		AtomicInteger result = pendingEvents.get(dispatcher);
+		if (result == null) {
+			final AtomicInteger newCounter = new AtomicInteger();
+			result = pendingEvents.putIfAbsent(dispatcher, newCounter);
+			if (result == null) result = newCounter;
+		}
+		return result;
+	}
+
+	public void execute(EventExecution execution, final NetworkEvent event, final Channel eventChannel) {
+		final NetworkDispatcher dispatcher = event.dispatcher;
+		final EntityPlayerMP player = (event.sender instanceof EntityPlayerMP)? (EntityPlayerMP)event.sender : null;
+
+		if (execution == EventExecution.NETWORK_THREAD || dispatcher == null || (execution == EventExecution.SERVER_THREAD && player == null)) {
+			post(event);
+			sendReplies(eventChannel, dispatcher, event.replies);
+			handledEvents.incrementAndGet();
+			return;
+		}
+
+		final Channel connection = dispatcher.manager.channel();
+		final AtomicInteger pending = getPendingCounter(dispatcher);
+		final int maxPending = Math.max(1, LibConfig.networkEventMaxPending);
+
+		if (pending.incrementAndGet() >= maxPending && connection.config().isAutoRead()) {
+			connection.config().setAutoRead(false);
+			pausedReads.incrementAndGet();
+		}
+
+		final boolean onServerThread = execution == EventExecution.SERVER_THREAD;
+		if (onServerThread) pendingServerThreadEvents.incrementAndGet();
+
+		final Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					post(event);
+					if (!event.replies.isEmpty()) {
+						// replies are written from connection thread, same as for events handled there
+						connection.eventLoop().execute(new Runnable() {
+							@Override
+							public void run() {
+								sendReplies(eventChannel, dispatcher, event.replies);
+							}
+						});
+					}
+				} catch (Throwable t) {
+					Log.warn(t, "Failed to handle event %s from %s", event.getClass(), player);
+				} finally {
+					handledEvents.incrementAndGet();
+					if (onServerThread) pendingServerThreadEvents.decrementAndGet();
+					if (pending.decrementAndGet() <= maxPending / 2 && !connection.config().isAutoRead()) connection.config().setAutoRead(true);
+				}
+			}
+		};
+
+		if (onServerThread) DelayedActionTickHandler.INSTANCE.addTickCallback(player.worldObj, task);
+		else getWorkers().execute(task);
+	}
+}
@@ -1,24 +1,23 @@
 package openmods.network.event;
 
-import cpw.mods.fml.common.network.FMLOutboundHandler;
-import cpw.mods.fml.common.network.FMLOutboundHandler.OutboundTarget;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import net.minecraftforge.common.MinecraftForge;
 
 @Sharable
 public class NetworkEventInboundHandler extends SimpleChannelInboundHandler<NetworkEvent> {
 
+	private final NetworkEventRegistry registry;
+
+	public NetworkEventInboundHandler(NetworkEventRegistry registry) {
+		this.registry = registry;
+	}
+
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, NetworkEvent msg) throws Exception {
-		MinecraftForge.EVENT_BUS.post(msg);
-		msg.dispatcher = null;
-
-		for (NetworkEvent reply : msg.replies) {
-			ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGET).set(OutboundTarget.REPLY);
-			ctx.writeAndFlush(reply);
-		}
+		final INetworkEventType type = registry.getTypeForId(registry.getIdForClass(msg.getClass()));
+		final EventExecution execution = (type instanceof IExtendedNetworkEventType)? ((IExtendedNetworkEventType)type).getExecution() : EventExecution.NETWORK_THREAD;
+		NetworkEventExecutor.INSTANCE.execute(execution, msg, ctx.channel());
 	}
 
 }
@@ -13,4 +13,6 @@ public @interface NetworkEventMeta {
 	public boolean chunked() default false;
 
 	public EventDirection direction() default EventDirection.ANY;
+
+	public EventExecution execution() default EventExecution.NETWORK_THREAD;
 }
@@ -6,6 +6,8 @@ import com.google.common.collect.Maps;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import java.util.Map;
 import openmods.datastore.IDataVisitor;
+import openmods.network.compression.DeflateCompressionStrategy;
+import openmods.network.compression.ICompressionStrategy;
 
 public class NetworkEventRegistry implements IDataVisitor<String, Integer> {
 
@@ -27,6 +29,11 @@ public class NetworkEventRegistry implements IDataVisitor<String, Integer> {
 		return result;
 	}
 
+	static ICompressionStrategy getCompression(INetworkEventType type) {
+		if (type instanceof IExtendedNetworkEventType) return ((IExtendedNetworkEventType)type).getCompression();
+		return type.isCompressed()? DeflateCompressionStrategy.DEFAULT : null;
+	}
+
 	@Override
 	public void begin(int size) {
 		idToType.clear();
@@ -46,24 +53,32 @@ public class NetworkEventRegistry implements IDataVisitor<String, Integer> {
 			}
 		}
 
-		final boolean isCompressed;
+		final ICompressionStrategy compression;
 		final boolean isChunked;
 		final EventDirection direction;
+		final EventExecution execution;
 
 		if (meta != null) {
 			isChunked = meta.chunked();
-			isCompressed = meta.compressed();
+			compression = meta.compressed()? DeflateCompressionStrategy.DEFAULT : null;
 			direction = meta.direction();
+			execution = meta.execution();
 		} else {
 			isChunked = false;
-			isCompressed = false;
+			compression = null;
 			direction = EventDirection.ANY;
+			execution = EventExecution.NETWORK_THREAD;
 		}
 
-		return new INetworkEventType() {
+		return new IExtendedNetworkEventType() {
+			@Override
+			public ICompressionStrategy getCompression() {
+				return compression;
+			}
+
 			@Override
 			public boolean isCompressed() {
-				return isCompressed;
+				return compression != null;
 			}
 
 			@Override
@@ -76,6 +91,11 @@ public class NetworkEventRegistry implements IDataVisitor<String, Integer> {
 				return direction;
 			}
 
+			@Override
+			public EventExecution getExecution() {
+				return execution;
+			}
+
 			@Override
 			public NetworkEvent createPacket() {
 				try {
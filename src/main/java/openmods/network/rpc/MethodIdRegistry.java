@@ -1,41 +1,90 @@
 package openmods.network.rpc;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
 import openmods.datastore.IDataVisitor;
 import org.apache.commons.lang3.ClassUtils;
 import org.objectweb.asm.Type;
 
+/**
+ * Ids are collected between {@link #begin(int)} and {@link #end()} and then published at once, so lookups (done from network threads) need no locking.
+ * Codecs are resolved during registration and stored in arrays indexed by method id.
+ */
 public class MethodIdRegistry implements IDataVisitor<String, Integer> {
-	private final Set<Class<?>> registeredInterfaces = Sets.newHashSet();
 
-	private final BiMap<Method, Integer> methodIds = HashBiMap.create();
+	static class Ids {
+		public final Set<Class<?>> registeredInterfaces;
+
+		public final Map<Method, Integer> methodIds;
+
+		public final Method[] methods;
+
+		public final MethodParamsCodec[] codecs;
+
+		public Ids(Set<Class<?>> registeredInterfaces, Map<Method, Integer> methodIds, Method[] methods, MethodParamsCodec[] codecs) {
+			this.registeredInterfaces = registeredInterfaces;
+			this.methodIds = methodIds;
+			this.methods = methods;
+			this.codecs = codecs;
+		}
+	}
+
+	private volatile Ids ids = new Ids(ImmutableSet.<Class<?>> of(), ImmutableMap.<Method, Integer> of(), new Method[0], new MethodParamsCodec[0]);
+
+	private Set<Class<?>> pendingInterfaces;
+
+	private Map<Method, Integer> pendingMethodIds;
+
+	private Method[] pendingMethods;
+
+	private MethodParamsCodec[] pendingCodecs;
 
 	public boolean isClassRegistered(Class<?> cls) {
-		return registeredInterfaces.contains(cls);
+		return ids.registeredInterfaces.contains(cls);
+	}
+
+	// identity of snapshot changes every time new ids are published
+	Ids getIds() {
+		return ids;
 	}
 
 	public int methodToId(Method method) {
-		Integer id = methodIds.get(method);
+		Integer id = ids.methodIds.get(method);
 		Preconditions.checkNotNull(id, "Method %s is ignored or not registered", method);
 		return id;
 	}
 
+	public Method findMethod(int id) {
+		final Method[] methods = ids.methods;
+		return (id >= 0 && id < methods.length)? methods[id] : null;
+	}
+
 	public Method idToMethod(int id) {
-		Method method = methodIds.inverse().get(id);
+		Method method = findMethod(id);
 		Preconditions.checkNotNull(method, "Unregistered method id %s", id);
 		return method;
 	}
 
+	public MethodParamsCodec idToCodec(int id) {
+		final MethodParamsCodec[] codecs = ids.codecs;
+		MethodParamsCodec codec = (id >= 0 && id < codecs.length)? codecs[id] : null;
+		Preconditions.checkNotNull(codec, "Unregistered method id %s", id);
+		return codec;
+	}
+
 	@Override
 	public void begin(int size) {
-		registeredInterfaces.clear();
-		methodIds.clear();
+		pendingInterfaces = Sets.newHashSet();
+		pendingMethodIds = Maps.newHashMap();
+		pendingMethods = new Method[size];
+		pendingCodecs = new MethodParamsCodec[size];
 	}
 
 	private static Method identifyMethod(String methodDesc) throws Exception {
@@ -74,15 +123,31 @@ public class MethodIdRegistry implements IDataVisitor<String, Integer> {
 			throw new IllegalArgumentException(String.format("Malformed entry '%s' in method id %d", methodDesc, id), e);
 		}
 
-		MethodParamsCodec.create(method).validate();
+		final MethodParamsCodec codec = MethodParamsCodec.create(method);
+		codec.validate();
+
+		if (id >= pendingMethods.length) {
+			final int newLength = Math.max(id + 1, pendingMethods.length * 2);
+			pendingMethods = Arrays.copyOf(pendingMethods, newLength);
+			pendingCodecs = Arrays.copyOf(pendingCodecs, newLength);
+		}
 
-		methodIds.put(method, id);
+		pendingMethods[id] = method;
+		pendingCodecs[id] = codec;
+		pendingMethodIds.put(method, id);
 
 		final Class<?> declaringClass = method.getDeclaringClass();
-		registeredInterfaces.add(declaringClass);
+		pendingInterfaces.add(declaringClass);
 	}
 
 	@Override
-	public void end() {}
+	public void end() {
+		ids = new Ids(ImmutableSet.copyOf(pendingInterfaces), ImmutableMap.copyOf(pendingMethodIds), pendingMethods, pendingCodecs);
+
+		pendingInterfaces = null;
+		pendingMethodIds = null;
+		pendingMethods = null;
+		pendingCodecs = null;
+	}
 
 }
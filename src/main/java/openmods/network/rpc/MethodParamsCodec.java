@@ -10,7 +10,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import openmods.serializable.SerializerRegistry;
 import openmods.utils.AnnotationMap;
-import openmods.utils.CachedFactory;
+import openmods.utils.ConcurrentCachedFactory;
 import openmods.utils.io.IStreamReader;
 import openmods.utils.io.IStreamSerializer;
 import openmods.utils.io.IStreamWriter;
@@ -63,6 +63,14 @@ public class MethodParamsCodec {
 			this.params[i] = new MethodParam(types[i], annotations[i]);
 	}
 
+	IStreamWriter<Object> getParamWriter(int index) {
+		return params[index].serializer;
+	}
+
+	boolean isParamNullable(int index) {
+		return params[index].isNullable;
+	}
+
 	public void writeArgs(DataOutput output, Object... args) {
 		if (args == null) {
 			Preconditions.checkArgument(0 == params.length,
@@ -131,14 +139,14 @@ public class MethodParamsCodec {
 		}
 	}
 
-	private static final CachedFactory<Method, MethodParamsCodec> INSTANCES = new CachedFactory<Method, MethodParamsCodec>() {
+	private static final ConcurrentCachedFactory<Method, MethodParamsCodec> INSTANCES = new ConcurrentCachedFactory<Method, MethodParamsCodec>() {
 		@Override
 		protected MethodParamsCodec create(Method key) {
 			return new MethodParamsCodec(key);
 		}
 	};
 
-	public static synchronized MethodParamsCodec create(Method method) {
+	public static MethodParamsCodec create(Method method) {
 		return INSTANCES.getOrCreate(method);
 	}
 }
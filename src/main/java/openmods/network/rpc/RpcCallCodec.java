@@ -15,6 +15,8 @@ import java.util.List;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.network.INetHandler;
 import openmods.OpenMods;
+import openmods.network.TrafficStats;
+import openmods.network.TrafficStats.Direction;
 import openmods.utils.ByteUtils;
 
 @Sharable
@@ -31,6 +33,7 @@ public class RpcCallCodec extends MessageToMessageCodec<FMLProxyPacket, RpcCall>
 
 	@Override
 	protected void encode(ChannelHandlerContext ctx, RpcCall call, List<Object> out) throws Exception {
+		final long start = TrafficStats.start();
 		ByteBuf buf = Unpooled.buffer();
 
 		DataOutput output = new ByteBufOutputStream(buf);
@@ -42,25 +45,27 @@ public class RpcCallCodec extends MessageToMessageCodec<FMLProxyPacket, RpcCall>
 			targetWrapper.writeToStream(output);
 		}
 
-		{
-			final Method method = call.method;
-			int methodId = methodRegistry.methodToId(method);
-			ByteUtils.writeVLI(output, methodId);
-			MethodParamsCodec paramsCodec = MethodParamsCodec.create(method);
-			paramsCodec.writeArgs(output, call.args);
-		}
+		final int methodId = methodRegistry.methodToId(call.method);
+		ByteUtils.writeVLI(output, methodId);
+		MethodParamsCodec paramsCodec = methodRegistry.idToCodec(methodId);
+		paramsCodec.writeArgs(output, call.args);
 
 		FMLProxyPacket packet = new FMLProxyPacket(buf.copy(), RpcCallDispatcher.CHANNEL_NAME);
 		out.add(packet);
+
+		if (start != 0) TrafficStats.RPC.record(Direction.SENT, methodId, 1, buf.readableBytes(), start);
 	}
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, FMLProxyPacket msg, List<Object> out) throws Exception {
+		final long start = TrafficStats.start();
+		final int size = msg.payload().readableBytes();
 		ByteBufInputStream input = new ByteBufInputStream(msg.payload());
 
 		final IRpcTarget target;
 		final Method method;
 		final Object[] args;
+		final int methodId;
 
 		{
 			int targetId = ByteUtils.readVLI(input);
@@ -70,9 +75,9 @@ public class RpcCallCodec extends MessageToMessageCodec<FMLProxyPacket, RpcCall>
 		}
 
 		{
-			int methodId = ByteUtils.readVLI(input);
+			methodId = ByteUtils.readVLI(input);
 			method = methodRegistry.idToMethod(methodId);
-			MethodParamsCodec paramsCodec = MethodParamsCodec.create(method);
+			MethodParamsCodec paramsCodec = methodRegistry.idToCodec(methodId);
 			args = paramsCodec.readArgs(input);
 		}
 
@@ -80,6 +85,8 @@ public class RpcCallCodec extends MessageToMessageCodec<FMLProxyPacket, RpcCall>
 		Preconditions.checkState(bufferJunkSize == 0, "%s junk bytes left in buffer, method = %s", bufferJunkSize, method);
 
 		out.add(new RpcCall(target, method, args));
+
+		if (start != 0) TrafficStats.RPC.record(Direction.RECEIVED, methodId, 1, size, start);
 	}
 
 	protected EntityPlayer getPlayer(FMLProxyPacket msg) {
@@ -6,6 +6,7 @@ import cpw.mods.fml.common.LoaderState;
 import cpw.mods.fml.common.network.FMLEmbeddedChannel;
 import cpw.mods.fml.common.network.NetworkRegistry;
 import cpw.mods.fml.relauncher.Side;
+import java.lang.reflect.Method;
 import java.util.Map;
 import openmods.network.Dispatcher;
 import openmods.network.ExtendedOutboundHandler;
@@ -25,7 +26,7 @@ public class RpcCallDispatcher extends Dispatcher {
 
 	private RpcSetup setup = new RpcSetup();
 
-	private RpcProxyFactory proxyFactory = new RpcProxyFactory(methodRegistry);
+	private RpcProxyFactory proxyFactory = new RpcProxyFactory(methodRegistry, targetRegistry);
 
 	private final Map<Side, FMLEmbeddedChannel> channels;
 
@@ -51,6 +52,11 @@ public class RpcCallDispatcher extends Dispatcher {
 		setup = null;
 	}
 
+	public String getMethodName(int methodId) {
+		final Method method = methodRegistry.findMethod(methodId);
+		return method != null? method.getDeclaringClass().getName() + "." + method.getName() : "#" + methodId;
+	}
+
 	public <T> T createProxy(IRpcTarget wrapper, IPacketSender sender, Class<? extends T> mainIntf, Class<?>... extraIntf) {
 		return proxyFactory.createProxy(getClass().getClassLoader(), sender, wrapper, mainIntf, extraIntf);
 	}
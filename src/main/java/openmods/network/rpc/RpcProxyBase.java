@@ -0,0 +1,146 @@
+package openmods.network.rpc;
+
+import com.google.common.base.Preconditions;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import openmods.network.TrafficStats;
+import openmods.network.TrafficStats.Direction;
+import openmods.network.senders.IPacketSender;
+import openmods.utils.ByteUtils;
+import openmods.utils.SneakyThrower;
+import openmods.utils.io.IStreamWriter;
+
+/**
+ * Base class for proxies generated by {@link RpcProxyFactory}.
+ * Generated methods write arguments directly to stream returned by {@link #beginCall(int)}, using same format as {@link RpcCallCodec}.
+ */
+public abstract class RpcProxyBase {
+
+	private final IRpcTarget target;
+
+	private final IPacketSender sender;
+
+	private final TargetWrapperRegistry targetRegistry;
+
+	private final MethodIdRegistry methodRegistry;
+
+	// indexed by position of method in generated class
+	private final Method[] methods;
+
+	// indexed by position of non-primitive argument in generated class, primitives are written directly
+	protected final IStreamWriter<Object>[] writers;
+
+	// ids are resolved once per published registry snapshot (i.e. again after reconnect)
+	// caches are immutable, so they can be published through plain fields
+	private static class MethodIds {
+		public final MethodIdRegistry.Ids source;
+
+		public final int[] ids;
+
+		public MethodIds(MethodIdRegistry.Ids source, Method[] methods) {
+			this.source = source;
+			this.ids = new int[methods.length];
+			for (int i = 0; i < methods.length; i++) {
+				final Integer id = source.methodIds.get(methods[i]);
+				ids[i] = id != null? id : -1;
+			}
+		}
+	}
+
+	private static class TargetId {
+		public final TargetWrapperRegistry.Ids source;
+
+		public final int id;
+
+		public TargetId(TargetWrapperRegistry.Ids source, Class<? extends IRpcTarget> cls) {
+			this.source = source;
+			final Integer id = source.wrapperIds.get(cls);
+			this.id = id != null? id : -1;
+		}
+	}
+
+	private MethodIds methodIds;
+
+	private TargetId targetId;
+
+	protected RpcProxyBase(IRpcTarget target, IPacketSender sender, TargetWrapperRegistry targetRegistry, MethodIdRegistry methodRegistry, Method[] methods, IStreamWriter<Object>[] writers) {
+		this.target = target;
+		this.sender = sender;
+		this.targetRegistry = targetRegistry;
+		this.methodRegistry = methodRegistry;
+		this.methods = methods;
+		this.writers = writers;
+	}
+
+	protected int methodId(int slot) {
+		final MethodIdRegistry.Ids current = methodRegistry.getIds();
+		MethodIds methodIds = this.methodIds;
+		if (methodIds == null || methodIds.source != current) {
+			methodIds = new MethodIds(current, methods);
+			this.methodIds = methodIds;
+		}
+
+		final int id = methodIds.ids[slot];
+		Preconditions.checkState(id >= 0, "Method %s is not registered", methods[slot]);
+		return id;
+	}
+
+	private int targetId() {
+		final TargetWrapperRegistry.Ids current = targetRegistry.getIds();
+		TargetId targetId = this.targetId;
+		if (targetId == null || targetId.source != current) {
+			targetId = new TargetId(current, target.getClass());
+			this.targetId = targetId;
+		}
+
+		Preconditions.checkState(targetId.id >= 0, "Wrapper class %s is not registered", target.getClass());
+		return targetId.id;
+	}
+
+	protected ByteBufOutputStream beginCall(int methodId) {
+		final ByteBufOutputStream output = new ByteBufOutputStream(Unpooled.buffer());
+		ByteUtils.writeVLI(output, targetId());
+		try {
+			target.writeToStream(output);
+		} catch (IOException e) {
+			throw SneakyThrower.sneakyThrow(e);
+		}
+		ByteUtils.writeVLI(output, methodId);
+		return output;
+	}
+
+	/**
+	 * @param startTime
+	 *            value of {@link TrafficStats#start()} from beginning of call
+	 */
+	protected void endCall(ByteBufOutputStream output, int methodId, long startTime) {
+		final ByteBuf buffer = output.buffer();
+		// FML sends backing array, so it must be exactly sized
+		sender.sendMessage(new FMLProxyPacket(buffer.copy(), RpcCallDispatcher.CHANNEL_NAME));
+		if (startTime != 0) TrafficStats.RPC.record(Direction.SENT, methodId, 1, buffer.readableBytes(), startTime);
+	}
+
+	protected static void writeArg(DataOutput output, IStreamWriter<Object> writer, Object value, boolean isNullable) throws IOException {
+		if (isNullable) {
+			if (value == null) {
+				output.writeBoolean(false);
+				return;
+			}
+			output.writeBoolean(true);
+		} else {
+			Preconditions.checkNotNull(value, "Only @NullableArg arguments can be null");
+		}
+
+		writer.writeToStream(value, output);
+	}
+
+	@Override
+	public String toString() {
+		return "RPC proxy for " + target;
+	}
+}
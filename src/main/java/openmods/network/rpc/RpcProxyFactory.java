@@ -1,28 +1,116 @@
 package openmods.network.rpc;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBufOutputStream;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import openmods.network.TrafficStats;
 import openmods.network.senders.IPacketSender;
+import openmods.utils.SneakyThrower;
+import openmods.utils.io.IStreamWriter;
+import openmods.utils.io.PrimitiveStreamMethods;
 import org.apache.commons.lang3.ArrayUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
-public class RpcProxyFactory {
+/**
+ * Creates proxies that send RPC calls. For public interfaces class is generated (similar to {@link openmods.reflection.ClonerFactory}) with primitive argument writes inlined.
+ * Method ids are not compiled in, since they may change after proxy is created (i.e. when received from server) - generated methods look them up in {@link MethodIdRegistry} on every call.
+ * Non-public interfaces still use {@link Proxy}.
+ */
+public class RpcProxyFactory implements Opcodes {
+
+	private static class ProxyClassLoader extends ClassLoader {
+		private ProxyClassLoader() {
+			super(ProxyClassLoader.class.getClassLoader());
+		}
+
+		public Class<?> define(byte[] data) {
+			return defineClass(null, data, 0, data.length);
+		}
+	}
+
+	private static class ProxyClass {
+		public final Constructor<?> constructor;
+
+		public final Method[] methods;
+
+		public final IStreamWriter<Object>[] writers;
+
+		public ProxyClass(Constructor<?> constructor, Method[] methods, IStreamWriter<Object>[] writers) {
+			this.constructor = constructor;
+			this.methods = methods;
+			this.writers = writers;
+		}
+	}
+
+	private static final String BASE_CLS = Type.getInternalName(RpcProxyBase.class);
+
+	private static final String WRITERS_DESC = Type.getDescriptor(IStreamWriter[].class);
+
+	private static final String CTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(IRpcTarget.class), Type.getType(IPacketSender.class), Type.getType(TargetWrapperRegistry.class), Type.getType(MethodIdRegistry.class), Type.getType(Method[].class), Type.getType(IStreamWriter[].class));
+
+	private static final String METHOD_ID_DESC = Type.getMethodDescriptor(Type.INT_TYPE, Type.INT_TYPE);
+
+	private static final String BEGIN_CALL_DESC = Type.getMethodDescriptor(Type.getType(ByteBufOutputStream.class), Type.INT_TYPE);
+
+	private static final String END_CALL_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(ByteBufOutputStream.class), Type.INT_TYPE, Type.LONG_TYPE);
+
+	private static final String STATS_CLS = Type.getInternalName(TrafficStats.class);
+
+	private static final String STATS_START_DESC = Type.getMethodDescriptor(Type.LONG_TYPE);
+
+	private static final String WRITE_ARG_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(java.io.DataOutput.class), Type.getType(IStreamWriter.class), Type.getType(Object.class), Type.BOOLEAN_TYPE);
+
+	private static final AtomicInteger proxyCounter = new AtomicInteger();
 
 	private final MethodIdRegistry registry;
 
-	RpcProxyFactory(MethodIdRegistry registry) {
+	private final TargetWrapperRegistry targetRegistry;
+
+	private final ProxyClassLoader proxyClassLoader = new ProxyClassLoader();
+
+	private final ConcurrentMap<List<Class<?>>, ProxyClass> proxyClasses = Maps.newConcurrentMap();
+
+	RpcProxyFactory(MethodIdRegistry registry, TargetWrapperRegistry targetRegistry) {
 		this.registry = registry;
+		this.targetRegistry = targetRegistry;
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T> T createProxy(ClassLoader loader, final IPacketSender sender, final IRpcTarget wrapper, Class<? extends T> mainIntf, Class<?>... extraIntf) {
 		Class<?> allInterfaces[] = ArrayUtils.add(extraIntf, mainIntf);
 
-		for (Class<?> intf : allInterfaces)
+		boolean canGenerate = true;
+		for (Class<?> intf : allInterfaces) {
 			Preconditions.checkState(registry.isClassRegistered(intf), "Class %s is not registered as RPC interface", intf);
+			canGenerate &= isAccessible(intf);
+		}
 
-		Object proxy = Proxy.newProxyInstance(loader, allInterfaces, new InvocationHandler() {
+		if (!canGenerate) return (T)createReflectionProxy(loader, sender, wrapper, allInterfaces);
+
+		final ProxyClass proxyClass = getProxyClass(ImmutableList.copyOf(allInterfaces));
+		try {
+			return (T)proxyClass.constructor.newInstance(wrapper, sender, targetRegistry, registry, proxyClass.methods, proxyClass.writers);
+		} catch (Throwable t) {
+			throw SneakyThrower.sneakyThrow(t);
+		}
+	}
+
+	private static Object createReflectionProxy(ClassLoader loader, final IPacketSender sender, final IRpcTarget wrapper, Class<?>[] allInterfaces) {
+		return Proxy.newProxyInstance(loader, allInterfaces, new InvocationHandler() {
 			@Override
 			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 				RpcCall call = new RpcCall(wrapper, method, args);
@@ -30,7 +118,155 @@ public class RpcProxyFactory {
 				return null;
 			}
 		});
+	}
+
+	private static boolean isAccessible(Class<?> cls) {
+		while (cls != null) {
+			if (!Modifier.isPublic(cls.getModifiers())) return false;
+			cls = cls.getEnclosingClass();
+		}
+
+		return true;
+	}
+
+	private ProxyClass getProxyClass(List<Class<?>> interfaces) {
+		ProxyClass result = proxyClasses.get(interfaces);
+		if (result == null) {
+			result = createProxyClass(interfaces);
+			// on race, class defined by loser is dropped and never used again
+			final ProxyClass prev = proxyClasses.putIfAbsent(interfaces, result);
+			if (prev != null) result = prev;
+		}
+
+		return result;
+	}
+
+	private ProxyClass createProxyClass(List<Class<?>> interfaces) {
+		final List<Method> methods = Lists.newArrayList();
+		final List<IStreamWriter<Object>> writers = Lists.newArrayList();
+		final byte[] classData = createProxyClassData(interfaces, methods, writers);
+
+		try {
+			final Class<?> cls = proxyClassLoader.define(classData);
+			final Constructor<?> ctor = cls.getConstructor(IRpcTarget.class, IPacketSender.class, TargetWrapperRegistry.class, MethodIdRegistry.class, Method[].class, IStreamWriter[].class);
+			@SuppressWarnings("unchecked")
+			final IStreamWriter<Object>[] writersArray = writers.toArray(new IStreamWriter[writers.size()]);
+			return new ProxyClass(ctor, methods.toArray(new Method[methods.size()]), writersArray);
+		} catch (Throwable t) {
+			throw SneakyThrower.sneakyThrow(t);
+		}
+	}
+
+	private static byte[] createProxyClassData(List<Class<?>> interfaces, List<Method> slots, List<IStreamWriter<Object>> writers) {
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+
+		final String name = Type.getInternalName(interfaces.get(interfaces.size() - 1)) + "$$rpcProxy$" + proxyCounter.incrementAndGet();
+
+		final String[] interfaceNames = new String[interfaces.size()];
+		for (int i = 0; i < interfaceNames.length; i++)
+			interfaceNames[i] = Type.getInternalName(interfaces.get(i));
+
+		writer.visit(V1_6, ACC_PUBLIC | ACC_SUPER | ACC_SYNTHETIC, name, null, BASE_CLS, interfaceNames);
+		writer.visitSource(".dynamic", null);
+
+		{
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "<init>", CTOR_DESC, null, null);
+			mv.visitCode();
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitVarInsn(ALOAD, 4);
+			mv.visitVarInsn(ALOAD, 5);
+			mv.visitVarInsn(ALOAD, 6);
+			mv.visitMethodInsn(INVOKESPECIAL, BASE_CLS, "<init>", CTOR_DESC, false);
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		// same rules as in Proxy - on duplicates first interface wins
+		final Map<String, Method> methods = Maps.newLinkedHashMap();
+		for (Class<?> intf : interfaces)
+			for (Method m : intf.getMethods()) {
+				final String key = m.getName() + Type.getMethodDescriptor(m);
+				if (!methods.containsKey(key)) methods.put(key, m);
+			}
+
+		for (Method m : methods.values())
+			addMethod(writer, name, m, slots, writers);
+
+		writer.visitEnd();
+
+		return writer.toByteArray();
+	}
+
+	private static void addMethod(ClassWriter writer, String clsName, Method method, List<Method> slots, List<IStreamWriter<Object>> writers) {
+		final MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, method.getName(), Type.getMethodDescriptor(method), null, null);
+		mv.visitCode();
+
+		if (method.isAnnotationPresent(RpcIgnore.class)) {
+			mv.visitTypeInsn(NEW, "java/lang/IllegalStateException");
+			mv.visitInsn(DUP);
+			mv.visitLdcInsn("Method " + method + " is ignored");
+			mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "(Ljava/lang/String;)V", false);
+			mv.visitInsn(ATHROW);
+		} else {
+			final Class<?>[] paramTypes = method.getParameterTypes();
+			// codec depends only on method signature, not on id
+			final MethodParamsCodec codec = MethodParamsCodec.create(method);
+
+			int outputVar = 1;
+			for (Class<?> paramType : paramTypes)
+				outputVar += Type.getType(paramType).getSize();
+
+			final int startVar = outputVar + 1;
+			final int idVar = startVar + 2;
+			mv.visitMethodInsn(INVOKESTATIC, STATS_CLS, "start", STATS_START_DESC, false);
+			mv.visitVarInsn(LSTORE, startVar);
+
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitLdcInsn(slots.size());
+			mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLS, "methodId", METHOD_ID_DESC, false);
+			mv.visitVarInsn(ISTORE, idVar);
+			slots.add(method);
+
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ILOAD, idVar);
+			mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLS, "beginCall", BEGIN_CALL_DESC, false);
+			mv.visitVarInsn(ASTORE, outputVar);
+
+			int paramVar = 1;
+			for (int i = 0; i < paramTypes.length; i++) {
+				final Type paramType = Type.getType(paramTypes[i]);
+				mv.visitVarInsn(ALOAD, outputVar);
+
+				if (paramTypes[i].isPrimitive()) {
+					mv.visitVarInsn(paramType.getOpcode(ILOAD), paramVar);
+					mv.visitMethodInsn(INVOKEINTERFACE, PrimitiveStreamMethods.DATA_OUTPUT_CLS, PrimitiveStreamMethods.getWriteMethod(paramType), PrimitiveStreamMethods.getWriteDesc(paramType), true);
+				} else {
+					mv.visitVarInsn(ALOAD, 0);
+					mv.visitFieldInsn(GETFIELD, BASE_CLS, "writers", WRITERS_DESC);
+					mv.visitLdcInsn(writers.size());
+					mv.visitInsn(AALOAD);
+					mv.visitVarInsn(ALOAD, paramVar);
+					mv.visitInsn(codec.isParamNullable(i)? ICONST_1 : ICONST_0);
+					mv.visitMethodInsn(INVOKESTATIC, BASE_CLS, "writeArg", WRITE_ARG_DESC, false);
+					writers.add(codec.getParamWriter(i));
+				}
+
+				paramVar += paramType.getSize();
+			}
+
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, outputVar);
+			mv.visitVarInsn(ILOAD, idVar);
+			mv.visitVarInsn(LLOAD, startVar);
+			mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLS, "endCall", END_CALL_DESC, false);
+			mv.visitInsn(RETURN);
+		}
 
-		return (T)proxy;
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
 	}
 }
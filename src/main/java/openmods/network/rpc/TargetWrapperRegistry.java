@@ -2,17 +2,44 @@ package openmods.network.rpc;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Map;
 import openmods.datastore.IDataVisitor;
 
+/**
+ * Like {@link MethodIdRegistry}, ids are published in {@link #end()} and wrapper constructors are stored in array indexed by id.
+ */
 public class TargetWrapperRegistry implements IDataVisitor<String, Integer> {
 
-	private BiMap<Class<? extends IRpcTarget>, Integer> wrapperCls = HashBiMap.create();
+	static class Ids {
+		public final Map<Class<? extends IRpcTarget>, Integer> wrapperIds;
+
+		public final Constructor<? extends IRpcTarget>[] constructors;
+
+		public Ids(Map<Class<? extends IRpcTarget>, Integer> wrapperIds, Constructor<? extends IRpcTarget>[] constructors) {
+			this.wrapperIds = wrapperIds;
+			this.constructors = constructors;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Constructor<? extends IRpcTarget>[] createConstructorsArray(int size) {
+		return new Constructor[size];
+	}
+
+	private volatile Ids ids = new Ids(ImmutableMap.<Class<? extends IRpcTarget>, Integer> of(), createConstructorsArray(0));
+
+	private Map<Class<? extends IRpcTarget>, Integer> pendingWrapperIds;
+
+	private Constructor<? extends IRpcTarget>[] pendingConstructors;
 
 	@Override
 	public void begin(int size) {
-		wrapperCls.clear();
+		pendingWrapperIds = Maps.newHashMap();
+		pendingConstructors = createConstructorsArray(size);
 	}
 
 	@Override
@@ -26,34 +53,49 @@ public class TargetWrapperRegistry implements IDataVisitor<String, Integer> {
 
 		Preconditions.checkArgument(IRpcTarget.class.isAssignableFrom(cls), "Class %s is not ITargetWrapper", cls);
 
+		@SuppressWarnings("unchecked")
+		final Class<? extends IRpcTarget> wrapperCls = (Class<? extends IRpcTarget>)cls;
+
+		final Constructor<? extends IRpcTarget> ctor;
 		try {
-			cls.getConstructor();
+			ctor = wrapperCls.getConstructor();
 		} catch (NoSuchMethodException e) {
 			throw new IllegalArgumentException(String.format("Class %s has no parameterless constructor", clsName), e);
 		} catch (Exception e) {
 			throw Throwables.propagate(e);
 		}
 
-		@SuppressWarnings("unchecked")
-		final Class<? extends IRpcTarget> wrapperCls = (Class<? extends IRpcTarget>)cls;
-		this.wrapperCls.put(wrapperCls, clsId);
+		if (clsId >= pendingConstructors.length) pendingConstructors = Arrays.copyOf(pendingConstructors, Math.max(clsId + 1, pendingConstructors.length * 2));
+
+		pendingConstructors[clsId] = ctor;
+		pendingWrapperIds.put(wrapperCls, clsId);
 	}
 
 	@Override
-	public void end() {}
+	public void end() {
+		ids = new Ids(ImmutableMap.copyOf(pendingWrapperIds), pendingConstructors);
+		pendingWrapperIds = null;
+		pendingConstructors = null;
+	}
+
+	// identity of snapshot changes every time new ids are published
+	Ids getIds() {
+		return ids;
+	}
 
 	public int getWrapperId(Class<? extends IRpcTarget> cls) {
-		Integer id = wrapperCls.get(cls);
+		Integer id = ids.wrapperIds.get(cls);
 		Preconditions.checkNotNull(id, "Wrapper class %s is not registered", cls);
 		return id;
 	}
 
 	public IRpcTarget createWrapperFromId(int id) {
-		Class<? extends IRpcTarget> cls = wrapperCls.inverse().get(id);
-		Preconditions.checkNotNull(cls, "Can't find class for id %s", id);
+		final Constructor<? extends IRpcTarget>[] constructors = ids.constructors;
+		Constructor<? extends IRpcTarget> ctor = (id >= 0 && id < constructors.length)? constructors[id] : null;
+		Preconditions.checkNotNull(ctor, "Can't find class for id %s", id);
 
 		try {
-			return cls.newInstance();
+			return ctor.newInstance();
 		} catch (Exception e) {
 			throw Throwables.propagate(e);
 		}
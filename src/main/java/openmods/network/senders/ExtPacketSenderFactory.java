@@ -8,9 +8,11 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import openmods.network.DimCoord;
 import openmods.network.ExtendedOutboundHandler;
 import openmods.network.IPacketTargetSelector;
+import openmods.network.PlayerGroup;
 import openmods.network.targets.SelectChunkWatchers;
 import openmods.network.targets.SelectEntityWatchers;
 import openmods.network.targets.SelectMultiplePlayers;
+import openmods.network.targets.SelectPlayerGroup;
 
 public class ExtPacketSenderFactory {
 
@@ -30,6 +32,10 @@ public class ExtPacketSenderFactory {
 		return createSender(channel, SelectMultiplePlayers.INSTANCE);
 	}
 
+	public static ITargetedPacketSender<PlayerGroup> createPlayerGroupSender(Channel channel) {
+		return createSender(channel, SelectPlayerGroup.INSTANCE);
+	}
+
 	private static class ExtTargetedPacketSender<T> extends TargetedPacketSenderBase<T> {
 
 		public final IPacketTargetSelector<T> selector;
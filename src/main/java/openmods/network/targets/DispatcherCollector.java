@@ -0,0 +1,18 @@
+package openmods.network.targets;
+
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import java.util.Collection;
+import openmods.network.IDispatcherVisitor;
+
+class DispatcherCollector implements IDispatcherVisitor {
+	private final Collection<NetworkDispatcher> result;
+
+	public DispatcherCollector(Collection<NetworkDispatcher> result) {
+		this.result = result;
+	}
+
+	@Override
+	public void visit(NetworkDispatcher dispatcher) {
+		result.add(dispatcher);
+	}
+}
@@ -8,8 +8,10 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.DimensionManager;
 import openmods.network.DimCoord;
+import openmods.network.IDispatcherVisitor;
 import openmods.network.IPacketTargetSelector;
 import openmods.utils.NetUtils;
+import openmods.world.ChunkWatchersIndex;
 
 public class SelectChunkWatchers implements IPacketTargetSelector<DimCoord> {
 
@@ -22,14 +24,16 @@ public class SelectChunkWatchers implements IPacketTargetSelector<DimCoord> {
 
 	@Override
 	public void listDispatchers(DimCoord coord, Collection<NetworkDispatcher> result) {
-		WorldServer server = DimensionManager.getWorld(coord.dimension);
+		forEachDispatcher(coord, new DispatcherCollector(result));
+	}
 
-		Set<EntityPlayerMP> players = NetUtils.getPlayersWatchingBlock(server, coord.x, coord.z);
+	@Override
+	public void forEachDispatcher(DimCoord coord, IDispatcherVisitor visitor) {
+		WorldServer server = DimensionManager.getWorld(coord.dimension);
 
-		for (EntityPlayerMP player : players) {
-			NetworkDispatcher dispatcher = NetUtils.getPlayerDispatcher(player);
-			result.add(dispatcher);
-		}
+		// cached per tick by index, not copied
+		Set<EntityPlayerMP> players = ChunkWatchersIndex.instance.getPlayersWatchingBlock(server, coord.x, coord.z);
+		NetUtils.visitPlayerDispatchers(players, visitor);
 	}
 
 	@Override
@@ -8,6 +8,7 @@ import java.util.Set;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.world.WorldServer;
+import openmods.network.IDispatcherVisitor;
 import openmods.network.IPacketTargetSelector;
 import openmods.utils.NetUtils;
 
@@ -22,14 +23,15 @@ public class SelectEntityWatchers implements IPacketTargetSelector<Entity> {
 
 	@Override
 	public void listDispatchers(Entity entity, Collection<NetworkDispatcher> result) {
+		forEachDispatcher(entity, new DispatcherCollector(result));
+	}
+
+	@Override
+	public void forEachDispatcher(Entity entity, IDispatcherVisitor visitor) {
 		Preconditions.checkArgument(entity.worldObj instanceof WorldServer, "Invalid side");
 		WorldServer server = (WorldServer)entity.worldObj;
-		Set<EntityPlayerMP> players = NetUtils.getPlayersWatchingEntity(server, entity.getEntityId());
-
-		for (EntityPlayerMP player : players) {
-			NetworkDispatcher dispatcher = NetUtils.getPlayerDispatcher(player);
-			result.add(dispatcher);
-		}
+		Set<EntityPlayerMP> players = NetUtils.getEntityTrackingPlayers(server, entity.getEntityId());
+		NetUtils.visitPlayerDispatchers(players, visitor);
 	}
 
 	@Override
@@ -4,7 +4,7 @@ import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
 import cpw.mods.fml.relauncher.Side;
 import java.util.Collection;
 import net.minecraft.entity.player.EntityPlayerMP;
-import openmods.Log;
+import openmods.network.IDispatcherVisitor;
 import openmods.network.IPacketTargetSelector;
 import openmods.utils.NetUtils;
 
@@ -19,11 +19,12 @@ public class SelectMultiplePlayers implements IPacketTargetSelector<Collection<E
 
 	@Override
 	public void listDispatchers(Collection<EntityPlayerMP> players, Collection<NetworkDispatcher> result) {
-		for (EntityPlayerMP player : players) {
-			NetworkDispatcher dispatcher = NetUtils.getPlayerDispatcher(player);
-			if (dispatcher != null) result.add(dispatcher);
-			else Log.info("Trying to send message to disconnected player %s", player);
-		}
+		forEachDispatcher(players, new DispatcherCollector(result));
+	}
+
+	@Override
+	public void forEachDispatcher(Collection<EntityPlayerMP> players, IDispatcherVisitor visitor) {
+		NetUtils.visitPlayerDispatchers(players, visitor);
 	}
 
 	@Override
@@ -0,0 +1,35 @@
+package openmods.network.targets;
+
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.relauncher.Side;
+import java.util.Collection;
+import openmods.network.IDispatcherVisitor;
+import openmods.network.IPacketTargetSelector;
+import openmods.network.PlayerGroup;
+import openmods.utils.NetUtils;
+
+public class SelectPlayerGroup implements IPacketTargetSelector<PlayerGroup> {
+
+	public static final IPacketTargetSelector<PlayerGroup> INSTANCE = new SelectPlayerGroup();
+
+	@Override
+	public boolean isAllowedOnSide(Side side) {
+		return side == Side.SERVER;
+	}
+
+	@Override
+	public void listDispatchers(PlayerGroup group, Collection<NetworkDispatcher> result) {
+		forEachDispatcher(group, new DispatcherCollector(result));
+	}
+
+	@Override
+	public void forEachDispatcher(PlayerGroup group, IDispatcherVisitor visitor) {
+		NetUtils.visitPlayerDispatchers(group.getMembers(), visitor);
+	}
+
+	@Override
+	public PlayerGroup castArg(Object arg) {
+		return (PlayerGroup)arg;
+	}
+
+}
@@ -8,7 +8,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import openmods.reflection.ConstructorAccess;
 import openmods.reflection.TypeUtils;
 import openmods.serializable.providers.ArraySerializerProvider;
@@ -22,17 +22,38 @@ import openmods.utils.io.IStreamSerializer;
 import openmods.utils.io.IStreamWriter;
 import openmods.utils.io.TypeRW;
 
+/**
+ * Lookups are safe from any thread (including network threads) and don't lock.
+ * Results (including missing serializers) are cached per {@link Type}. Cache is replaced on every registration, so registering after lookups won't leave stale entries.
+ */
 public class SerializerRegistry {
 
+	// marks types without serializer in cache
+	private static final IStreamSerializer<Object> NO_SERIALIZER = new IStreamSerializer<Object>() {
+		@Override
+		public Object readFromStream(DataInput input) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void writeToStream(Object o, DataOutput output) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
 	public static final SerializerRegistry instance = new SerializerRegistry();
 
-	private final Map<Class<?>, IStreamSerializer<?>> serializers = Maps.newHashMap(TypeRW.STREAM_SERIALIZERS);
+	private final ConcurrentMap<Class<?>, IStreamSerializer<?>> serializers = Maps.newConcurrentMap();
 
-	private final List<ISerializerProvider> providers = Lists.newArrayList();
+	private final List<ISerializerProvider> providers = Lists.newCopyOnWriteArrayList();
 
-	private final List<IGenericSerializerProvider> genericProviders = Lists.newArrayList();
+	private final List<IGenericSerializerProvider> genericProviders = Lists.newCopyOnWriteArrayList();
+
+	private volatile ConcurrentMap<Type, IStreamSerializer<?>> cache = Maps.newConcurrentMap();
 
 	{
+		serializers.putAll(TypeRW.STREAM_SERIALIZERS);
+
 		providers.add(new EnumSerializerProvider());
 		providers.add(new ArraySerializerProvider());
 		providers.add(new ClassSerializerProvider());
@@ -50,8 +71,9 @@ public class SerializerRegistry {
 
 	public <T> void register(Class<? extends T> target, IStreamSerializer<T> serializer) {
 		Preconditions.checkArgument(target != Object.class, "Can't register serializer for Object");
-		final IStreamSerializer<?> prev = serializers.put(target, serializer);
+		final IStreamSerializer<?> prev = serializers.putIfAbsent(target, serializer);
 		Preconditions.checkState(prev == null, "Duplicate serializer for %s", target);
+		invalidateCache();
 	}
 
 	public <T> void register(IStreamSerializer<T> serializer) {
@@ -85,42 +107,60 @@ public class SerializerRegistry {
 	public void registerProvider(ISerializerProvider provider) {
 		Preconditions.checkNotNull(provider);
 		providers.add(provider);
+		invalidateCache();
+	}
+
+	private void invalidateCache() {
+		// lookups in progress will finish with old cache, which is then discarded
+		cache = Maps.newConcurrentMap();
 	}
 
-	private IStreamSerializer<?> findClassSerializer(Class<?> cls, IStreamSerializer<?> serializer) {
+	private IStreamSerializer<?> findClassSerializer(Class<?> cls) {
+		final IStreamSerializer<?> registered = serializers.get(cls);
+		if (registered != null) return registered;
+
 		for (ISerializerProvider provider : providers) {
-			serializer = provider.getSerializer(cls);
-			if (serializer != null) {
-				serializers.put(cls, serializer);
-				return serializer;
-			}
+			final IStreamSerializer<?> serializer = provider.getSerializer(cls);
+			if (serializer != null) return serializer;
 		}
 
 		return null;
 	}
 
 	@SuppressWarnings("unchecked")
-	public <T> IStreamSerializer<T> findSerializer(Class<? extends T> cls) {
-		IStreamSerializer<?> serializer = serializers.get(cls);
-
-		if (serializer == null) serializer = findClassSerializer(cls, serializer);
+	protected IStreamSerializer<Object> findGenericSerializer(Type type) {
+		for (IGenericSerializerProvider provider : genericProviders) {
+			final IStreamSerializer<?> serializer = provider.getSerializer(type);
+			if (serializer != null) return (IStreamSerializer<Object>)serializer;
+		}
 
-		return (IStreamSerializer<T>)serializer;
+		return null;
 	}
 
-	public IStreamSerializer<Object> findSerializer(Type type) {
-		if (type instanceof Class) return findSerializer((Class<?>)type);
-		return findGenericSerializer(type);
+	private IStreamSerializer<?> lookup(Type type) {
+		final ConcurrentMap<Type, IStreamSerializer<?>> cache = this.cache;
+
+		IStreamSerializer<?> result = cache.get(type);
+		if (result == null) {
+			// providers may call registry recursively, so value is not created under lock - races only cause duplicated work
+			IStreamSerializer<?> serializer = (type instanceof Class)? findClassSerializer((Class<?>)type) : findGenericSerializer(type);
+			if (serializer == null) serializer = NO_SERIALIZER;
+
+			result = cache.putIfAbsent(type, serializer);
+			if (result == null) result = serializer;
+		}
+
+		return result != NO_SERIALIZER? result : null;
 	}
 
 	@SuppressWarnings("unchecked")
-	protected IStreamSerializer<Object> findGenericSerializer(Type type) {
-		for (IGenericSerializerProvider provider : genericProviders) {
-			IStreamSerializer<?> serializer = provider.getSerializer(type);
-			if (serializer != null) return (IStreamSerializer<Object>)serializer;
-		}
+	public <T> IStreamSerializer<T> findSerializer(Class<? extends T> cls) {
+		return (IStreamSerializer<T>)lookup(cls);
+	}
 
-		return null;
+	@SuppressWarnings("unchecked")
+	public IStreamSerializer<Object> findSerializer(Type type) {
+		return (IStreamSerializer<Object>)lookup(type);
 	}
 
 	public <T> T createFromStream(DataInput input, Class<? extends T> cls) throws IOException {
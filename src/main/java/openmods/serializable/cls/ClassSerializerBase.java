@@ -0,0 +1,39 @@
+package openmods.serializable.cls;
+
+import com.google.common.base.Preconditions;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import openmods.serializable.IObjectSerializer;
+import openmods.utils.io.IStreamSerializer;
+
+/**
+ * Base class for serializers generated by {@link ClassSerializerGenerator}.
+ * Helpers keep null handling out of generated code, so it has no branches.
+ */
+public abstract class ClassSerializerBase<T> implements IObjectSerializer<T> {
+
+	// indexed by field position, entries for primitive fields are null
+	protected final IStreamSerializer<Object>[] serializers;
+
+	protected ClassSerializerBase(IStreamSerializer<Object>[] serializers) {
+		this.serializers = serializers;
+	}
+
+	protected static int nullBit(Object value, int mask) {
+		return value == null? mask : 0;
+	}
+
+	protected static void writeNullable(DataOutput output, IStreamSerializer<Object> serializer, Object value) throws IOException {
+		if (value != null) serializer.writeToStream(value, output);
+	}
+
+	protected static void writeNonNullable(DataOutput output, IStreamSerializer<Object> serializer, Object value, String fieldName) throws IOException {
+		Preconditions.checkNotNull(value, "Non-nullable %s has null value", fieldName);
+		serializer.writeToStream(value, output);
+	}
+
+	protected static Object readNullable(DataInput input, IStreamSerializer<Object> serializer, int nullBits, int mask) throws IOException {
+		return (nullBits & mask) != 0? null : serializer.readFromStream(input);
+	}
+}
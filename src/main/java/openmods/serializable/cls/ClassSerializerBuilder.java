@@ -4,8 +4,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -24,17 +22,20 @@ import openmods.utils.io.StreamUtils;
 
 public class ClassSerializerBuilder<T> {
 
-	private static class SerializableField extends FieldAccess<Object> {
-		private final IStreamSerializer<Object> serializer;
-		private final boolean isNullable;
+	static class SerializableField extends FieldAccess<Object> {
+		final IStreamSerializer<Object> serializer;
+		final boolean isNullable;
+		final TypeToken<?> type;
+		final String id;
 
-		public SerializableField(Class<?> ownerCls, Field field, boolean isNullable) {
+		public SerializableField(Class<?> ownerCls, Field field, boolean isNullable, String id) {
 			super(field);
 
 			this.isNullable = isNullable;
+			this.id = id;
 
-			final TypeToken<?> fieldType = TypeUtils.resolveFieldType(ownerCls, field);
-			this.serializer = SerializerRegistry.instance.findSerializer(fieldType.getType());
+			this.type = TypeUtils.resolveFieldType(ownerCls, field);
+			this.serializer = SerializerRegistry.instance.findSerializer(type.getType());
 			Preconditions.checkNotNull(serializer, "Invalid field %s type", field);
 		}
 	}
@@ -90,25 +91,25 @@ public class ClassSerializerBuilder<T> {
 
 		@Override
 		public void writeToStream(T object, DataOutput output) throws IOException {
-			final ByteArrayDataOutput payload = ByteStreams.newDataOutput();
+			final Object[] values = new Object[fields.size()];
 			final OutputBitStream nullBitsStream = OutputBitStream.create(output);
 
-			for (SerializableField field : fields) {
+			for (int i = 0; i < values.length; i++) {
+				final SerializableField field = fields.get(i);
 				final Object value = field.get(object);
-				if (field.isNullable) {
-					if (value == null) {
-						nullBitsStream.writeBit(true);
-					} else {
-						nullBitsStream.writeBit(false);
-						field.serializer.writeToStream(value, payload);
-					}
-				} else {
-					field.serializer.writeToStream(value, payload);
-				}
+				values[i] = value;
+				if (field.isNullable) nullBitsStream.writeBit(value == null);
 			}
 
 			nullBitsStream.flush();
-			output.write(payload.toByteArray());
+
+			for (int i = 0; i < values.length; i++) {
+				final SerializableField field = fields.get(i);
+				final Object value = values[i];
+				if (field.isNullable && value == null) continue;
+				Preconditions.checkNotNull(value, "Non-nullable %s has null value", field.field);
+				field.serializer.writeToStream(value, output);
+			}
 		}
 	}
 
@@ -135,10 +136,26 @@ public class ClassSerializerBuilder<T> {
 
 		if (isNullable) nullableCount++;
 
-		fields.add(new SerializableField(ownerClass, field, isNullable));
+		final String id = (annotation != null && !annotation.id().isEmpty())? annotation.id() : field.getName();
+		fields.add(new SerializableField(ownerClass, field, isNullable, id));
 	}
 
 	public IObjectSerializer<T> create() {
+		if (ClassSerializerGenerator.instance.canGenerate(ownerClass, fields)) return ClassSerializerGenerator.instance.generate(ownerClass, fields);
+		return createReflective();
+	}
+
+	/**
+	 * Creates serializer using self-describing format. See {@link TaggedClassSerializer}.
+	 */
+	public IObjectSerializer<T> createTagged() {
+		return new TaggedClassSerializer<T>(fields);
+	}
+
+	/**
+	 * Creates serializer using reflection, compatible with generated one. Used when generated class would not be able to access fields.
+	 */
+	public IObjectSerializer<T> createReflective() {
 		return (nullableCount != 0)
 				? new NullableSerializer<T>(fields, StreamUtils.bitsToBytes(nullableCount))
 				: new NonNullableSerializer<T>(fields);
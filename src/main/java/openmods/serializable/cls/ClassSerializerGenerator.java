@@ -0,0 +1,287 @@
+package openmods.serializable.cls;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import openmods.serializable.IObjectSerializer;
+import openmods.serializable.cls.ClassSerializerBuilder.SerializableField;
+import openmods.utils.SneakyThrower;
+import openmods.utils.io.IStreamReader;
+import openmods.utils.io.IStreamSerializer;
+import openmods.utils.io.PrimitiveStreamMethods;
+import openmods.utils.io.StreamUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates serializer classes with direct field access and inlined primitive reads and writes (similar to {@link openmods.reflection.ClonerFactory}).
+ * Stream format is same as reflection-based serializers from {@link ClassSerializerBuilder}: null bits of nullable fields (MSB first), then non-null values.
+ * Only usable for public, non-final fields of public classes visible from this class loader.
+ */
+public class ClassSerializerGenerator implements Opcodes {
+
+	private static class SerializerClassLoader extends ClassLoader {
+		private SerializerClassLoader() {
+			super(SerializerClassLoader.class.getClassLoader());
+		}
+
+		public Class<?> define(byte[] data) {
+			return defineClass(null, data, 0, data.length);
+		}
+	}
+
+	public static final ClassSerializerGenerator instance = new ClassSerializerGenerator();
+
+	private static final String BASE_CLS = Type.getInternalName(ClassSerializerBase.class);
+
+	private static final String SERIALIZERS_DESC = Type.getDescriptor(IStreamSerializer[].class);
+
+	private static final String CTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(IStreamSerializer[].class));
+
+	private static final String WRITE_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Object.class), Type.getType(java.io.DataOutput.class));
+
+	private static final String READ_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Object.class), Type.getType(java.io.DataInput.class));
+
+	private static final String NULL_BIT_DESC = Type.getMethodDescriptor(Type.INT_TYPE, Type.getType(Object.class), Type.INT_TYPE);
+
+	private static final String WRITE_NULLABLE_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(java.io.DataOutput.class), Type.getType(IStreamSerializer.class), Type.getType(Object.class));
+
+	private static final String WRITE_NON_NULLABLE_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(java.io.DataOutput.class), Type.getType(IStreamSerializer.class), Type.getType(Object.class), Type.getType(String.class));
+
+	private static final String READ_NULLABLE_DESC = Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(java.io.DataInput.class), Type.getType(IStreamSerializer.class), Type.INT_TYPE, Type.INT_TYPE);
+
+	private static final String READER_CLS = Type.getInternalName(IStreamReader.class);
+
+	private static final String READER_DESC = Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(java.io.DataInput.class));
+
+	private static final int ARG_OBJECT = 1;
+
+	private static final int ARG_STREAM = 2;
+
+	private static final int LOCAL_OBJECT = 3;
+
+	private static final int LOCAL_NULL_BITS = 4;
+
+	private static final AtomicInteger serializerCounter = new AtomicInteger();
+
+	private final SerializerClassLoader classLoader = new SerializerClassLoader();
+
+	private static boolean isVisible(Class<?> cls) {
+		while (cls.isArray())
+			cls = cls.getComponentType();
+
+		if (cls.isPrimitive()) return true;
+
+		for (Class<?> c = cls; c != null; c = c.getEnclosingClass())
+			if (!Modifier.isPublic(c.getModifiers())) return false;
+
+		try {
+			return Class.forName(cls.getName(), false, SerializerClassLoader.class.getClassLoader()) == cls;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	public boolean canGenerate(Class<?> ownerCls, List<SerializableField> fields) {
+		if (!isVisible(ownerCls)) return false;
+
+		for (SerializableField f : fields) {
+			final Field field = f.field;
+			final int modifiers = field.getModifiers();
+			if (!Modifier.isPublic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers)) return false;
+			if (!isVisible(field.getDeclaringClass()) || !isVisible(field.getType())) return false;
+		}
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> IObjectSerializer<T> generate(Class<?> ownerCls, List<SerializableField> fields) {
+		final IStreamSerializer<Object>[] serializers = new IStreamSerializer[fields.size()];
+		for (int i = 0; i < serializers.length; i++) {
+			final SerializableField field = fields.get(i);
+			if (!field.field.getType().isPrimitive()) serializers[i] = field.serializer;
+		}
+
+		final byte[] classData = createSerializerClassData(ownerCls, fields);
+
+		try {
+			final Class<?> cls = classLoader.define(classData);
+			final Constructor<?> ctor = cls.getConstructor(IStreamSerializer[].class);
+			return (IObjectSerializer<T>)ctor.newInstance(new Object[] { serializers });
+		} catch (Throwable t) {
+			throw SneakyThrower.sneakyThrow(t);
+		}
+	}
+
+	private static byte[] createSerializerClassData(Class<?> ownerCls, List<SerializableField> fields) {
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+
+		final String ownerName = Type.getInternalName(ownerCls);
+		final String name = ownerName + "$$serializer$" + serializerCounter.incrementAndGet();
+
+		writer.visit(V1_6, ACC_PUBLIC | ACC_SUPER | ACC_SYNTHETIC, name, null, BASE_CLS, null);
+		writer.visitSource(".dynamic", null);
+
+		{
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "<init>", CTOR_DESC, null, null);
+			mv.visitCode();
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitMethodInsn(INVOKESPECIAL, BASE_CLS, "<init>", CTOR_DESC, false);
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		{
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "writeToStream", WRITE_DESC, null, null);
+			mv.visitCode();
+			castOwner(mv, ownerName);
+			addNullBitsWrite(mv, fields);
+
+			for (int i = 0; i < fields.size(); i++)
+				addFieldWrite(mv, i, fields.get(i));
+
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		{
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "readFromStream", READ_DESC, null, null);
+			mv.visitCode();
+			castOwner(mv, ownerName);
+			addNullBitsRead(mv, fields);
+
+			int nullableIndex = 0;
+			for (int i = 0; i < fields.size(); i++) {
+				final SerializableField field = fields.get(i);
+				addFieldRead(mv, i, field, nullableIndex);
+				if (field.isNullable) nullableIndex++;
+			}
+
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		writer.visitEnd();
+
+		return writer.toByteArray();
+	}
+
+	private static void castOwner(MethodVisitor mv, String ownerName) {
+		mv.visitVarInsn(ALOAD, ARG_OBJECT);
+		mv.visitTypeInsn(CHECKCAST, ownerName);
+		mv.visitVarInsn(ASTORE, LOCAL_OBJECT);
+	}
+
+	private static int nullBitMask(int nullableIndex) {
+		return 0x80 >> (nullableIndex & 7);
+	}
+
+	private static void loadField(MethodVisitor mv, Field field) {
+		mv.visitVarInsn(ALOAD, LOCAL_OBJECT);
+		mv.visitFieldInsn(GETFIELD, Type.getInternalName(field.getDeclaringClass()), field.getName(), Type.getDescriptor(field.getType()));
+	}
+
+	private static void loadSerializer(MethodVisitor mv, int fieldIndex) {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, BASE_CLS, "serializers", SERIALIZERS_DESC);
+		mv.visitLdcInsn(fieldIndex);
+		mv.visitInsn(AALOAD);
+	}
+
+	private static void addNullBitsWrite(MethodVisitor mv, List<SerializableField> fields) {
+		// output.write(nullBit(a, 0x80) | nullBit(b, 0x40) | ...) for every 8 nullable fields
+		int nullableIndex = 0;
+		for (SerializableField field : fields) {
+			if (!field.isNullable) continue;
+
+			if ((nullableIndex & 7) == 0) {
+				if (nullableIndex > 0) writeNullByte(mv);
+				mv.visitVarInsn(ALOAD, ARG_STREAM);
+				mv.visitInsn(ICONST_0);
+			}
+
+			loadField(mv, field.field);
+			mv.visitLdcInsn(nullBitMask(nullableIndex));
+			mv.visitMethodInsn(INVOKESTATIC, BASE_CLS, "nullBit", NULL_BIT_DESC, false);
+			mv.visitInsn(IOR);
+			nullableIndex++;
+		}
+
+		if (nullableIndex > 0) writeNullByte(mv);
+	}
+
+	private static void writeNullByte(MethodVisitor mv) {
+		mv.visitMethodInsn(INVOKEINTERFACE, PrimitiveStreamMethods.DATA_OUTPUT_CLS, "write", "(I)V", true);
+	}
+
+	private static void addNullBitsRead(MethodVisitor mv, List<SerializableField> fields) {
+		int nullableCount = 0;
+		for (SerializableField field : fields)
+			if (field.isNullable) nullableCount++;
+
+		final int nullBytes = StreamUtils.bitsToBytes(nullableCount);
+		for (int i = 0; i < nullBytes; i++) {
+			mv.visitVarInsn(ALOAD, ARG_STREAM);
+			mv.visitMethodInsn(INVOKEINTERFACE, PrimitiveStreamMethods.DATA_INPUT_CLS, "readUnsignedByte", "()I", true);
+			mv.visitVarInsn(ISTORE, LOCAL_NULL_BITS + i);
+		}
+	}
+
+	private static void addFieldWrite(MethodVisitor mv, int fieldIndex, SerializableField field) {
+		final Class<?> fieldCls = field.field.getType();
+		mv.visitVarInsn(ALOAD, ARG_STREAM);
+
+		if (fieldCls.isPrimitive()) {
+			final Type fieldType = Type.getType(fieldCls);
+			loadField(mv, field.field);
+			mv.visitMethodInsn(INVOKEINTERFACE, PrimitiveStreamMethods.DATA_OUTPUT_CLS, PrimitiveStreamMethods.getWriteMethod(fieldType), PrimitiveStreamMethods.getWriteDesc(fieldType), true);
+		} else {
+			loadSerializer(mv, fieldIndex);
+			loadField(mv, field.field);
+			if (field.isNullable) {
+				mv.visitMethodInsn(INVOKESTATIC, BASE_CLS, "writeNullable", WRITE_NULLABLE_DESC, false);
+			} else {
+				mv.visitLdcInsn(field.field.toString());
+				mv.visitMethodInsn(INVOKESTATIC, BASE_CLS, "writeNonNullable", WRITE_NON_NULLABLE_DESC, false);
+			}
+		}
+	}
+
+	private static void addFieldRead(MethodVisitor mv, int fieldIndex, SerializableField field, int nullableIndex) {
+		final Field f = field.field;
+		final Class<?> fieldCls = f.getType();
+		final Type fieldType = Type.getType(fieldCls);
+
+		mv.visitVarInsn(ALOAD, LOCAL_OBJECT);
+
+		if (fieldCls.isPrimitive()) {
+			mv.visitVarInsn(ALOAD, ARG_STREAM);
+			mv.visitMethodInsn(INVOKEINTERFACE, PrimitiveStreamMethods.DATA_INPUT_CLS, PrimitiveStreamMethods.getReadMethod(fieldType), PrimitiveStreamMethods.getReadDesc(fieldType), true);
+		} else {
+			if (field.isNullable) {
+				mv.visitVarInsn(ALOAD, ARG_STREAM);
+				loadSerializer(mv, fieldIndex);
+				mv.visitVarInsn(ILOAD, LOCAL_NULL_BITS + nullableIndex / 8);
+				mv.visitLdcInsn(nullBitMask(nullableIndex));
+				mv.visitMethodInsn(INVOKESTATIC, BASE_CLS, "readNullable", READ_NULLABLE_DESC, false);
+			} else {
+				loadSerializer(mv, fieldIndex);
+				mv.visitVarInsn(ALOAD, ARG_STREAM);
+				mv.visitMethodInsn(INVOKEINTERFACE, READER_CLS, "readFromStream", READER_DESC, true);
+			}
+
+			if (fieldCls != Object.class) mv.visitTypeInsn(CHECKCAST, fieldType.getInternalName());
+		}
+
+		mv.visitFieldInsn(PUTFIELD, Type.getInternalName(f.getDeclaringClass()), f.getName(), fieldType.getDescriptor());
+	}
+}
@@ -7,13 +7,13 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.List;
 import openmods.serializable.IObjectSerializer;
-import openmods.utils.CachedFactory;
+import openmods.utils.ConcurrentCachedFactory;
 import openmods.utils.FieldsSelector;
 
 public class ClassSerializersProvider {
 	public static final ClassSerializersProvider instance = new ClassSerializersProvider();
 
-	private final CachedFactory<Class<?>, IObjectSerializer<?>> cache = new CachedFactory<Class<?>, IObjectSerializer<?>>() {
+	private final ConcurrentCachedFactory<Class<?>, IObjectSerializer<?>> cache = new ConcurrentCachedFactory<Class<?>, IObjectSerializer<?>>() {
 		@Override
 		protected IObjectSerializer<?> create(Class<?> key) {
 			ClassSerializerBuilder<Object> builder = new ClassSerializerBuilder<Object>(key);
@@ -21,7 +21,8 @@ public class ClassSerializersProvider {
 			for (Field f : SELECTOR.getFields(key))
 				builder.appendField(f);
 
-			return builder.create();
+			final SerializableClass annotation = key.getAnnotation(SerializableClass.class);
+			return (annotation != null && annotation.tagged())? builder.createTagged() : builder.create();
 		}
 	};
 
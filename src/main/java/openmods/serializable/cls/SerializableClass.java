@@ -9,4 +9,8 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface SerializableClass {
 
+	/**
+	 * Use {@link TaggedClassSerializer} format, which can be read after fields are added, removed or reordered. Intended for persisted data.
+	 */
+	public boolean tagged() default false;
 }
@@ -12,4 +12,9 @@ public @interface Serialize {
 	public int rank() default 0;
 
 	public boolean nullable() default true;
+
+	/**
+	 * Field identifier used by tagged format (see {@link SerializableClass#tagged()}). Defaults to field name.
+	 */
+	public String id() default "";
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package openmods.serializable.cls;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import openmods.serializable.IObjectSerializer;
+import openmods.serializable.cls.ClassSerializerBuilder.SerializableField;
+import openmods.utils.ByteUtils;
+import openmods.utils.io.StreamUtils;
+
+/**
+ * Self-describing format for {@link SerializableClass} objects, intended for data that may be read by different version of class (save data, caches, cross-version traffic).
+ * Format: schema hash (int), size of field table (VLI), field table (count as VLI, then id and type of every field), then for every field value size + 1 as VLI (0 for null) and value.
+ * When schema hash matches, field table is skipped and values are read in order. Otherwise fields are matched by id and type: unknown fields are skipped and missing ones keep current values.
+ */
+public class TaggedClassSerializer<T> implements IObjectSerializer<T> {
+
+	private final List<SerializableField> fields;
+
+	private final Map<String, SerializableField> fieldsById = Maps.newHashMap();
+
+	private final byte[] table;
+
+	private final int schemaHash;
+
+	public TaggedClassSerializer(List<SerializableField> fields) {
+		this.fields = ImmutableList.copyOf(fields);
+
+		try {
+			final ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+			final DataOutputStream tableOutput = new DataOutputStream(tableBytes);
+			ByteUtils.writeVLI(tableOutput, fields.size());
+			for (SerializableField field : fields) {
+				final SerializableField prev = fieldsById.put(field.id, field);
+				if (prev != null) throw new IllegalStateException(String.format("Duplicate field id '%s' (%s, %s)", field.id, prev.field, field.field));
+				tableOutput.writeUTF(field.id);
+				tableOutput.writeUTF(getTypeName(field));
+			}
+
+			this.table = tableBytes.toByteArray();
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+
+		this.schemaHash = Hashing.murmur3_32().hashBytes(table).asInt();
+	}
+
+	private static String getTypeName(SerializableField field) {
+		return field.type.toString();
+	}
+
+	@Override
+	public void writeToStream(T object, DataOutput output) throws IOException {
+		output.writeInt(schemaHash);
+		ByteUtils.writeVLI(output, table.length);
+		output.write(table);
+
+		final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+		final DataOutputStream valueOutput = new DataOutputStream(valueBytes);
+		for (SerializableField field : fields) {
+			final Object value = field.get(object);
+			if (!field.isNullable) Preconditions.checkNotNull(value, "Non-nullable field %s is null", field.field);
+
+			if (value == null) {
+				ByteUtils.writeVLI(output, 0);
+			} else {
+				valueBytes.reset();
+				field.serializer.writeToStream(value, valueOutput);
+				ByteUtils.writeVLI(output, valueBytes.size() + 1);
+				output.write(valueBytes.toByteArray());
+			}
+		}
+	}
+
+	@Override
+	public void readFromStream(T object, DataInput input) throws IOException {
+		final int hash = input.readInt();
+		final int tableSize = ByteUtils.readVLI(input);
+
+		if (hash == schemaHash && tableSize == table.length) {
+			StreamUtils.skipBytes(input, tableSize);
+			for (SerializableField field : fields)
+				readValue(object, field, input);
+		} else {
+			final DataInput tableInput = new DataInputStream(new ByteArrayInputStream(StreamUtils.readBytes(input, tableSize)));
+			final int fieldCount = ByteUtils.readVLI(tableInput);
+			for (int i = 0; i < fieldCount; i++) {
+				final String id = tableInput.readUTF();
+				final String type = tableInput.readUTF();
+
+				final SerializableField field = fieldsById.get(id);
+				if (field != null && type.equals(getTypeName(field))) readValueChecked(object, field, input);
+				else skipValue(input);
+			}
+		}
+	}
+
+	private static void readValue(Object object, SerializableField field, DataInput input) throws IOException {
+		final int size = ByteUtils.readVLI(input);
+		if (size != 0) field.set(object, field.serializer.readFromStream(input));
+		else setNull(object, field);
+	}
+
+	private static void readValueChecked(Object object, SerializableField field, DataInput input) throws IOException {
+		final int size = ByteUtils.readVLI(input);
+		if (size != 0) {
+			final ByteArrayInputStream valueBytes = new ByteArrayInputStream(StreamUtils.readBytes(input, size - 1));
+			final Object value = field.serializer.readFromStream(new DataInputStream(valueBytes));
+			if (valueBytes.available() != 0) throw new IOException(String.format("Field %s not fully read, %d bytes left", field.field, valueBytes.available()));
+			field.set(object, value);
+		} else {
+			setNull(object, field);
+		}
+	}
+
+	private static void setNull(Object object, SerializableField field) {
+		// non-nullable fields keep current value, since they were nullable in writer
+		if (field.isNullable) field.set(object, null);
+	}
+
+	private static void skipValue(DataInput input) throws IOException {
+		final int size = ByteUtils.readVLI(input);
+		if (size != 0) StreamUtils.skipBytes(input, size - 1);
+	}
+}
@@ -0,0 +1,406 @@
+package openmods.serializable.providers;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import openmods.utils.ByteUtils;
+import openmods.utils.io.IStreamSerializer;
+
+/**
+ * Serializers for arrays of primitives. Default ones use same format as element-by-element serialization with {@link openmods.utils.io.TypeRW} (length as VLI, then big-endian values),
+ * but convert whole array at once with {@link ByteBuffer} views.
+ * Packed int array formats are not used by default, but can be used explicitly for data with small values.
+ */
+public class PrimitiveArraySerializers {
+
+	private abstract static class BulkSerializer<T> implements IStreamSerializer<T> {
+		private final int elementSize;
+
+		public BulkSerializer(int elementSize) {
+			this.elementSize = elementSize;
+		}
+
+		protected abstract int getLength(T array);
+
+		protected abstract T createArray(int length);
+
+		protected abstract void write(ByteBuffer output, T array);
+
+		protected abstract void read(ByteBuffer input, T array);
+
+		@Override
+		public T readFromStream(DataInput input) throws IOException {
+			final int length = ByteUtils.readVLI(input);
+			Preconditions.checkState(length <= Integer.MAX_VALUE / elementSize, "Array too long: %s", length);
+			final T result = createArray(length);
+
+			if (length > 0) {
+				final byte[] bytes = new byte[length * elementSize];
+				input.readFully(bytes);
+				read(ByteBuffer.wrap(bytes), result);
+			}
+
+			return result;
+		}
+
+		@Override
+		public void writeToStream(T o, DataOutput output) throws IOException {
+			final int length = getLength(o);
+			ByteUtils.writeVLI(output, length);
+			if (length == 0) return;
+
+			final int byteCount = length * elementSize;
+			if (output instanceof ByteBufOutputStream && writeDirect(((ByteBufOutputStream)output).buffer(), o, byteCount)) return;
+
+			final byte[] bytes = new byte[byteCount];
+			write(ByteBuffer.wrap(bytes), o);
+			output.write(bytes);
+		}
+
+		/**
+		 * Writes directly to target buffer, without intermediate array. Only possible when buffer has single backing store - for other ones (like composite buffers) NIO buffer is a copy.
+		 * {@link ByteBufOutputStream#writtenBytes()} is calculated from writer index, so it still includes this write.
+		 */
+		private boolean writeDirect(ByteBuf buffer, T o, int byteCount) {
+			buffer.ensureWritable(byteCount);
+			final int writerIndex = buffer.writerIndex();
+
+			final ByteBuffer target;
+			if (buffer.hasArray()) target = ByteBuffer.wrap(buffer.array(), buffer.arrayOffset() + writerIndex, byteCount).slice();
+			else if (buffer.nioBufferCount() == 1) target = buffer.nioBuffer(writerIndex, byteCount);
+			else return false;
+
+			write(target.order(ByteOrder.BIG_ENDIAN), o);
+			buffer.writerIndex(writerIndex + byteCount);
+			return true;
+		}
+	}
+
+	public static final IStreamSerializer<boolean[]> BOOLEAN_ARRAY = new BulkSerializer<boolean[]>(1) {
+		@Override
+		protected int getLength(boolean[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected boolean[] createArray(int length) {
+			return new boolean[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, boolean[] array) {
+			for (boolean b : array)
+				output.put(b? (byte)1 : (byte)0);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, boolean[] array) {
+			for (int i = 0; i < array.length; i++)
+				array[i] = input.get() != 0;
+		}
+	};
+
+	public static final IStreamSerializer<byte[]> BYTE_ARRAY = new BulkSerializer<byte[]>(1) {
+		@Override
+		protected int getLength(byte[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected byte[] createArray(int length) {
+			return new byte[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, byte[] array) {
+			output.put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, byte[] array) {
+			input.get(array);
+		}
+	};
+
+	public static final IStreamSerializer<char[]> CHAR_ARRAY = new BulkSerializer<char[]>(2) {
+		@Override
+		protected int getLength(char[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected char[] createArray(int length) {
+			return new char[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, char[] array) {
+			output.asCharBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, char[] array) {
+			input.asCharBuffer().get(array);
+		}
+	};
+
+	public static final IStreamSerializer<short[]> SHORT_ARRAY = new BulkSerializer<short[]>(2) {
+		@Override
+		protected int getLength(short[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected short[] createArray(int length) {
+			return new short[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, short[] array) {
+			output.asShortBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, short[] array) {
+			input.asShortBuffer().get(array);
+		}
+	};
+
+	public static final IStreamSerializer<int[]> INT_ARRAY = new BulkSerializer<int[]>(4) {
+		@Override
+		protected int getLength(int[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected int[] createArray(int length) {
+			return new int[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, int[] array) {
+			output.asIntBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, int[] array) {
+			input.asIntBuffer().get(array);
+		}
+	};
+
+	public static final IStreamSerializer<long[]> LONG_ARRAY = new BulkSerializer<long[]>(8) {
+		@Override
+		protected int getLength(long[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected long[] createArray(int length) {
+			return new long[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, long[] array) {
+			output.asLongBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, long[] array) {
+			input.asLongBuffer().get(array);
+		}
+	};
+
+	public static final IStreamSerializer<float[]> FLOAT_ARRAY = new BulkSerializer<float[]>(4) {
+		@Override
+		protected int getLength(float[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected float[] createArray(int length) {
+			return new float[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, float[] array) {
+			output.asFloatBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, float[] array) {
+			input.asFloatBuffer().get(array);
+		}
+	};
+
+	public static final IStreamSerializer<double[]> DOUBLE_ARRAY = new BulkSerializer<double[]>(8) {
+		@Override
+		protected int getLength(double[] array) {
+			return array.length;
+		}
+
+		@Override
+		protected double[] createArray(int length) {
+			return new double[length];
+		}
+
+		@Override
+		protected void write(ByteBuffer output, double[] array) {
+			output.asDoubleBuffer().put(array);
+		}
+
+		@Override
+		protected void read(ByteBuffer input, double[] array) {
+			input.asDoubleBuffer().get(array);
+		}
+	};
+
+	/**
+	 * Format: length as VLI, size of encoded values as VLI, then values as zigzag VLIs (see {@link ByteUtils#writeSignedVLI(DataOutput, int)}).
+	 * Good for arrays of mostly small values (including negative ones).
+	 */
+	public static final IStreamSerializer<int[]> INT_ARRAY_VARINT = new IStreamSerializer<int[]>() {
+		@Override
+		public int[] readFromStream(DataInput input) throws IOException {
+			final int length = ByteUtils.readVLI(input);
+			final int byteCount = ByteUtils.readVLI(input);
+			Preconditions.checkState(byteCount <= length * 5L, "Invalid varint array size: %s bytes for %s values", byteCount, length);
+
+			final byte[] bytes = new byte[byteCount];
+			input.readFully(bytes);
+
+			final int[] result = new int[length];
+			int pos = 0;
+			for (int i = 0; i < length; i++) {
+				int encoded = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = bytes[pos++];
+					encoded |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+
+				result[i] = (encoded >>> 1) ^ -(encoded & 1);
+			}
+
+			return result;
+		}
+
+		@Override
+		public void writeToStream(int[] o, DataOutput output) throws IOException {
+			final byte[] bytes = new byte[o.length * 5];
+			int pos = 0;
+			for (int value : o) {
+				int encoded = (value << 1) ^ (value >> 31);
+				while ((encoded & ~0x7F) != 0) {
+					bytes[pos++] = (byte)((encoded & 0x7F) | 0x80);
+					encoded >>>= 7;
+				}
+				bytes[pos++] = (byte)encoded;
+			}
+
+			ByteUtils.writeVLI(output, o.length);
+			ByteUtils.writeVLI(output, pos);
+			output.write(bytes, 0, pos);
+		}
+	};
+
+	/**
+	 * Format: length as VLI, then (for non-empty arrays) minimum value as zigzag VLI, bits per value as byte and packed offsets from minimum (LSB first).
+	 * Good for arrays with small range of values, like heightmaps or palette indices.
+	 */
+	public static final IStreamSerializer<int[]> INT_ARRAY_BIT_PACKED = new IStreamSerializer<int[]>() {
+		@Override
+		public int[] readFromStream(DataInput input) throws IOException {
+			final int length = ByteUtils.readVLI(input);
+			final int[] result = new int[length];
+			if (length == 0) return result;
+
+			final int min = ByteUtils.readSignedVLI(input);
+			final int bits = input.readUnsignedByte();
+			Preconditions.checkState(bits <= Integer.SIZE, "Invalid bits per value: %s", bits);
+
+			final byte[] bytes = new byte[packedSize(length, bits)];
+			input.readFully(bytes);
+
+			final long mask = (1L << bits) - 1;
+			long buffer = 0;
+			int bufferBits = 0;
+			int pos = 0;
+			for (int i = 0; i < length; i++) {
+				while (bufferBits < bits) {
+					buffer |= (bytes[pos++] & 0xFFL) << bufferBits;
+					bufferBits += 8;
+				}
+
+				result[i] = (int)(min + (buffer & mask));
+				buffer >>>= bits;
+				bufferBits -= bits;
+			}
+
+			return result;
+		}
+
+		@Override
+		public void writeToStream(int[] o, DataOutput output) throws IOException {
+			ByteUtils.writeVLI(output, o.length);
+			if (o.length == 0) return;
+
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (int value : o) {
+				if (value < min) min = value;
+				if (value > max) max = value;
+			}
+
+			final long range = (long)max - min;
+			final int bits = Long.SIZE - Long.numberOfLeadingZeros(range);
+
+			ByteUtils.writeSignedVLI(output, min);
+			output.writeByte(bits);
+
+			final byte[] bytes = new byte[packedSize(o.length, bits)];
+			long buffer = 0;
+			int bufferBits = 0;
+			int pos = 0;
+			for (int value : o) {
+				buffer |= ((long)value - min) << bufferBits;
+				bufferBits += bits;
+				while (bufferBits >= 8) {
+					bytes[pos++] = (byte)buffer;
+					buffer >>>= 8;
+					bufferBits -= 8;
+				}
+			}
+
+			if (bufferBits > 0) bytes[pos] = (byte)buffer;
+			output.write(bytes);
+		}
+	};
+
+	private static int packedSize(int length, int bits) {
+		return (int)(((long)length * bits + 7) / 8);
+	}
+
+	private static final Map<Class<?>, IStreamSerializer<?>> DEFAULT_SERIALIZERS = ImmutableMap.<Class<?>, IStreamSerializer<?>> builder()
+			.put(boolean.class, BOOLEAN_ARRAY)
+			.put(byte.class, BYTE_ARRAY)
+			.put(char.class, CHAR_ARRAY)
+			.put(short.class, SHORT_ARRAY)
+			.put(int.class, INT_ARRAY)
+			.put(long.class, LONG_ARRAY)
+			.put(float.class, FLOAT_ARRAY)
+			.put(double.class, DOUBLE_ARRAY)
+			.build();
+
+	public static IStreamSerializer<?> getForComponent(Class<?> componentCls) {
+		return DEFAULT_SERIALIZERS.get(componentCls);
+	}
+}
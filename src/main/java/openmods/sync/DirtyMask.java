@@ -0,0 +1,152 @@
+package openmods.sync;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Growable bit mask of SyncMap object ids.
+ * Stream format: groups of 7 bits, lowest first, with highest bit of every byte set when more groups follow.
+ * Mask with only objects 0-6 set takes single byte.
+ */
+public class DirtyMask {
+
+	private static final int BITS_PER_GROUP = 7;
+
+	private static final int GROUP_MASK = (1 << BITS_PER_GROUP) - 1;
+
+	private static final int CONTINUATION_BIT = 0x80;
+
+	private long[] words = new long[1];
+
+	private static int wordIndex(int bit) {
+		return bit >> 6;
+	}
+
+	private void ensureCapacity(int wordIndex) {
+		if (wordIndex >= words.length) words = Arrays.copyOf(words, Math.max(words.length * 2, wordIndex + 1));
+	}
+
+	public void set(int bit) {
+		final int wordIndex = wordIndex(bit);
+		ensureCapacity(wordIndex);
+		words[wordIndex] |= 1L << bit;
+	}
+
+	public void clear(int bit) {
+		final int wordIndex = wordIndex(bit);
+		if (wordIndex < words.length) words[wordIndex] &= ~(1L << bit);
+	}
+
+	public boolean get(int bit) {
+		final int wordIndex = wordIndex(bit);
+		return wordIndex < words.length && (words[wordIndex] & (1L << bit)) != 0;
+	}
+
+	public void clearAll() {
+		Arrays.fill(words, 0);
+	}
+
+	public boolean isEmpty() {
+		for (long word : words)
+			if (word != 0) return false;
+
+		return true;
+	}
+
+	public int cardinality() {
+		int result = 0;
+		for (long word : words)
+			result += Long.bitCount(word);
+
+		return result;
+	}
+
+	public int nextSetBit(int fromBit) {
+		int wordIndex = wordIndex(fromBit);
+		if (wordIndex >= words.length) return -1;
+
+		long word = words[wordIndex] & (-1L << fromBit);
+
+		while (true) {
+			if (word != 0) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			if (++wordIndex >= words.length) return -1;
+			word = words[wordIndex];
+		}
+	}
+
+	public int nextClearBit(int fromBit) {
+		int wordIndex = wordIndex(fromBit);
+		if (wordIndex >= words.length) return fromBit;
+
+		long word = ~words[wordIndex] & (-1L << fromBit);
+
+		while (true) {
+			if (word != 0) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+			if (++wordIndex >= words.length) return wordIndex << 6;
+			word = ~words[wordIndex];
+		}
+	}
+
+	public int highestSetBit() {
+		for (int wordIndex = words.length - 1; wordIndex >= 0; wordIndex--) {
+			final long word = words[wordIndex];
+			if (word != 0) return (wordIndex << 6) + (Long.SIZE - 1 - Long.numberOfLeadingZeros(word));
+		}
+
+		return -1;
+	}
+
+	private int getGroup(int group) {
+		final int firstBit = group * BITS_PER_GROUP;
+		final int wordIndex = wordIndex(firstBit);
+		final int shift = firstBit & 63;
+
+		long value = words[wordIndex] >>> shift;
+		if (shift > Long.SIZE - BITS_PER_GROUP && wordIndex + 1 < words.length) value |= words[wordIndex + 1] << (Long.SIZE - shift);
+
+		return (int)value & GROUP_MASK;
+	}
+
+	private void setGroup(int group, int value) {
+		int bit = group * BITS_PER_GROUP;
+		while (value != 0) {
+			if ((value & 1) != 0) set(bit);
+			value >>= 1;
+			bit++;
+		}
+	}
+
+	public void writeToStream(DataOutput output) throws IOException {
+		final int lastGroup = Math.max(highestSetBit(), 0) / BITS_PER_GROUP;
+
+		for (int group = 0; group < lastGroup; group++)
+			output.writeByte(getGroup(group) | CONTINUATION_BIT);
+
+		output.writeByte(getGroup(lastGroup));
+	}
+
+	/**
+	 * Writes mask with bits 0 to count-1 set, without creating it.
+	 */
+	public static void writeFilledMask(DataOutput output, int count) throws IOException {
+		while (count > BITS_PER_GROUP) {
+			output.writeByte(GROUP_MASK | CONTINUATION_BIT);
+			count -= BITS_PER_GROUP;
+		}
+
+		output.writeByte((1 << count) - 1);
+	}
+
+	public void readFromStream(DataInput input) throws IOException {
+		clearAll();
+
+		int group = 0;
+		int b;
+		do {
+			b = input.readUnsignedByte();
+			setGroup(group++, b & GROUP_MASK);
+		} while ((b & CONTINUATION_BIT) != 0);
+	}
+}
@@ -0,0 +1,12 @@
+package openmods.sync;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Syncable object that can send only changes made since last sync to clients that already have its full state.
+ * Both formats must be accepted by {@link #readFromStream(java.io.DataInputStream)}.
+ */
+public interface IDeltaSyncableObject extends ISyncableObject {
+	public void writeDeltaToStream(DataOutputStream stream) throws IOException;
+}
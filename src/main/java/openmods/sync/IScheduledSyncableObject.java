@@ -0,0 +1,8 @@
+package openmods.sync;
+
+/**
+ * Syncable object with own schedule. Used when object is added to {@link SyncMap}, can be overriden with {@link SyncMap#setSchedule(ISyncableObject, SyncSchedule)}.
+ */
+public interface IScheduledSyncableObject extends ISyncableObject {
+	public SyncSchedule getSyncSchedule();
+}
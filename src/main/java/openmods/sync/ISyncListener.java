@@ -3,5 +3,8 @@ package openmods.sync;
 import java.util.Set;
 
 public interface ISyncListener {
+	/**
+	 * @param changes read-only view of changed objects. It's only valid during this call and must not be stored.
+	 */
 	public void onSync(Set<ISyncableObject> changes);
 }
@@ -1,5 +1,6 @@
 package openmods.sync;
 
+import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.internal.FMLProxyPacket;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
@@ -7,8 +8,11 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import java.io.DataInputStream;
+import java.io.IOException;
 import net.minecraft.world.World;
 import openmods.OpenMods;
+import openmods.network.TrafficStats;
+import openmods.network.TrafficStats.Direction;
 
 @Sharable
 public class InboundSyncHandler extends SimpleChannelInboundHandler<FMLProxyPacket> {
@@ -25,7 +29,18 @@ public class InboundSyncHandler extends SimpleChannelInboundHandler<FMLProxyPack
 	protected void channelRead0(ChannelHandlerContext ctx, FMLProxyPacket msg) throws Exception {
 		World world = OpenMods.proxy.getClientWorld();
 
-		ByteBuf payload = msg.payload();
+		ByteBuf frame = msg.payload();
+
+		while (frame.isReadable()) {
+			final int length = ByteBufUtils.readVarInt(frame, 5);
+			final ByteBuf payload = frame.readSlice(length);
+			handlePayload(world, payload);
+		}
+	}
+
+	private static void handlePayload(World world, ByteBuf payload) throws IOException {
+		final long start = TrafficStats.start();
+		final int size = payload.readableBytes();
 		DataInputStream input = new DataInputStream(new ByteBufInputStream(payload));
 
 		ISyncMapProvider provider = SyncMap.findSyncMap(world, input);
@@ -34,5 +49,7 @@ public class InboundSyncHandler extends SimpleChannelInboundHandler<FMLProxyPack
 		} catch (Throwable e) {
 			throw new SyncException(e, provider);
 		}
+
+		if (start != 0 && provider != null) TrafficStats.SYNC.record(Direction.RECEIVED, provider.getClass(), 1, size, start);
 	}
 }
@@ -0,0 +1,53 @@
+package openmods.sync;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.procedure.TIntIntProcedure;
+
+/**
+ * Remembers which users (by entity id) already received full state of SyncMap.
+ * Every update round lists all current users - ones that were not seen are forgotten, so they will get full state again when they return.
+ */
+public class KnownUsersTracker {
+
+	private final TIntIntHashMap lastSeen = new TIntIntHashMap();
+
+	private int generation;
+
+	private int seenInGeneration;
+
+	public void beginUpdate() {
+		// 0 is used as 'no entry' value
+		if (++generation == 0) generation = 1;
+		seenInGeneration = 0;
+	}
+
+	/**
+	 * @return true, if user was not present in previous update round
+	 */
+	public boolean markSeen(int userId) {
+		final int prev = lastSeen.put(userId, generation);
+		if (prev != generation) seenInGeneration++;
+		return prev == lastSeen.getNoEntryValue();
+	}
+
+	public void endUpdate() {
+		if (seenInGeneration < lastSeen.size()) {
+			final int currentGeneration = generation;
+			lastSeen.retainEntries(new TIntIntProcedure() {
+				@Override
+				public boolean execute(int id, int seenGeneration) {
+					return seenGeneration == currentGeneration;
+				}
+			});
+			if (lastSeen.isEmpty()) lastSeen.compact();
+		}
+	}
+
+	public int size() {
+		return lastSeen.size();
+	}
+
+	public int capacity() {
+		return lastSeen.capacity();
+	}
+}
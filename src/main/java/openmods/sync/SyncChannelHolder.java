@@ -1,12 +1,15 @@
 package openmods.sync;
 
 import com.google.common.collect.Maps;
+import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.FMLEmbeddedChannel;
 import cpw.mods.fml.common.network.NetworkRegistry;
 import cpw.mods.fml.common.network.internal.FMLProxyPacket;
 import cpw.mods.fml.relauncher.Side;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -33,12 +36,36 @@ public class SyncChannelHolder {
 		}
 	}
 
+	/**
+	 * Every packet on this channel is a frame: sequence of (varint length, payload) entries, each containing single SyncMap update.
+	 */
+	public static ByteBuf createSingleEntryFrame(ByteBuf payload) {
+		final int length = payload.readableBytes();
+		final ByteBuf frame = Unpooled.wrappedBuffer(new byte[ByteBufUtils.varIntByteCount(length) + length]);
+		frame.clear();
+		ByteBufUtils.writeVarInt(frame, length, 5);
+		frame.writeBytes(payload, payload.readerIndex(), length);
+		return frame;
+	}
+
 	public static Packet createPacket(ByteBuf payload) {
-		return new FMLProxyPacket(payload, CHANNEL_NAME);
+		return createFramePacket(createSingleEntryFrame(payload));
+	}
+
+	public static Packet createFramePacket(ByteBuf frame) {
+		return new FMLProxyPacket(frame, CHANNEL_NAME);
 	}
 
 	public void sendPayloadToPlayers(ByteBuf payload, Collection<EntityPlayerMP> players) {
-		FMLProxyPacket packet = new FMLProxyPacket(payload, CHANNEL_NAME);
+		sendFrameToPlayers(createSingleEntryFrame(payload), players);
+	}
+
+	public void sendFrameToPlayer(ByteBuf frame, EntityPlayerMP player) {
+		sendFrameToPlayers(frame, Collections.singleton(player));
+	}
+
+	public void sendFrameToPlayers(ByteBuf frame, Collection<EntityPlayerMP> players) {
+		FMLProxyPacket packet = new FMLProxyPacket(frame, CHANNEL_NAME);
 		senders.get(Side.SERVER).sendMessage(packet, players);
 	}
 
@@ -0,0 +1,45 @@
+package openmods.sync;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.List;
+
+/**
+ * List of shared frame entries (see {@link SyncMap#createFrameEntry(boolean)}) waiting to be sent to single player.
+ * Entries are not copied until frame is built.
+ */
+public class SyncFrame {
+
+	private final List<ByteBuf> entries = Lists.newArrayList();
+
+	private int size;
+
+	public void add(ByteBuf entry) {
+		entries.add(entry);
+		size += entry.readableBytes();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public ByteBuf build() {
+		// single entry can be sent as it is, since it's already backed by exactly sized array
+		if (entries.size() == 1) return entries.get(0).duplicate();
+
+		final byte[] data = new byte[size];
+		int offset = 0;
+		for (ByteBuf entry : entries) {
+			final int length = entry.readableBytes();
+			entry.getBytes(entry.readerIndex(), data, offset, length);
+			offset += length;
+		}
+
+		return Unpooled.wrappedBuffer(data);
+	}
+}
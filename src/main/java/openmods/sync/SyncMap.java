@@ -4,6 +4,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.collect.UnmodifiableIterator;
 import cpw.mods.fml.common.network.ByteBufUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
@@ -13,8 +14,10 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -25,7 +28,10 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.world.World;
+import openmods.LibConfig;
 import openmods.Log;
+import openmods.network.TrafficStats;
+import openmods.network.TrafficStats.Direction;
 import openmods.utils.ByteUtils;
 
 public abstract class SyncMap<H extends ISyncMapProvider> {
@@ -42,8 +48,6 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 		}
 	}
 
-	private static final int MAX_OBJECT_NUM = Short.SIZE;
-
 	public enum HandlerType {
 		TILE_ENTITY {
 
@@ -110,7 +114,7 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 
 	protected final H handler;
 
-	private Set<Integer> knownUsers = Sets.newHashSet();
+	private final KnownUsersTracker knownUsers = new KnownUsersTracker();
 
 	private ISyncableObject[] objects = new ISyncableObject[16];
 	private Map<String, ISyncableObject> nameMap = Maps.newHashMap();
@@ -121,17 +125,163 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 
 	private int index = 0;
 
+	// objects that extend SyncableObjectBase report changes here, but all objects are still checked with isDirty() before sync
+	// (subclasses may assign deprecated dirty field or override isDirty())
+	private DirtyMask dirtyObjects = new DirtyMask();
+	private DirtyMask spareDirtyObjects = new DirtyMask();
+
+	private final ChangesView changesView = new ChangesView();
+
+	private static final long NEVER_SENT = Long.MIN_VALUE / 2;
+
+	// allocated only when some object has schedule other than SyncSchedule.IMMEDIATE
+	private SyncSchedule[] schedules;
+	private long[] lastSentTick;
+	private SyncSchedule defaultSchedule = SyncSchedule.IMMEDIATE;
+
+	private static class SyncTargets {
+		public final List<EntityPlayerMP> fullPacketTargets = Lists.newArrayList();
+		public final List<EntityPlayerMP> deltaPacketTargets = Lists.newArrayList();
+
+		public void clear() {
+			fullPacketTargets.clear();
+			deltaPacketTargets.clear();
+		}
+	}
+
+	private static final ThreadLocal<SyncTargets> syncTargets = new ThreadLocal<SyncTargets>() {
+		@Override
+		protected SyncTargets initialValue() {
+			return new SyncTargets();
+		}
+	};
+
+	private static final ThreadLocal<DirtyMask> receivedMask = new ThreadLocal<DirtyMask>() {
+		@Override
+		protected DirtyMask initialValue() {
+			return new DirtyMask();
+		}
+	};
+
+	/**
+	 * Read-only view of objects selected by mask. Reused between calls, so listeners must not keep reference to it.
+	 */
+	private class ChangesView extends AbstractSet<ISyncableObject> {
+		private DirtyMask mask;
+
+		@Override
+		public boolean contains(Object o) {
+			final Integer id = objectToId.get(o);
+			return id != null && mask.get(id);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mask.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			return mask.cardinality();
+		}
+
+		@Override
+		public Iterator<ISyncableObject> iterator() {
+			return new UnmodifiableIterator<ISyncableObject>() {
+				private int next = mask.nextSetBit(0);
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				@Override
+				public ISyncableObject next() {
+					if (next < 0) throw new NoSuchElementException();
+					final ISyncableObject result = objects[next];
+					next = mask.nextSetBit(next + 1);
+					return result;
+				}
+			};
+		}
+	}
+
 	protected SyncMap(H handler) {
 		this.handler = handler;
 	}
 
 	public void put(String name, ISyncableObject value) {
-		Preconditions.checkState(index < MAX_OBJECT_NUM, "Can't add more than %s objects", MAX_OBJECT_NUM);
 		int objId = index++;
+		if (objId >= objects.length) {
+			objects = Arrays.copyOf(objects, objects.length * 2);
+			if (schedules != null) ensureSchedulesCapacity();
+		}
 		objects[objId] = value;
 		nameMap.put(name, value);
 		Integer prev = objectToId.put(value, objId);
 		Preconditions.checkState(prev == null, "Object %s registered twice, under ids %s and %s", value, prev, objId);
+
+		if (value instanceof SyncableObjectBase) ((SyncableObjectBase)value).setOwner(this, objId);
+
+		if (value instanceof IScheduledSyncableObject) {
+			final SyncSchedule schedule = ((IScheduledSyncableObject)value).getSyncSchedule();
+			if (schedule != null) setSchedule(objId, schedule);
+		}
+
+		if (value.isDirty()) dirtyObjects.set(objId);
+	}
+
+	private void ensureSchedulesCapacity() {
+		if (schedules == null) {
+			schedules = new SyncSchedule[objects.length];
+			lastSentTick = new long[objects.length];
+			Arrays.fill(lastSentTick, NEVER_SENT);
+		} else if (schedules.length < objects.length) {
+			final int oldLength = schedules.length;
+			schedules = Arrays.copyOf(schedules, objects.length);
+			lastSentTick = Arrays.copyOf(lastSentTick, objects.length);
+			Arrays.fill(lastSentTick, oldLength, objects.length, NEVER_SENT);
+		}
+	}
+
+	/**
+	 * Schedule used for objects without own schedule. Default: {@link SyncSchedule#IMMEDIATE}
+	 */
+	public void setDefaultSchedule(SyncSchedule schedule) {
+		this.defaultSchedule = Preconditions.checkNotNull(schedule);
+		ensureSchedulesCapacity();
+	}
+
+	public void setSchedule(ISyncableObject object, SyncSchedule schedule) {
+		setSchedule(getId(object), schedule);
+	}
+
+	private void setSchedule(int objectId, SyncSchedule schedule) {
+		ensureSchedulesCapacity();
+		schedules[objectId] = schedule;
+	}
+
+	private SyncSchedule getSchedule(int objectId) {
+		final SyncSchedule schedule = schedules[objectId];
+		return schedule != null? schedule : defaultSchedule;
+	}
+
+	void markObjectDirty(int objectId) {
+		dirtyObjects.set(objectId);
+	}
+
+	void markObjectClean(int objectId) {
+		dirtyObjects.clear(objectId);
+	}
+
+	private void collectPolledChanges() {
+		for (int i = 0; i < index; i++) {
+			final boolean isDirty = objects[i].isDirty();
+			if (isDirty != dirtyObjects.get(i)) {
+				if (isDirty) dirtyObjects.set(i);
+				else dirtyObjects.clear(i);
+			}
+		}
 	}
 
 	public ISyncableObject get(String name) {
@@ -159,48 +309,44 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 	}
 
 	public void readFromStream(DataInputStream dis) throws IOException {
-		int mask = dis.readShort();
-		Set<ISyncableObject> changes = Sets.newIdentityHashSet();
-		int currentBit = 0;
-
-		while (mask != 0) {
-			if ((mask & 1) != 0) {
-				final ISyncableObject object = objects[currentBit];
-				if (object != null) {
-					try {
-						object.readFromStream(dis);
-					} catch (Throwable t) {
-						throw new SyncFieldException(t, currentBit);
-					}
-					changes.add(object);
-				}
+		final DirtyMask mask = receivedMask.get();
+		mask.readFromStream(dis);
+
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			if (i >= index) throw new SyncFieldException(new NoSuchElementException(Integer.toString(i)), i);
+			final ISyncableObject object = objects[i];
+			try {
+				object.readFromStream(dis);
+			} catch (Throwable t) {
+				throw new SyncFieldException(t, i);
 			}
-			currentBit++;
-			mask >>= 1;
 		}
 
-		if (!changes.isEmpty()) notifySyncListeners(updateListeners, Collections.unmodifiableSet(changes));
+		if (!mask.isEmpty()) notifySyncListeners(updateListeners, mask);
 	}
 
-	private void writeToStream(DataOutputStream dos, boolean fullPacket) throws IOException {
-		int mask = 0;
-		for (int i = 0; i < index; i++) {
-			final ISyncableObject object = objects[i];
-			if (object != null && (fullPacket || object.isDirty())) {
-				mask = ByteUtils.on(mask, i);
-			}
+	// null changes mask - full packet
+	private void writeToStream(DataOutputStream dos, DirtyMask changes) throws IOException {
+		if (changes == null) {
+			DirtyMask.writeFilledMask(dos, index);
+
+			for (int i = 0; i < index; i++)
+				writeObject(dos, i, false);
+		} else {
+			changes.writeToStream(dos);
+
+			for (int i = changes.nextSetBit(0); i >= 0; i = changes.nextSetBit(i + 1))
+				writeObject(dos, i, true);
 		}
-		dos.writeShort(mask);
+	}
 
-		for (int i = 0; i < index; i++) {
-			final ISyncableObject object = objects[i];
-			if (object != null && (fullPacket || object.isDirty())) {
-				try {
-					object.writeToStream(dos);
-				} catch (Throwable t) {
-					throw new SyncFieldException(t, i);
-				}
-			}
+	private void writeObject(DataOutputStream dos, int objectId, boolean delta) {
+		final ISyncableObject object = objects[objectId];
+		try {
+			if (delta && object instanceof IDeltaSyncableObject) ((IDeltaSyncableObject)object).writeDeltaToStream(dos);
+			else object.writeToStream(dos);
+		} catch (Throwable t) {
+			throw new SyncFieldException(t, objectId);
 		}
 	}
 
@@ -216,72 +362,160 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 		Preconditions.checkState(!getWorld().isRemote, "This method can only be used server side");
 		if (isInvalid()) return;
 
-		Set<ISyncableObject> changes = listChanges();
-		final boolean hasChanges = !changes.isEmpty();
+		collectPolledChanges();
 
-		List<EntityPlayerMP> fullPacketTargets = Lists.newArrayList();
-		List<EntityPlayerMP> deltaPacketTargets = Lists.newArrayList();
+		// swapping masks, so objects marked dirty by listeners (or deferred by schedule) are not lost
+		final DirtyMask changes = dirtyObjects;
+		dirtyObjects = spareDirtyObjects;
+		spareDirtyObjects = changes;
 
-		Set<EntityPlayerMP> players = getPlayersWatching();
-		for (EntityPlayerMP player : players) {
-			if (knownUsers.contains(player.getEntityId())) {
-				if (hasChanges) deltaPacketTargets.add(player);
-			} else {
-				knownUsers.add(player.getEntityId());
-				fullPacketTargets.add(player);
-			}
-		}
+		final SyncScheduler scheduler = SyncScheduler.INSTANCE;
+		final SyncTargets targets = syncTargets.get();
+		final List<EntityPlayerMP> fullPacketTargets = targets.fullPacketTargets;
+		final List<EntityPlayerMP> deltaPacketTargets = targets.deltaPacketTargets;
 
 		try {
-			if (!deltaPacketTargets.isEmpty()) {
-				ByteBuf deltaPayload = createPayload(false);
-				SyncChannelHolder.INSTANCE.sendPayloadToPlayers(deltaPayload, deltaPacketTargets);
+			Set<EntityPlayerMP> players = getPlayersWatching();
+			knownUsers.beginUpdate();
+			for (EntityPlayerMP player : players) {
+				if (knownUsers.markSeen(player.getEntityId())) fullPacketTargets.add(player);
+				else deltaPacketTargets.add(player);
 			}
-		} catch (IOException e) {
-			Log.warn(e, "IOError during delta sync");
-		}
+			knownUsers.endUpdate();
 
-		try {
-			if (!fullPacketTargets.isEmpty()) {
-				ByteBuf deltaPayload = createPayload(true);
-				SyncChannelHolder.INSTANCE.sendPayloadToPlayers(deltaPayload, fullPacketTargets);
+			// nothing is deferred when there is no one to receive it
+			if (schedules != null && !deltaPacketTargets.isEmpty()) deferChanges(changes, deltaPacketTargets);
+
+			try {
+				if (!deltaPacketTargets.isEmpty() && !changes.isEmpty()) {
+					ByteBuf deltaEntry = encode(changes, true);
+					SyncPacketAggregator.INSTANCE.queueFrameEntry(getWorld(), deltaEntry, deltaPacketTargets);
+					scheduler.recordSent(deltaPacketTargets, deltaEntry.readableBytes());
+					scheduler.recordSentUpdates(changes.cardinality());
+				}
+			} catch (IOException e) {
+				Log.warn(e, "IOError during delta sync");
+			}
+
+			try {
+				if (!fullPacketTargets.isEmpty()) {
+					ByteBuf fullEntry = encode(null, true);
+					SyncPacketAggregator.INSTANCE.queueFrameEntry(getWorld(), fullEntry, fullPacketTargets);
+					scheduler.recordSent(fullPacketTargets, fullEntry.readableBytes());
+				}
+			} catch (IOException e) {
+				Log.warn(e, "IOError during full sync");
 			}
-		} catch (IOException e) {
-			Log.warn(e, "IOError during full sync");
+		} finally {
+			targets.clear();
 		}
 
-		if (hasChanges) {
-			unmarkChanges(changes);
-			notifySyncListeners(syncListeners, Collections.unmodifiableSet(changes));
+		if (!changes.isEmpty()) {
+			for (int i = changes.nextSetBit(0); i >= 0; i = changes.nextSetBit(i + 1))
+				objects[i].markClean();
+
+			try {
+				notifySyncListeners(syncListeners, changes);
+			} finally {
+				changes.clearAll();
+			}
 		}
 	}
 
-	private Set<ISyncableObject> listChanges() {
-		Set<ISyncableObject> changes = Sets.newIdentityHashSet();
-		for (int i = 0; i < index; i++) {
-			ISyncableObject obj = objects[i];
-			if (obj != null && obj.isDirty()) changes.add(obj);
+	/**
+	 * Moves changes that are not due yet (or don't fit into byte budget of targets) back to dirty set and schedules next sync for them.
+	 */
+	private void deferChanges(DirtyMask changes, Collection<EntityPlayerMP> targets) {
+		final SyncScheduler scheduler = SyncScheduler.INSTANCE;
+		final long now = scheduler.getCurrentTick();
+		final int budget = LibConfig.syncBytesPerPlayerTick;
+		final int usedBytes = budget > 0? scheduler.getBytesSentInTick(targets) : 0;
+
+		long nextSync = Long.MAX_VALUE;
+		int deferred = 0;
+
+		for (int i = changes.nextSetBit(0); i >= 0; i = changes.nextSetBit(i + 1)) {
+			final SyncSchedule schedule = getSchedule(i);
+			final long dueTick = lastSentTick[i] + schedule.interval;
+
+			if (dueTick > now) {
+				nextSync = Math.min(nextSync, dueTick);
+			} else if (!schedule.priority.fitsBudget(usedBytes, budget)) {
+				nextSync = Math.min(nextSync, now + 1);
+			} else {
+				lastSentTick[i] = now;
+				continue;
+			}
+
+			changes.clear(i);
+			dirtyObjects.set(i);
+			deferred++;
 		}
 
-		return changes;
+		if (deferred > 0) {
+			scheduler.recordDeferredUpdates(deferred);
+			scheduler.scheduleSync(this, nextSync);
+		}
 	}
 
-	private static void unmarkChanges(Set<ISyncableObject> changes) {
-		for (ISyncableObject obj : changes)
-			obj.markClean();
-	}
+	// payloads are encoded in reusable buffer and then copied once to exactly sized array (FML uses backing array when sending)
+	private static final int MAX_RETAINED_SCRATCH_SIZE = 64 * 1024;
 
-	public ByteBuf createPayload(boolean fullPacket) throws IOException {
-		ByteBuf output = Unpooled.buffer();
+	private static final ThreadLocal<ByteBuf> scratchBuffer = new ThreadLocal<ByteBuf>() {
+		@Override
+		protected ByteBuf initialValue() {
+			return Unpooled.buffer(256);
+		}
+	};
 
+	// package-private for SyncPayloadAllocationBenchmark
+	void writePayload(ByteBuf output, DirtyMask changes) throws IOException {
 		HandlerType type = getHandlerType();
 		ByteBufUtils.writeVarInt(output, type.ordinal(), 5);
 
 		DataOutputStream dataOutput = new DataOutputStream(new ByteBufOutputStream(output));
 		type.writeHandlerInfo(handler, dataOutput);
-		writeToStream(dataOutput, fullPacket);
+		writeToStream(dataOutput, changes);
+	}
+
+	private ByteBuf encode(DirtyMask changes, boolean withFrameHeader) throws IOException {
+		final long start = TrafficStats.start();
+		final ByteBuf scratch = scratchBuffer.get();
+		scratch.clear();
 
-		return output.copy();
+		try {
+			writePayload(scratch, changes);
+
+			final int length = scratch.readableBytes();
+			final int headerLength = withFrameHeader? ByteBufUtils.varIntByteCount(length) : 0;
+			final ByteBuf output = Unpooled.wrappedBuffer(new byte[headerLength + length]);
+			output.clear();
+			if (withFrameHeader) ByteBufUtils.writeVarInt(output, length, 5);
+			output.writeBytes(scratch);
+			// encoded once per update, regardless of number of recipients
+			if (start != 0) TrafficStats.SYNC.record(Direction.SENT, handler.getClass(), 1, length, start);
+			return output;
+		} finally {
+			if (scratch.capacity() > MAX_RETAINED_SCRATCH_SIZE) scratchBuffer.remove();
+		}
+	}
+
+	public ByteBuf createPayload(boolean fullPacket) throws IOException {
+		return encode(selectChanges(fullPacket), false);
+	}
+
+	/**
+	 * Creates payload prefixed with length, ready to be used as part of frame sent on {@link SyncChannelHolder#CHANNEL_NAME}.
+	 * Result is backed by exactly sized array, so it can be shared between all recipients.
+	 */
+	public ByteBuf createFrameEntry(boolean fullPacket) throws IOException {
+		return encode(selectChanges(fullPacket), true);
+	}
+
+	private DirtyMask selectChanges(boolean fullPacket) {
+		if (fullPacket) return null;
+		collectPolledChanges();
+		return dirtyObjects;
 	}
 
 	public static ISyncMapProvider findSyncMap(World world, DataInput input) throws IOException {
@@ -319,11 +553,21 @@ public abstract class SyncMap<H extends ISyncMapProvider> {
 			}
 			obj.markClean();
 		}
+
+		dirtyObjects.clearAll();
 	}
 
-	private static void notifySyncListeners(Collection<ISyncListener> listeners, Set<ISyncableObject> allChanges) {
-		for (ISyncListener listener : listeners)
-			listener.onSync(allChanges);
+	private void notifySyncListeners(Collection<ISyncListener> listeners, DirtyMask changes) {
+		if (listeners.isEmpty()) return;
+
+		final DirtyMask prevMask = changesView.mask;
+		changesView.mask = changes;
+		try {
+			for (ISyncListener listener : listeners)
+				listener.onSync(changesView);
+		} finally {
+			changesView.mask = prevMask;
+		}
 	}
 
 	public void addSyncListener(ISyncListener listener) {
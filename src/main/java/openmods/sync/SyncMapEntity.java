@@ -20,7 +20,7 @@ public class SyncMapEntity<H extends Entity & ISyncMapProvider> extends SyncMap<
 
 	@Override
 	protected Set<EntityPlayerMP> getPlayersWatching() {
-		return NetUtils.getPlayersWatchingEntity((WorldServer)handler.worldObj, handler.getEntityId());
+		return NetUtils.getEntityTrackingPlayers((WorldServer)handler.worldObj, handler.getEntityId());
 	}
 
 	@Override
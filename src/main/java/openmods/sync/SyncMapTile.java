@@ -5,7 +5,7 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
-import openmods.utils.NetUtils;
+import openmods.world.ChunkWatchersIndex;
 
 public class SyncMapTile<H extends TileEntity & ISyncMapProvider> extends SyncMap<H> {
 
@@ -20,7 +20,7 @@ public class SyncMapTile<H extends TileEntity & ISyncMapProvider> extends SyncMa
 
 	@Override
 	protected Set<EntityPlayerMP> getPlayersWatching() {
-		return NetUtils.getPlayersWatchingBlock((WorldServer)handler.getWorldObj(), handler.xCoord, handler.zCoord);
+		return ChunkWatchersIndex.instance.getPlayersWatchingBlock((WorldServer)handler.getWorldObj(), handler.xCoord, handler.zCoord);
 	}
 
 	@Override
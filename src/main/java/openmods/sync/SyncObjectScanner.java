@@ -3,13 +3,71 @@ package openmods.sync;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import openmods.Log;
+import openmods.utils.ConcurrentCachedFactory;
 import openmods.utils.FieldsSelector;
+import openmods.utils.SneakyThrower;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Registers all {@link ISyncableObject} fields of object in {@link SyncMap}.
+ * For every scanned class accessor class is generated (similar to {@link openmods.reflection.ClonerFactory}).
+ * Accessible fields are read with direct GETFIELD, others with reflection (same as in {@link FieldsSelector}).
+ */
+public class SyncObjectScanner extends FieldsSelector implements Opcodes {
 
-public class SyncObjectScanner extends FieldsSelector {
 	public static final SyncObjectScanner INSTANCE = new SyncObjectScanner();
 
+	public interface IFieldsRegistrar {
+		public void registerFields(SyncMap<?> map, Object target);
+	}
+
+	private static class RegistrarClassLoader extends ClassLoader {
+		private RegistrarClassLoader() {
+			super(RegistrarClassLoader.class.getClassLoader());
+		}
+
+		public Class<?> define(byte[] data) {
+			return defineClass(null, data, 0, data.length);
+		}
+	}
+
+	private static final String REGISTRAR_DESC = Type.getInternalName(IFieldsRegistrar.class);
+
+	private static final String SCANNER_DESC = Type.getInternalName(SyncObjectScanner.class);
+
+	private static final String REGISTER_FIELD_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(SyncMap.class), Type.getType(String.class), Type.getType(Object.class), Type.getType(Object.class));
+
+	private static final String READ_FIELD_DESC = Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(Field.class), Type.getType(Object.class));
+
+	private static final String FIELDS_DESC = Type.getDescriptor(Field[].class);
+
+	private static final String CTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Field[].class));
+
+	private static final AtomicInteger registrarCounter = new AtomicInteger();
+
+	private final RegistrarClassLoader registrarClassLoader = new RegistrarClassLoader();
+
+	private final ConcurrentCachedFactory<Class<?>, IFieldsRegistrar> registrars = new ConcurrentCachedFactory<Class<?>, IFieldsRegistrar>() {
+		@Override
+		protected IFieldsRegistrar create(Class<?> key) {
+			try {
+				final Field[] fields = getFields(key).toArray(new Field[0]);
+				final byte[] classData = createRegistrarClassData(key, fields);
+				final Class<?> cls = registrarClassLoader.define(classData);
+				return (IFieldsRegistrar)cls.getConstructor(Field[].class).newInstance((Object)fields);
+			} catch (Throwable t) {
+				throw SneakyThrower.sneakyThrow(t);
+			}
+		}
+	};
+
 	@Override
 	protected List<FieldEntry> listFields(Class<?> cls) {
 		List<FieldEntry> result = Lists.newArrayList();
@@ -25,18 +83,110 @@ public class SyncObjectScanner extends FieldsSelector {
 	}
 
 	public void registerAllFields(SyncMap<?> map, Object target) {
-		for (Field field : getFields(target.getClass())) {
-			ISyncableObject obj;
-			try {
-				obj = (ISyncableObject)field.get(target);
-				Preconditions.checkNotNull(obj, "Null field value");
-			} catch (Exception e) {
-				obj = DummySyncableObject.INSTANCE;
-				Log.severe(e, "Exception while registering synced field '%s' of object '%s'", field, target);
+		registrars.getOrCreate(target.getClass()).registerFields(map, target);
+	}
+
+	// called from generated code
+	public static void registerField(SyncMap<?> map, String fieldName, Object value, Object target) {
+		ISyncableObject obj;
+		try {
+			Preconditions.checkNotNull(value, "Null field value");
+			obj = (ISyncableObject)value;
+		} catch (Exception e) {
+			obj = DummySyncableObject.INSTANCE;
+			Log.severe(e, "Exception while registering synced field '%s' of object '%s'", fieldName, target);
+		}
+
+		map.put(fieldName, obj);
+	}
+
+	// called from generated code, only for fields not accessible from generated class (already made accessible by FieldsSelector)
+	public static Object readField(Field field, Object target) {
+		try {
+			return field.get(target);
+		} catch (Throwable t) {
+			throw SneakyThrower.sneakyThrow(t);
+		}
+	}
+
+	private static boolean isAccessible(Class<?> cls) {
+		while (cls != null) {
+			if (!Modifier.isPublic(cls.getModifiers())) return false;
+			cls = cls.getEnclosingClass();
+		}
+
+		return true;
+	}
+
+	private static byte[] createRegistrarClassData(Class<?> cls, Field[] fields) {
+		final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+
+		// unique name, since cache may create registrar for same class more than once
+		final String name = Type.getInternalName(cls) + "$$syncFields$" + registrarCounter.incrementAndGet();
+
+		writer.visit(V1_6, ACC_PUBLIC | ACC_SUPER | ACC_SYNTHETIC, name, null, "java/lang/Object", new String[] { REGISTRAR_DESC });
+		writer.visitSource(".dynamic", null);
+
+		writer.visitField(ACC_PRIVATE | ACC_FINAL | ACC_SYNTHETIC, "fields", FIELDS_DESC, null, null).visitEnd();
+
+		{
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "<init>", CTOR_DESC, null, null);
+			mv.visitCode();
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitFieldInsn(PUTFIELD, name, "fields", FIELDS_DESC);
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		{
+			final Type syncMapType = Type.getType(SyncMap.class);
+			MethodVisitor mv = writer.visitMethod(ACC_PUBLIC | ACC_SYNTHETIC, "registerFields", Type.getMethodDescriptor(Type.VOID_TYPE, syncMapType, Type.getType(Object.class)), null, null);
+			mv.visitCode();
+
+			for (int i = 0; i < fields.length; i++) {
+				final Field f = fields[i];
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitLdcInsn(f.getName());
+				addFieldRead(mv, name, f, i);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitMethodInsn(INVOKESTATIC, SCANNER_DESC, "registerField", REGISTER_FIELD_DESC, false);
 			}
 
-			final String fieldName = field.getName();
-			map.put(fieldName, obj);
+			mv.visitInsn(RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		writer.visitEnd();
+
+		return writer.toByteArray();
+	}
+
+	private static void addFieldRead(MethodVisitor mv, String clsName, Field f, int index) {
+		final Class<?> owner = f.getDeclaringClass();
+		final String ownerName = Type.getInternalName(owner);
+		final String fieldDesc = Type.getDescriptor(f.getType());
+		final boolean isAccessible = Modifier.isPublic(f.getModifiers()) && isAccessible(owner) && isAccessible(f.getType());
+
+		if (isAccessible) {
+			if (Modifier.isStatic(f.getModifiers())) {
+				mv.visitFieldInsn(GETSTATIC, ownerName, f.getName(), fieldDesc);
+			} else {
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitTypeInsn(CHECKCAST, ownerName);
+				mv.visitFieldInsn(GETFIELD, ownerName, f.getName(), fieldDesc);
+			}
+		} else {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, clsName, "fields", FIELDS_DESC);
+			mv.visitLdcInsn(index);
+			mv.visitInsn(AALOAD);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitMethodInsn(INVOKESTATIC, SCANNER_DESC, "readField", READ_FIELD_DESC, false);
 		}
 	}
 
@@ -0,0 +1,83 @@
+package openmods.sync;
+
+import com.google.common.collect.Maps;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent.Phase;
+import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
+import io.netty.buffer.ByteBuf;
+import java.util.Collection;
+import java.util.Map;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.World;
+import openmods.LibConfig;
+
+/**
+ * Collects SyncMap updates produced during server tick and sends them as single frame per player on tick end.
+ * Must be only used from server thread.
+ */
+public class SyncPacketAggregator {
+
+	// keeping frames below vanilla custom payload limit
+	private static final int MAX_FRAME_SIZE = Short.MAX_VALUE - 1024;
+
+	public static final SyncPacketAggregator INSTANCE = new SyncPacketAggregator();
+
+	private SyncPacketAggregator() {}
+
+	private final Map<World, Map<EntityPlayerMP, SyncFrame>> pendingFrames = Maps.newIdentityHashMap();
+
+	private Map<EntityPlayerMP, SyncFrame> getWorldFrames(World world) {
+		Map<EntityPlayerMP, SyncFrame> result = pendingFrames.get(world);
+
+		if (result == null) {
+			result = Maps.newIdentityHashMap();
+			pendingFrames.put(world, result);
+		}
+
+		return result;
+	}
+
+	public void queueFrameEntry(World world, ByteBuf entry, Collection<EntityPlayerMP> players) {
+		if (!LibConfig.aggregateSyncPackets) {
+			SyncChannelHolder.INSTANCE.sendFrameToPlayers(entry, players);
+			return;
+		}
+
+		final Map<EntityPlayerMP, SyncFrame> worldFrames = getWorldFrames(world);
+
+		for (EntityPlayerMP player : players) {
+			SyncFrame frame = worldFrames.get(player);
+
+			if (frame == null) {
+				frame = new SyncFrame();
+				worldFrames.put(player, frame);
+			} else if (frame.size() + entry.readableBytes() > MAX_FRAME_SIZE) {
+				SyncChannelHolder.INSTANCE.sendFrameToPlayer(frame.build(), player);
+				frame = new SyncFrame();
+				worldFrames.put(player, frame);
+			}
+
+			frame.add(entry);
+		}
+	}
+
+	public void flush() {
+		for (Map.Entry<World, Map<EntityPlayerMP, SyncFrame>> worldEntry : pendingFrames.entrySet()) {
+			final World world = worldEntry.getKey();
+
+			for (Map.Entry<EntityPlayerMP, SyncFrame> e : worldEntry.getValue().entrySet()) {
+				final EntityPlayerMP player = e.getKey();
+				// player changed dimension or disconnected since update was queued - it will get full update later
+				if (player.worldObj != world || player.playerNetServerHandler == null) continue;
+				SyncChannelHolder.INSTANCE.sendFrameToPlayer(e.getValue().build(), player);
+			}
+		}
+
+		pendingFrames.clear();
+	}
+
+	@SubscribeEvent
+	public void onServerTick(ServerTickEvent evt) {
+		if (evt.phase == Phase.END) flush();
+	}
+}
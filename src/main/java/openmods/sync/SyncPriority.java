@@ -0,0 +1,20 @@
+package openmods.sync;
+
+/**
+ * Decides what part of per-player byte budget ({@link openmods.LibConfig#syncBytesPerPlayerTick}) can be used before update is moved to next tick.
+ */
+public enum SyncPriority {
+	HIGH(-1),
+	NORMAL(100),
+	LOW(50);
+
+	private final int budgetPercent;
+
+	private SyncPriority(int budgetPercent) {
+		this.budgetPercent = budgetPercent;
+	}
+
+	public boolean fitsBudget(int usedBytes, int budget) {
+		return budgetPercent < 0 || budget <= 0 || usedBytes * 100L < (long)budget * budgetPercent;
+	}
+}
@@ -0,0 +1,38 @@
+package openmods.sync;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Minimal interval between updates of syncable object and its priority.
+ * Changes made before interval passes are coalesced and sent once.
+ */
+public class SyncSchedule {
+
+	public static final int TICKS_PER_SECOND = 20;
+
+	public static final SyncSchedule IMMEDIATE = new SyncSchedule(0, SyncPriority.HIGH);
+
+	public final int interval;
+
+	public final SyncPriority priority;
+
+	public SyncSchedule(int interval, SyncPriority priority) {
+		Preconditions.checkArgument(interval >= 0, "Negative interval");
+		this.interval = interval;
+		this.priority = Preconditions.checkNotNull(priority);
+	}
+
+	public static SyncSchedule everyTicks(int ticks, SyncPriority priority) {
+		return new SyncSchedule(ticks, priority);
+	}
+
+	public static SyncSchedule atFrequency(float hz, SyncPriority priority) {
+		Preconditions.checkArgument(hz > 0, "Frequency must be positive");
+		return new SyncSchedule(Math.round(TICKS_PER_SECOND / hz), priority);
+	}
+
+	@Override
+	public String toString() {
+		return "SyncSchedule [interval=" + interval + ", priority=" + priority + "]";
+	}
+}
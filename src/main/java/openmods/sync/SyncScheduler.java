@@ -0,0 +1,130 @@
+package openmods.sync;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent.Phase;
+import cpw.mods.fml.common.gameevent.TickEvent.ServerTickEvent;
+import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.entity.player.EntityPlayerMP;
+import openmods.Log;
+
+/**
+ * Keeps server tick counter, bytes sent to every player in current tick and list of SyncMaps with deferred changes.
+ * Deferred SyncMaps are synced again at start of tick when their earliest deferred object is due.
+ * Must be only used from server thread.
+ */
+public class SyncScheduler {
+
+	public static final SyncScheduler INSTANCE = new SyncScheduler();
+
+	private SyncScheduler() {}
+
+	private long currentTick;
+
+	private final TIntIntHashMap bytesSentInTick = new TIntIntHashMap();
+
+	private final Map<SyncMap<?>, Long> deferredSyncs = Maps.newIdentityHashMap();
+
+	private final List<SyncMap<?>> dueSyncs = Lists.newArrayList();
+
+	private long sentUpdates;
+
+	private long deferredUpdates;
+
+	private long sentBytes;
+
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+	public int getBytesSentInTick(Collection<EntityPlayerMP> players) {
+		int result = 0;
+		for (EntityPlayerMP player : players)
+			result = Math.max(result, bytesSentInTick.get(player.getEntityId()));
+		return result;
+	}
+
+	void recordSent(Collection<EntityPlayerMP> players, int bytes) {
+		for (EntityPlayerMP player : players)
+			bytesSentInTick.adjustOrPutValue(player.getEntityId(), bytes, bytes);
+		sentBytes += (long)bytes * players.size();
+	}
+
+	void recordSentUpdates(int count) {
+		sentUpdates += count;
+	}
+
+	void recordDeferredUpdates(int count) {
+		deferredUpdates += count;
+	}
+
+	void scheduleSync(SyncMap<?> map, long tick) {
+		final Long prev = deferredSyncs.get(map);
+		if (prev == null || prev > tick) deferredSyncs.put(map, tick);
+	}
+
+	/**
+	 * Number of object updates sent to clients (counted once per SyncMap sync, not per player)
+	 */
+	public long getSentUpdates() {
+		return sentUpdates;
+	}
+
+	/**
+	 * Number of times changed object was not sent due to interval or byte budget
+	 */
+	public long getDeferredUpdates() {
+		return deferredUpdates;
+	}
+
+	public long getSentBytes() {
+		return sentBytes;
+	}
+
+	public int getPendingSyncs() {
+		return deferredSyncs.size();
+	}
+
+	public void resetCounters() {
+		sentUpdates = 0;
+		deferredUpdates = 0;
+		sentBytes = 0;
+	}
+
+	private void runDueSyncs() {
+		for (Iterator<Map.Entry<SyncMap<?>, Long>> it = deferredSyncs.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry<SyncMap<?>, Long> e = it.next();
+			if (e.getValue() <= currentTick) {
+				dueSyncs.add(e.getKey());
+				it.remove();
+			}
+		}
+
+		try {
+			// may reschedule
+			for (SyncMap<?> map : dueSyncs) {
+				try {
+					map.sync();
+				} catch (Throwable t) {
+					Log.warn(t, "Failed to run deferred sync");
+				}
+			}
+		} finally {
+			dueSyncs.clear();
+		}
+	}
+
+	@SubscribeEvent
+	public void onServerTick(ServerTickEvent evt) {
+		if (evt.phase == Phase.START) {
+			currentTick++;
+			bytesSentInTick.clear();
+			if (!deferredSyncs.isEmpty()) runDueSyncs();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package openmods.sync;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import openmods.utils.ByteUtils;
+
+/**
+ * Base for arrays that track modified elements and send them as list of (offset, length, values) ranges.
+ * Whole value is sent when array was replaced, {@link #markDirty()} was called directly or most elements changed.
+ */
+public abstract class SyncableArrayBase extends SyncableObjectBase implements IDeltaSyncableObject {
+
+	private static final int FULL = 0;
+
+	private static final int DELTA = 1;
+
+	private final DirtyMask dirtyElements = new DirtyMask();
+
+	private boolean fullyDirty;
+
+	protected abstract int length();
+
+	protected abstract void writeFull(DataOutputStream stream) throws IOException;
+
+	protected abstract void readFull(DataInputStream stream) throws IOException;
+
+	protected abstract void writeElements(DataOutputStream stream, int offset, int count) throws IOException;
+
+	protected abstract void readElements(DataInputStream stream, int offset, int count) throws IOException;
+
+	protected void markElementDirty(int index) {
+		dirtyElements.set(index);
+		super.markDirty();
+	}
+
+	@Override
+	public void markDirty() {
+		fullyDirty = true;
+		super.markDirty();
+	}
+
+	@Override
+	public void markClean() {
+		fullyDirty = false;
+		dirtyElements.clearAll();
+		super.markClean();
+	}
+
+	@Override
+	public void writeToStream(DataOutputStream stream) throws IOException {
+		stream.writeByte(FULL);
+		writeFull(stream);
+	}
+
+	@Override
+	public void writeDeltaToStream(DataOutputStream stream) throws IOException {
+		if (fullyDirty || dirtyElements.cardinality() > length() / 2) {
+			writeToStream(stream);
+			return;
+		}
+
+		int rangeCount = 0;
+		for (int start = dirtyElements.nextSetBit(0); start >= 0; start = dirtyElements.nextSetBit(dirtyElements.nextClearBit(start)))
+			rangeCount++;
+
+		stream.writeByte(DELTA);
+		ByteUtils.writeVLI(stream, rangeCount);
+
+		int previousEnd = 0;
+		for (int start = dirtyElements.nextSetBit(0); start >= 0; start = dirtyElements.nextSetBit(previousEnd)) {
+			final int end = dirtyElements.nextClearBit(start);
+			ByteUtils.writeVLI(stream, start - previousEnd);
+			ByteUtils.writeVLI(stream, end - start);
+			writeElements(stream, start, end - start);
+			previousEnd = end;
+		}
+	}
+
+	@Override
+	public void readFromStream(DataInputStream stream) throws IOException {
+		final int type = stream.readByte();
+		if (type == FULL) {
+			readFull(stream);
+		} else if (type == DELTA) {
+			final int rangeCount = ByteUtils.readVLI(stream);
+			final int length = length();
+
+			int previousEnd = 0;
+			for (int i = 0; i < rangeCount; i++) {
+				final int start = previousEnd + ByteUtils.readVLI(stream);
+				final int count = ByteUtils.readVLI(stream);
+				if (start + count > length) throw new IOException(String.format("Range %d+%d out of array bounds (length: %d)", start, count, length));
+				readElements(stream, start, count);
+				previousEnd = start + count;
+			}
+		} else {
+			throw new IOException("Invalid array update type: " + type);
+		}
+	}
+}
@@ -4,8 +4,9 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import net.minecraft.nbt.NBTTagCompound;
+import openmods.utils.ByteUtils;
 
-public class SyncableByteArray extends SyncableObjectBase implements ISyncableValueProvider<byte[]> {
+public class SyncableByteArray extends SyncableArrayBase implements ISyncableValueProvider<byte[]> {
 
 	private byte[] value = new byte[0];
 
@@ -22,33 +23,54 @@ public class SyncableByteArray extends SyncableObjectBase implements ISyncableVa
 		}
 	}
 
+	public void setValue(int offset, byte newValue) {
+		if (value[offset] != newValue) {
+			value[offset] = newValue;
+			markElementDirty(offset);
+		}
+	}
+
+	public byte getValue(int offset) {
+		return value[offset];
+	}
+
 	@Override
 	public byte[] getValue() {
 		return value;
 	}
 
 	@Override
-	public void readFromStream(DataInputStream stream) throws IOException {
-		int length = stream.readInt();
+	protected int length() {
+		return value != null? value.length : 0;
+	}
+
+	@Override
+	protected void readFull(DataInputStream stream) throws IOException {
+		int length = ByteUtils.readVLI(stream);
 		value = new byte[length];
-		for (int i = 0; i < length; i++) {
-			value[i] = stream.readByte();
-		}
+		stream.readFully(value);
 	}
 
 	@Override
-	public void writeToStream(DataOutputStream stream)
-			throws IOException {
+	protected void writeFull(DataOutputStream stream) throws IOException {
 		if (value == null) {
-			stream.writeInt(0);
+			ByteUtils.writeVLI(stream, 0);
 		} else {
-			stream.writeInt(value.length);
-			for (byte element : value) {
-				stream.writeByte(element);
-			}
+			ByteUtils.writeVLI(stream, value.length);
+			stream.write(value);
 		}
 	}
 
+	@Override
+	protected void readElements(DataInputStream stream, int offset, int count) throws IOException {
+		stream.readFully(value, offset, count);
+	}
+
+	@Override
+	protected void writeElements(DataOutputStream stream, int offset, int count) throws IOException {
+		stream.write(value, offset, count);
+	}
+
 	@Override
 	public void writeToNBT(NBTTagCompound nbt, String name) {
 		nbt.setByteArray(name, value);
@@ -179,7 +179,7 @@ public abstract class SyncableFlags extends SyncableObjectBase implements IRpcIn
 	@Override
 	public void markClean() {
 		previousValue = value;
-		dirty = false;
+		super.markClean();
 	}
 
 	@Override
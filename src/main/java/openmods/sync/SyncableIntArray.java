@@ -5,8 +5,9 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import net.minecraft.nbt.NBTTagCompound;
+import openmods.utils.ByteUtils;
 
-public class SyncableIntArray extends SyncableObjectBase implements ISyncableValueProvider<int[]> {
+public class SyncableIntArray extends SyncableArrayBase implements ISyncableValueProvider<int[]> {
 
 	private int[] value;
 
@@ -28,7 +29,7 @@ public class SyncableIntArray extends SyncableObjectBase implements ISyncableVal
 	public void setValue(int offset, int newValue) {
 		if (value[offset] != newValue) {
 			value[offset] = newValue;
-			markDirty();
+			markElementDirty(offset);
 		}
 	}
 
@@ -51,8 +52,13 @@ public class SyncableIntArray extends SyncableObjectBase implements ISyncableVal
 	}
 
 	@Override
-	public void readFromStream(DataInputStream stream) throws IOException {
-		int length = stream.readInt();
+	protected int length() {
+		return size();
+	}
+
+	@Override
+	protected void readFull(DataInputStream stream) throws IOException {
+		int length = ByteUtils.readVLI(stream);
 		value = new int[length];
 		for (int i = 0; i < length; i++) {
 			value[i] = stream.readInt();
@@ -60,13 +66,25 @@ public class SyncableIntArray extends SyncableObjectBase implements ISyncableVal
 	}
 
 	@Override
-	public void writeToStream(DataOutputStream stream) throws IOException {
-		stream.writeInt(size());
+	protected void writeFull(DataOutputStream stream) throws IOException {
+		ByteUtils.writeVLI(stream, size());
 		for (int i = 0; i < size(); i++) {
 			stream.writeInt(value[i]);
 		}
 	}
 
+	@Override
+	protected void readElements(DataInputStream stream, int offset, int count) {
+		for (int i = offset; i < offset + count; i++)
+			value[i] = ByteUtils.readSignedVLI(stream);
+	}
+
+	@Override
+	protected void writeElements(DataOutputStream stream, int offset, int count) {
+		for (int i = offset; i < offset + count; i++)
+			ByteUtils.writeSignedVLI(stream, value[i]);
+	}
+
 	@Override
 	public void writeToNBT(NBTTagCompound tag, String name) {
 		tag.setIntArray(name, value);
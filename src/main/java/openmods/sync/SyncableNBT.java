@@ -1,21 +1,50 @@
 package openmods.sync;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import openmods.utils.ByteUtils;
+import openmods.utils.io.NbtStreamReader;
+import openmods.utils.io.NbtStreamWriter;
+import openmods.utils.io.NbtTreeBuilder;
+import openmods.utils.io.NbtTreeWalker;
 
 /***
- * Note: you must manually .markDirty() right now
+ * Changes made with {@link #setTag(NBTBase, String...)} and {@link #removeTag(String...)} are sent to clients as per-path operations.
+ * {@link #setValue(NBTTagCompound)} and {@link #markDirty()} cause whole tag to be sent.
+ * {@link #getValue()} returns current tag (not a copy), so it can be modified directly, but then {@link #markDirty()} must be called.
  */
-public class SyncableNBT extends SyncableObjectBase implements ISyncableValueProvider<NBTTagCompound> {
+public class SyncableNBT extends SyncableObjectBase implements ISyncableValueProvider<NBTTagCompound>, IDeltaSyncableObject {
+
+	private static final int FULL = 0;
+
+	private static final int DELTA = 1;
+
+	private static final int OP_SET = 0;
+
+	private static final int OP_REMOVE = 1;
+
+	private static final int MAX_CHANGED_PATHS = 64;
+
+	// same as limit in CompressedStreamTools.readCompressed
+	private static final long MAX_DELTA_SIZE = 2097152L;
 
 	private NBTTagCompound tag;
 
+	private final Set<List<String>> changedPaths = Sets.newLinkedHashSet();
+
+	private boolean fullyDirty;
+
 	public SyncableNBT() {
 		tag = new NBTTagCompound();
 	}
@@ -26,26 +55,143 @@ public class SyncableNBT extends SyncableObjectBase implements ISyncableValuePro
 
 	@Override
 	public NBTTagCompound getValue() {
-		return (NBTTagCompound)tag.copy();
+		return tag;
 	}
 
 	public void setValue(NBTTagCompound tag) {
-		this.tag = (NBTTagCompound)tag.copy();
+		replaceTag((NBTTagCompound)tag.copy());
+		markDirty();
+	}
+
+	private void replaceTag(NBTTagCompound tag) {
+		this.tag = tag;
+	}
+
+	public void setTag(NBTBase value, String... path) {
+		getOrCreateParent(path).setTag(path[path.length - 1], value.copy());
+		markPathDirty(path);
+	}
+
+	public void removeTag(String... path) {
+		final NBTTagCompound parent = getParent(tag, path);
+		if (parent != null && parent.hasKey(path[path.length - 1])) {
+			parent.removeTag(path[path.length - 1]);
+			markPathDirty(path);
+		}
+	}
+
+	private NBTTagCompound getOrCreateParent(String[] path) {
+		if (tag == null) replaceTag(new NBTTagCompound());
+
+		NBTTagCompound result = tag;
+		for (int i = 0; i < path.length - 1; i++) {
+			NBTBase child = result.getTag(path[i]);
+			if (!(child instanceof NBTTagCompound)) {
+				child = new NBTTagCompound();
+				result.setTag(path[i], child);
+			}
+			result = (NBTTagCompound)child;
+		}
+		return result;
+	}
+
+	private static NBTTagCompound getParent(NBTTagCompound root, List<String> path) {
+		NBTTagCompound result = root;
+		for (int i = 0; i < path.size() - 1 && result != null; i++) {
+			final NBTBase child = result.getTag(path.get(i));
+			result = (child instanceof NBTTagCompound)? (NBTTagCompound)child : null;
+		}
+		return result;
+	}
+
+	private static NBTTagCompound getParent(NBTTagCompound root, String[] path) {
+		return getParent(root, ImmutableList.copyOf(path));
+	}
+
+	private static boolean isPrefix(List<String> prefix, List<String> path) {
+		return prefix.size() <= path.size() && prefix.equals(path.subList(0, prefix.size()));
+	}
+
+	private void markPathDirty(String[] path) {
+		if (!fullyDirty) {
+			final List<String> changedPath = ImmutableList.copyOf(path);
+
+			// operation on parent path will also send this change
+			for (Iterator<List<String>> it = changedPaths.iterator(); it.hasNext();) {
+				final List<String> existing = it.next();
+				if (isPrefix(existing, changedPath)) {
+					super.markDirty();
+					return;
+				}
+				if (isPrefix(changedPath, existing)) it.remove();
+			}
+
+			changedPaths.add(changedPath);
+			if (changedPaths.size() > MAX_CHANGED_PATHS) fullyDirty = true;
+		}
+
+		super.markDirty();
+	}
+
+	@Override
+	public void markDirty() {
+		fullyDirty = true;
+		super.markDirty();
+	}
+
+	@Override
+	public void markClean() {
+		fullyDirty = false;
+		changedPaths.clear();
+		super.markClean();
 	}
 
 	@Override
 	public void readFromStream(DataInputStream stream) throws IOException {
+		final int type = stream.readByte();
+		if (type == FULL) readFull(stream);
+		else if (type == DELTA) readDelta(stream);
+		else throw new IOException("Invalid NBT update type: " + type);
+	}
+
+	private void readFull(DataInputStream stream) throws IOException {
 		int length = ByteUtils.readVLI(stream);
 		if (length > 0) {
-			tag = CompressedStreamTools.readCompressed(ByteStreams.limit(stream, length));
+			replaceTag(CompressedStreamTools.readCompressed(ByteStreams.limit(stream, length)));
 		} else {
-			tag = null;
+			replaceTag(null);
 		}
+	}
+
+	private void readDelta(DataInputStream stream) throws IOException {
+		// limit is shared by all values in update
+		final NbtStreamReader valueReader = new NbtStreamReader(stream, MAX_DELTA_SIZE);
+		final int opCount = ByteUtils.readVLI(stream);
+		for (int op = 0; op < opCount; op++) {
+			final int type = stream.readByte();
+			final String[] path = new String[ByteUtils.readVLI(stream)];
+			if (path.length == 0) throw new IOException("Empty NBT path");
+			for (int i = 0; i < path.length; i++)
+				path[i] = stream.readUTF();
 
+			final String key = path[path.length - 1];
+			if (type == OP_SET) {
+				final int tagType = stream.readByte();
+				final NbtTreeBuilder builder = new NbtTreeBuilder();
+				valueReader.acceptPayload(tagType, builder);
+				getOrCreateParent(path).setTag(key, builder.getResult());
+			} else if (type == OP_REMOVE) {
+				final NBTTagCompound parent = getParent(tag, path);
+				if (parent != null) parent.removeTag(key);
+			} else {
+				throw new IOException("Invalid NBT operation: " + type);
+			}
+		}
 	}
 
 	@Override
 	public void writeToStream(DataOutputStream stream) throws IOException {
+		stream.writeByte(FULL);
 		if (tag != null) {
 			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 			CompressedStreamTools.writeCompressed(tag, buffer);
@@ -58,14 +204,41 @@ public class SyncableNBT extends SyncableObjectBase implements ISyncableValuePro
 		}
 	}
 
+	@Override
+	public void writeDeltaToStream(DataOutputStream stream) throws IOException {
+		if (fullyDirty || tag == null) {
+			writeToStream(stream);
+			return;
+		}
+
+		stream.writeByte(DELTA);
+		final NbtStreamWriter valueWriter = new NbtStreamWriter(stream, MAX_DELTA_SIZE);
+		ByteUtils.writeVLI(stream, changedPaths.size());
+		for (List<String> path : changedPaths) {
+			final String key = path.get(path.size() - 1);
+			final NBTTagCompound parent = getParent(tag, path);
+			final NBTBase value = parent != null? parent.getTag(key) : null;
+
+			stream.writeByte(value != null? OP_SET : OP_REMOVE);
+			ByteUtils.writeVLI(stream, path.size());
+			for (String element : path)
+				stream.writeUTF(element);
+
+			if (value != null) {
+				stream.writeByte(value.getId());
+				NbtTreeWalker.accept(value, valueWriter);
+			}
+		}
+	}
+
 	@Override
 	public void writeToNBT(NBTTagCompound nbt, String name) {
-		nbt.setTag(name, nbt);
+		if (tag != null) nbt.setTag(name, tag.copy());
 	}
 
 	@Override
 	public void readFromNBT(NBTTagCompound nbt, String name) {
-		nbt.getCompoundTag(name);
+		replaceTag(nbt.getCompoundTag(name));
 	}
 
 }
@@ -1,9 +1,26 @@
 package openmods.sync;
 
+/**
+ * Changes made with {@link #markDirty()} and {@link #markClean()} are reported to owning {@link SyncMap} immediately.
+ * Owner still checks {@link #isDirty()} before sync, so subclasses that assign {@link #dirty} directly keep working.
+ */
 public abstract class SyncableObjectBase implements ISyncableObject {
 
+	/**
+	 * @deprecated use {@link #markDirty()} and {@link #markClean()}, so change is visible to owner before next sync
+	 */
+	@Deprecated
 	protected boolean dirty = false;
 
+	private SyncMap<?> owner;
+
+	private int ownerId;
+
+	void setOwner(SyncMap<?> owner, int ownerId) {
+		this.owner = owner;
+		this.ownerId = ownerId;
+	}
+
 	@Override
 	public boolean isDirty() {
 		return dirty;
@@ -12,10 +29,12 @@ public abstract class SyncableObjectBase implements ISyncableObject {
 	@Override
 	public void markClean() {
 		dirty = false;
+		if (owner != null) owner.markObjectClean(ownerId);
 	}
 
 	@Override
 	public void markDirty() {
 		dirty = true;
+		if (owner != null) owner.markObjectDirty(ownerId);
 	}
 }
@@ -80,8 +80,8 @@ public abstract class SyncedTileEntity extends OpenTileEntity implements ISyncMa
 	@Override
 	public Packet getDescriptionPacket() {
 		try {
-			ByteBuf payload = syncMap.createPayload(true);
-			return SyncChannelHolder.createPacket(payload);
+			ByteBuf frame = syncMap.createFrameEntry(true);
+			return SyncChannelHolder.createFramePacket(frame);
 		} catch (IOException e) {
 			Log.severe(e, "Error during description packet creation");
 			return null;
@@ -121,6 +121,28 @@ public class ByteUtils {
 		return result;
 	}
 
+	/**
+	 * Zigzag encoded VLI: small negative values are stored as short as small positive ones
+	 */
+	public static void writeSignedVLI(DataOutput output, int value) {
+		int encoded = (value << 1) ^ (value >> 31);
+
+		try {
+			while ((encoded & ~0x7F) != 0) {
+				output.writeByte((encoded & 0x7F) | 0x80);
+				encoded >>>= 7;
+			}
+			output.writeByte(encoded);
+		} catch (IOException e) {
+			Throwables.propagate(e);
+		}
+	}
+
+	public static int readSignedVLI(DataInput input) {
+		final int encoded = readVLI(input);
+		return (encoded >>> 1) ^ -(encoded & 1);
+	}
+
 	public static int nextPowerOf2(int v) {
 		v--;
 		v |= v >> 1;
@@ -0,0 +1,30 @@
+package openmods.utils;
+
+import com.google.common.collect.Maps;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lock-free variant of {@link CachedFactory}. Value may be created more than once when multiple threads ask for same key, but only one is ever returned.
+ */
+public abstract class ConcurrentCachedFactory<K, V> {
+
+	private final ConcurrentMap<K, V> cache = Maps.newConcurrentMap();
+
+	public V getOrCreate(K key) {
+		V value = cache.get(key);
+
+		if (value == null) {
+			final V newValue = create(key);
+			value = cache.putIfAbsent(key, newValue);
+			if (value == null) value = newValue;
+		}
+
+		return value;
+	}
+
+	public V remove(K key) {
+		return cache.remove(key);
+	}
+
+	protected abstract V create(K key);
+}
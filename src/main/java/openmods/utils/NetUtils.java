@@ -1,13 +1,11 @@
 package openmods.utils;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
-import cpw.mods.fml.relauncher.ReflectionHelper;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
-import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.Set;
 import net.minecraft.entity.EntityTracker;
 import net.minecraft.entity.EntityTrackerEntry;
@@ -16,6 +14,8 @@ import net.minecraft.server.management.PlayerManager;
 import net.minecraft.util.IntHashMap;
 import net.minecraft.world.WorldServer;
 import openmods.Log;
+import openmods.network.IDispatcherVisitor;
+import openmods.reflection.FieldAccess;
 
 public class NetUtils {
 
@@ -24,28 +24,43 @@ public class NetUtils {
 		return dispatcher;
 	}
 
-	private static Field trackingPlayers;
+	/**
+	 * Calls visitor for every connected player. Disconnected players are logged and skipped.
+	 */
+	public static void visitPlayerDispatchers(Collection<EntityPlayerMP> players, IDispatcherVisitor visitor) {
+		for (EntityPlayerMP player : players)
+			visitPlayerDispatcher(player, visitor);
+	}
 
-	public static Set<EntityPlayerMP> getPlayersWatchingEntity(WorldServer server, int entityId) {
-		EntityTracker tracker = server.getEntityTracker();
+	public static void visitPlayerDispatcher(EntityPlayerMP player, IDispatcherVisitor visitor) {
+		NetworkDispatcher dispatcher = getPlayerDispatcher(player);
+		if (dispatcher != null) visitor.visit(dispatcher);
+		else Log.info("Trying to send message to disconnected player %s", player);
+	}
 
-		if (trackingPlayers == null) trackingPlayers = ReflectionHelper.findField(EntityTracker.class, "trackedEntityIDs", "field_72794_c");
+	private static FieldAccess<IntHashMap> trackedEntityIDs;
 
-		IntHashMap trackers;
-		try {
-			trackers = (IntHashMap)trackingPlayers.get(tracker);
-		} catch (Exception e) {
-			throw Throwables.propagate(e);
-		}
+	private static IntHashMap getTrackedEntities(EntityTracker tracker) {
+		if (trackedEntityIDs == null) trackedEntityIDs = FieldAccess.create(EntityTracker.class, "trackedEntityIDs", "field_72794_c");
+		return trackedEntityIDs.get(tracker);
+	}
 
-		EntityTrackerEntry entry = (EntityTrackerEntry)trackers.lookup(entityId);
+	/**
+	 * Returns live set of players tracking entity (not a copy) - it must not be modified or kept.
+	 */
+	public static Set<EntityPlayerMP> getEntityTrackingPlayers(WorldServer server, int entityId) {
+		EntityTrackerEntry entry = (EntityTrackerEntry)getTrackedEntities(server.getEntityTracker()).lookup(entityId);
 
 		if (entry == null) return ImmutableSet.of();
 
 		@SuppressWarnings({ "unchecked" })
 		Set<EntityPlayerMP> trackingPlayers = entry.trackingPlayers;
 
-		return ImmutableSet.copyOf(trackingPlayers);
+		return trackingPlayers;
+	}
+
+	public static Set<EntityPlayerMP> getPlayersWatchingEntity(WorldServer server, int entityId) {
+		return ImmutableSet.copyOf(getEntityTrackingPlayers(server, entityId));
 	}
 
 	public static Set<EntityPlayerMP> getPlayersWatchingChunk(WorldServer world, int chunkX, int chunkZ) {
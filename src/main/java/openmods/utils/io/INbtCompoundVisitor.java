@@ -0,0 +1,12 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+
+public interface INbtCompoundVisitor {
+	/**
+	 * @return visitor for entry value or null, if value should be skipped
+	 */
+	public INbtVisitor visitEntry(int type, String name) throws IOException;
+
+	public void visitEnd() throws IOException;
+}
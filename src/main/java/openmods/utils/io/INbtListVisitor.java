@@ -0,0 +1,12 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+
+public interface INbtListVisitor {
+	/**
+	 * @return visitor for element or null, if element should be skipped
+	 */
+	public INbtVisitor visitElement(int index) throws IOException;
+
+	public void visitEnd() throws IOException;
+}
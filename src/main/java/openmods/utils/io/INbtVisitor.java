@@ -0,0 +1,37 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+
+/**
+ * Receives contents of single NBT tag, without building tree. See {@link NbtStreamReader}, {@link NbtStreamWriter} and {@link NbtTreeWalker}.
+ * Type constants are same as in {@link net.minecraftforge.common.util.Constants.NBT}.
+ */
+public interface INbtVisitor {
+	public void visitByte(byte value) throws IOException;
+
+	public void visitShort(short value) throws IOException;
+
+	public void visitInt(int value) throws IOException;
+
+	public void visitLong(long value) throws IOException;
+
+	public void visitFloat(float value) throws IOException;
+
+	public void visitDouble(double value) throws IOException;
+
+	public void visitByteArray(byte[] value) throws IOException;
+
+	public void visitString(String value) throws IOException;
+
+	public void visitIntArray(int[] value) throws IOException;
+
+	/**
+	 * @return visitor for entries or null, if contents should be skipped
+	 */
+	public INbtCompoundVisitor visitCompound() throws IOException;
+
+	/**
+	 * @return visitor for elements or null, if contents should be skipped
+	 */
+	public INbtListVisitor visitList(int elementType, int size) throws IOException;
+}
@@ -0,0 +1,11 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+
+public class NbtSizeLimitException extends IOException {
+	private static final long serialVersionUID = -2957356126397621487L;
+
+	public NbtSizeLimitException(long size, long limit) {
+		super(String.format("NBT data too big: %d bytes, limit %d", size, limit));
+	}
+}
@@ -0,0 +1,256 @@
+package openmods.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Reads NBT in format used by {@link net.minecraft.nbt.CompressedStreamTools} and passes it to visitors, without building tree.
+ * Skipped values (when visitor returns null) are not decoded. Every read byte is counted and {@link NbtSizeLimitException} is thrown when limit is exceeded,
+ * before allocating arrays or strings.
+ */
+public class NbtStreamReader {
+
+	public static final int MAX_DEPTH = 512;
+
+	private final DataInput input;
+
+	private final long maxBytes;
+
+	private long bytesRead;
+
+	private int depth;
+
+	public NbtStreamReader(DataInput input, long maxBytes) {
+		this.input = input;
+		this.maxBytes = maxBytes;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	private void account(long bytes) throws NbtSizeLimitException {
+		bytesRead += bytes;
+		if (bytesRead > maxBytes) throw new NbtSizeLimitException(bytesRead, maxBytes);
+	}
+
+	/**
+	 * Reads named root compound, which is passed to visitor as single entry.
+	 */
+	public void acceptRoot(INbtCompoundVisitor visitor) throws IOException {
+		account(1);
+		final int type = input.readByte();
+		if (type != Constants.NBT.TAG_COMPOUND) throw new IOException("Root tag must be a named compound tag, got " + type);
+		final String name = readString();
+		acceptPayload(type, visitor.visitEntry(type, name));
+		visitor.visitEnd();
+	}
+
+	/**
+	 * Reads tag contents (without type and name), visitor may be null.
+	 */
+	public void acceptPayload(int type, INbtVisitor visitor) throws IOException {
+		switch (type) {
+			case Constants.NBT.TAG_BYTE: {
+				account(1);
+				final byte value = input.readByte();
+				if (visitor != null) visitor.visitByte(value);
+				break;
+			}
+			case Constants.NBT.TAG_SHORT: {
+				account(2);
+				final short value = input.readShort();
+				if (visitor != null) visitor.visitShort(value);
+				break;
+			}
+			case Constants.NBT.TAG_INT: {
+				account(4);
+				final int value = input.readInt();
+				if (visitor != null) visitor.visitInt(value);
+				break;
+			}
+			case Constants.NBT.TAG_LONG: {
+				account(8);
+				final long value = input.readLong();
+				if (visitor != null) visitor.visitLong(value);
+				break;
+			}
+			case Constants.NBT.TAG_FLOAT: {
+				account(4);
+				final float value = input.readFloat();
+				if (visitor != null) visitor.visitFloat(value);
+				break;
+			}
+			case Constants.NBT.TAG_DOUBLE: {
+				account(8);
+				final double value = input.readDouble();
+				if (visitor != null) visitor.visitDouble(value);
+				break;
+			}
+			case Constants.NBT.TAG_BYTE_ARRAY: {
+				final int length = readArrayLength(1);
+				if (visitor != null) visitor.visitByteArray(StreamUtils.readBytes(input, length));
+				else StreamUtils.skipBytes(input, length);
+				break;
+			}
+			case Constants.NBT.TAG_STRING: {
+				if (visitor != null) visitor.visitString(readString());
+				else skipString();
+				break;
+			}
+			case Constants.NBT.TAG_INT_ARRAY: {
+				final int length = readArrayLength(4);
+				if (visitor != null) {
+					final int[] value = new int[length];
+					ByteBuffer.wrap(StreamUtils.readBytes(input, length * 4)).asIntBuffer().get(value);
+					visitor.visitIntArray(value);
+				} else {
+					StreamUtils.skipBytes(input, length * 4);
+				}
+				break;
+			}
+			case Constants.NBT.TAG_LIST:
+				enter();
+				acceptList(visitor);
+				depth--;
+				break;
+			case Constants.NBT.TAG_COMPOUND:
+				enter();
+				acceptCompound(visitor);
+				depth--;
+				break;
+			default:
+				throw new IOException("Invalid NBT tag type: " + type);
+		}
+	}
+
+	private void enter() throws IOException {
+		if (++depth > MAX_DEPTH) throw new IOException("NBT tag too deep, limit " + MAX_DEPTH);
+	}
+
+	private void acceptList(INbtVisitor visitor) throws IOException {
+		account(5);
+		final int elementType = input.readByte();
+		final int size = input.readInt();
+		if (size < 0) throw new IOException("Invalid NBT list size: " + size);
+		// every element other than TAG_END takes at least one byte, so size limit also bounds this loop
+		if (elementType == Constants.NBT.TAG_END && size != 0) throw new IOException("Non-empty NBT list with TAG_END elements");
+
+		final INbtListVisitor elements = visitor != null? visitor.visitList(elementType, size) : null;
+		for (int i = 0; i < size; i++)
+			acceptPayload(elementType, elements != null? elements.visitElement(i) : null);
+
+		if (elements != null) elements.visitEnd();
+	}
+
+	private void acceptCompound(INbtVisitor visitor) throws IOException {
+		final INbtCompoundVisitor entries = visitor != null? visitor.visitCompound() : null;
+
+		while (true) {
+			account(1);
+			final int type = input.readByte();
+			if (type == Constants.NBT.TAG_END) break;
+
+			final String name = readString();
+			acceptPayload(type, entries != null? entries.visitEntry(type, name) : null);
+		}
+
+		if (entries != null) entries.visitEnd();
+	}
+
+	private int readArrayLength(int elementSize) throws IOException {
+		account(4);
+		final int length = input.readInt();
+		if (length < 0) throw new IOException("Invalid NBT array length: " + length);
+		account((long)length * elementSize);
+		return length;
+	}
+
+	private String readString() throws IOException {
+		account(2);
+		final int length = input.readUnsignedShort();
+		account(length);
+
+		// DataInput.readUTF reads length by itself, so it has to be put back
+		final byte[] bytes = new byte[length + 2];
+		bytes[0] = (byte)(length >> 8);
+		bytes[1] = (byte)length;
+		input.readFully(bytes, 2, length);
+		return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+	}
+
+	private void skipString() throws IOException {
+		account(2);
+		final int length = input.readUnsignedShort();
+		account(length);
+		StreamUtils.skipBytes(input, length);
+	}
+
+	public static NBTTagCompound read(DataInput input, long maxBytes) throws IOException {
+		final NbtTreeBuilder builder = new NbtTreeBuilder();
+		new NbtStreamReader(input, maxBytes).acceptRoot(new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, String name) {
+				return builder;
+			}
+
+			@Override
+			public void visitEnd() {}
+		});
+
+		return (NBTTagCompound)builder.getResult();
+	}
+
+	/**
+	 * Reads single tag from compound tree. Other values are skipped without decoding.
+	 *
+	 * @return selected tag or null, if not found
+	 */
+	public static NBTBase readPath(DataInput input, long maxBytes, final String... path) throws IOException {
+		final NbtTreeBuilder builder = new NbtTreeBuilder();
+		new NbtStreamReader(input, maxBytes).acceptRoot(new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, String name) {
+				return path.length > 0? new PathSelector(path, 0, builder) : builder;
+			}
+
+			@Override
+			public void visitEnd() {}
+		});
+
+		return builder.getResult();
+	}
+
+	private static class PathSelector extends NbtVisitorAdapter {
+		private final String[] path;
+		private final int index;
+		private final NbtTreeBuilder builder;
+
+		public PathSelector(String[] path, int index, NbtTreeBuilder builder) {
+			this.path = path;
+			this.index = index;
+			this.builder = builder;
+		}
+
+		@Override
+		public INbtCompoundVisitor visitCompound() {
+			return new INbtCompoundVisitor() {
+				@Override
+				public INbtVisitor visitEntry(int type, String name) {
+					if (!name.equals(path[index])) return null;
+					if (index == path.length - 1) return builder;
+					return new PathSelector(path, index + 1, builder);
+				}
+
+				@Override
+				public void visitEnd() {}
+			};
+		}
+	}
+}
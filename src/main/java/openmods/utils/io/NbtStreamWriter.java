@@ -0,0 +1,173 @@
+package openmods.utils.io;
+
+import com.google.common.base.Preconditions;
+import java.io.DataOutput;
+import java.io.IOException;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Writes visited values in format used by {@link net.minecraft.nbt.CompressedStreamTools}, so data can be written directly from objects, without building tags.
+ * Throws {@link NbtSizeLimitException} when output would exceed limit.
+ */
+public class NbtStreamWriter implements INbtVisitor {
+
+	private final DataOutput output;
+
+	private final long maxBytes;
+
+	private long bytesWritten;
+
+	public NbtStreamWriter(DataOutput output, long maxBytes) {
+		this.output = output;
+		this.maxBytes = maxBytes;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	private void account(long bytes) throws NbtSizeLimitException {
+		bytesWritten += bytes;
+		if (bytesWritten > maxBytes) throw new NbtSizeLimitException(bytesWritten, maxBytes);
+	}
+
+	/**
+	 * Returns visitor for named root tag. Only single compound entry should be written.
+	 */
+	public INbtCompoundVisitor visitRoot() {
+		return new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, String name) throws IOException {
+				Preconditions.checkArgument(type == Constants.NBT.TAG_COMPOUND, "Root tag must be compound");
+				writeHeader(type, name);
+				return NbtStreamWriter.this;
+			}
+
+			@Override
+			public void visitEnd() {}
+		};
+	}
+
+	private void writeHeader(int type, String name) throws IOException {
+		account(1);
+		output.writeByte(type);
+		writeString(name);
+	}
+
+	private void writeString(String value) throws IOException {
+		account(2 + utfLength(value));
+		output.writeUTF(value);
+	}
+
+	private static int utfLength(String value) {
+		// same as in DataOutputStream.writeUTF
+		int result = 0;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) result++;
+			else if (c > 0x07FF) result += 3;
+			else result += 2;
+		}
+		return result;
+	}
+
+	@Override
+	public void visitByte(byte value) throws IOException {
+		account(1);
+		output.writeByte(value);
+	}
+
+	@Override
+	public void visitShort(short value) throws IOException {
+		account(2);
+		output.writeShort(value);
+	}
+
+	@Override
+	public void visitInt(int value) throws IOException {
+		account(4);
+		output.writeInt(value);
+	}
+
+	@Override
+	public void visitLong(long value) throws IOException {
+		account(8);
+		output.writeLong(value);
+	}
+
+	@Override
+	public void visitFloat(float value) throws IOException {
+		account(4);
+		output.writeFloat(value);
+	}
+
+	@Override
+	public void visitDouble(double value) throws IOException {
+		account(8);
+		output.writeDouble(value);
+	}
+
+	@Override
+	public void visitByteArray(byte[] value) throws IOException {
+		account(4 + value.length);
+		output.writeInt(value.length);
+		output.write(value);
+	}
+
+	@Override
+	public void visitString(String value) throws IOException {
+		writeString(value);
+	}
+
+	@Override
+	public void visitIntArray(int[] value) throws IOException {
+		account(4 + 4L * value.length);
+		output.writeInt(value.length);
+		for (int i : value)
+			output.writeInt(i);
+	}
+
+	@Override
+	public INbtCompoundVisitor visitCompound() {
+		return new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, String name) throws IOException {
+				writeHeader(type, name);
+				return NbtStreamWriter.this;
+			}
+
+			@Override
+			public void visitEnd() throws IOException {
+				account(1);
+				output.writeByte(Constants.NBT.TAG_END);
+			}
+		};
+	}
+
+	@Override
+	public INbtListVisitor visitList(int elementType, final int size) throws IOException {
+		account(5);
+		output.writeByte(elementType);
+		output.writeInt(size);
+
+		return new INbtListVisitor() {
+			private int count;
+
+			@Override
+			public INbtVisitor visitElement(int index) {
+				count++;
+				return NbtStreamWriter.this;
+			}
+
+			@Override
+			public void visitEnd() {
+				Preconditions.checkState(count == size, "Declared %s list elements, but got %s", size, count);
+			}
+		};
+	}
+
+	public static void write(NBTTagCompound tag, DataOutput output, long maxBytes) throws IOException {
+		NbtTreeWalker.acceptRoot(tag, "", new NbtStreamWriter(output, maxBytes).visitRoot());
+	}
+}
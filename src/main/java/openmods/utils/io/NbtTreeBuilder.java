@@ -0,0 +1,118 @@
+package openmods.utils.io;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+
+/**
+ * Builds tag from visited values. Used for parts of stream that have to be materialized.
+ */
+public class NbtTreeBuilder implements INbtVisitor {
+
+	private NBTBase result;
+
+	public NBTBase getResult() {
+		return result;
+	}
+
+	protected void setResult(NBTBase tag) {
+		this.result = tag;
+	}
+
+	@Override
+	public void visitByte(byte value) {
+		setResult(new NBTTagByte(value));
+	}
+
+	@Override
+	public void visitShort(short value) {
+		setResult(new NBTTagShort(value));
+	}
+
+	@Override
+	public void visitInt(int value) {
+		setResult(new NBTTagInt(value));
+	}
+
+	@Override
+	public void visitLong(long value) {
+		setResult(new NBTTagLong(value));
+	}
+
+	@Override
+	public void visitFloat(float value) {
+		setResult(new NBTTagFloat(value));
+	}
+
+	@Override
+	public void visitDouble(double value) {
+		setResult(new NBTTagDouble(value));
+	}
+
+	@Override
+	public void visitByteArray(byte[] value) {
+		setResult(new NBTTagByteArray(value));
+	}
+
+	@Override
+	public void visitString(String value) {
+		setResult(new NBTTagString(value));
+	}
+
+	@Override
+	public void visitIntArray(int[] value) {
+		setResult(new NBTTagIntArray(value));
+	}
+
+	@Override
+	public INbtCompoundVisitor visitCompound() {
+		// containers are attached to parent before they are filled
+		final NBTTagCompound tag = new NBTTagCompound();
+		setResult(tag);
+		return new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, final String name) {
+				return new NbtTreeBuilder() {
+					@Override
+					protected void setResult(NBTBase value) {
+						tag.setTag(name, value);
+					}
+				};
+			}
+
+			@Override
+			public void visitEnd() {}
+		};
+	}
+
+	@Override
+	public INbtListVisitor visitList(int elementType, int size) {
+		final NBTTagList tag = new NBTTagList();
+		setResult(tag);
+		final NbtTreeBuilder elementBuilder = new NbtTreeBuilder() {
+			@Override
+			protected void setResult(NBTBase value) {
+				tag.appendTag(value);
+			}
+		};
+
+		return new INbtListVisitor() {
+			@Override
+			public INbtVisitor visitElement(int index) {
+				return elementBuilder;
+			}
+
+			@Override
+			public void visitEnd() {}
+		};
+	}
+}
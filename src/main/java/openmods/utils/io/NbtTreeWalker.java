@@ -0,0 +1,88 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+import openmods.reflection.FieldAccess;
+
+/**
+ * Passes existing tag to visitors, for example to write it with {@link NbtStreamWriter} without copying.
+ */
+public class NbtTreeWalker {
+
+	private static final FieldAccess<Map<String, NBTBase>> TAG_MAP = FieldAccess.create(NBTTagCompound.class, "tagMap", "field_74784_a");
+
+	private static final FieldAccess<List<NBTBase>> TAG_LIST = FieldAccess.create(NBTTagList.class, "tagList", "field_74747_a");
+
+	public static void acceptRoot(NBTTagCompound tag, String name, INbtCompoundVisitor visitor) throws IOException {
+		final INbtVisitor rootVisitor = visitor.visitEntry(Constants.NBT.TAG_COMPOUND, name);
+		if (rootVisitor != null) accept(tag, rootVisitor);
+		visitor.visitEnd();
+	}
+
+	public static void accept(NBTBase tag, INbtVisitor visitor) throws IOException {
+		switch (tag.getId()) {
+			case Constants.NBT.TAG_BYTE:
+				visitor.visitByte(((NBTBase.NBTPrimitive)tag).func_150290_f());
+				break;
+			case Constants.NBT.TAG_SHORT:
+				visitor.visitShort(((NBTBase.NBTPrimitive)tag).func_150289_e());
+				break;
+			case Constants.NBT.TAG_INT:
+				visitor.visitInt(((NBTBase.NBTPrimitive)tag).func_150287_d());
+				break;
+			case Constants.NBT.TAG_LONG:
+				visitor.visitLong(((NBTBase.NBTPrimitive)tag).func_150291_c());
+				break;
+			case Constants.NBT.TAG_FLOAT:
+				visitor.visitFloat(((NBTBase.NBTPrimitive)tag).func_150288_h());
+				break;
+			case Constants.NBT.TAG_DOUBLE:
+				visitor.visitDouble(((NBTBase.NBTPrimitive)tag).func_150286_g());
+				break;
+			case Constants.NBT.TAG_BYTE_ARRAY:
+				visitor.visitByteArray(((NBTTagByteArray)tag).func_150292_c());
+				break;
+			case Constants.NBT.TAG_STRING:
+				visitor.visitString(((NBTTagString)tag).func_150285_a_());
+				break;
+			case Constants.NBT.TAG_INT_ARRAY:
+				visitor.visitIntArray(((NBTTagIntArray)tag).func_150302_c());
+				break;
+			case Constants.NBT.TAG_LIST: {
+				final NBTTagList list = (NBTTagList)tag;
+				final List<NBTBase> elements = TAG_LIST.get(list);
+				final INbtListVisitor elementsVisitor = visitor.visitList(list.func_150303_d(), elements.size());
+				if (elementsVisitor != null) {
+					for (int i = 0; i < elements.size(); i++) {
+						final INbtVisitor elementVisitor = elementsVisitor.visitElement(i);
+						if (elementVisitor != null) accept(elements.get(i), elementVisitor);
+					}
+					elementsVisitor.visitEnd();
+				}
+				break;
+			}
+			case Constants.NBT.TAG_COMPOUND: {
+				final INbtCompoundVisitor entriesVisitor = visitor.visitCompound();
+				if (entriesVisitor != null) {
+					for (Map.Entry<String, NBTBase> e : TAG_MAP.get(tag).entrySet()) {
+						final NBTBase value = e.getValue();
+						final INbtVisitor entryVisitor = entriesVisitor.visitEntry(value.getId(), e.getKey());
+						if (entryVisitor != null) accept(value, entryVisitor);
+					}
+					entriesVisitor.visitEnd();
+				}
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Invalid tag: " + tag);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package openmods.utils.io;
+
+import java.io.IOException;
+
+/**
+ * Visitor that ignores all values and skips contents of compounds and lists. Override only needed methods.
+ */
+public class NbtVisitorAdapter implements INbtVisitor {
+
+	@Override
+	public void visitByte(byte value) throws IOException {}
+
+	@Override
+	public void visitShort(short value) throws IOException {}
+
+	@Override
+	public void visitInt(int value) throws IOException {}
+
+	@Override
+	public void visitLong(long value) throws IOException {}
+
+	@Override
+	public void visitFloat(float value) throws IOException {}
+
+	@Override
+	public void visitDouble(double value) throws IOException {}
+
+	@Override
+	public void visitByteArray(byte[] value) throws IOException {}
+
+	@Override
+	public void visitString(String value) throws IOException {}
+
+	@Override
+	public void visitIntArray(int[] value) throws IOException {}
+
+	@Override
+	public INbtCompoundVisitor visitCompound() throws IOException {
+		return null;
+	}
+
+	@Override
+	public INbtListVisitor visitList(int elementType, int size) throws IOException {
+		return null;
+	}
+}
@@ -1,27 +1,92 @@
 package openmods.utils.io;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 import com.google.common.collect.Maps;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
-import com.google.common.primitives.UnsignedBytes;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Chunk format: number of chunks (unsigned byte). If there is more than one chunk: chunk index (unsigned byte) and packet id (varint).
+ * Incomplete packets are collected in {@link Reassembler}, which should be created for every connection.
+ */
 public class PacketChunker {
 
-	private byte packetId = 0;
-
-	private final Map<Byte, byte[][]> chunks = Maps.newHashMap();
+	private final AtomicInteger packetId = new AtomicInteger();
 
 	public static final int MAX_CHUNK_SIZE = Short.MAX_VALUE - 100;
 
 	public static final int PACKET_SIZE_S3F = 0x001FFFF0;
 	public static final int PACKET_SIZE_C17 = 0x00007FFF;
 
+	public static final int DEFAULT_MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
+
+	public static final int DEFAULT_MAX_PENDING_PACKETS = 64;
+
+	public static final long DEFAULT_TIMEOUT_MS = 30000;
+
+	// bytes charged for every incomplete packet and for every chunk it declares, so chunks with no payload still count towards limit
+	public static final int PACKET_OVERHEAD = 64;
+
+	public static final int CHUNK_OVERHEAD = 48;
+
+	private final int maxBufferedBytes;
+
+	private final int maxPendingPackets;
+
+	private final long timeoutNs;
+
+	private final Ticker ticker;
+
+	private final AtomicLong droppedFragments = new AtomicLong();
+
+	private final AtomicLong expiredFragments = new AtomicLong();
+
+	private Reassembler defaultReassembler;
+
+	public PacketChunker() {
+		this(DEFAULT_MAX_BUFFERED_BYTES, DEFAULT_MAX_PENDING_PACKETS, DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS, Ticker.systemTicker());
+	}
+
+	public PacketChunker(int maxBufferedBytes, long timeout, TimeUnit unit, Ticker ticker) {
+		this(maxBufferedBytes, DEFAULT_MAX_PENDING_PACKETS, timeout, unit, ticker);
+	}
+
+	/**
+	 * @param maxBufferedBytes
+	 *            limit of bytes in incomplete packets kept by single {@link Reassembler} (including {@link #PACKET_OVERHEAD} and {@link #CHUNK_OVERHEAD})
+	 * @param maxPendingPackets
+	 *            limit of incomplete packets kept by single {@link Reassembler}
+	 * @param timeout
+	 *            time after which incomplete packet is discarded, counted from first received chunk
+	 */
+	public PacketChunker(int maxBufferedBytes, int maxPendingPackets, long timeout, TimeUnit unit, Ticker ticker) {
+		Preconditions.checkArgument(maxBufferedBytes > 0, "Invalid buffer size: %s", maxBufferedBytes);
+		Preconditions.checkArgument(maxPendingPackets > 0, "Invalid packet limit: %s", maxPendingPackets);
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.maxPendingPackets = maxPendingPackets;
+		this.timeoutNs = unit.toNanos(timeout);
+		this.ticker = ticker;
+	}
+
+	public long getDroppedFragments() {
+		return droppedFragments.get();
+	}
+
+	public long getExpiredFragments() {
+		return expiredFragments.get();
+	}
+
 	/***
 	 * Split a byte array into one or more chunks with headers
 	 *
@@ -29,34 +94,47 @@ public class PacketChunker {
 	 * @return the list of chunks
 	 */
 	public byte[][] splitIntoChunks(byte[] data, int maxChunkSize) {
+		final ByteBuf[] chunks = splitIntoChunks(Unpooled.wrappedBuffer(data), maxChunkSize);
+		final byte[][] result = new byte[chunks.length][];
+
+		for (int i = 0; i < chunks.length; i++)
+			result[i] = toArray(chunks[i]);
 
-		final int numChunks = (data.length + maxChunkSize - 1) / maxChunkSize;
+		return result;
+	}
+
+	/***
+	 * Split readable bytes of buffer into one or more chunks with headers.
+	 * Chunks are composed of header and slice of original buffer (no data is copied), so it must not be modified or released while chunks are in use.
+	 */
+	public ByteBuf[] splitIntoChunks(ByteBuf data, int maxChunkSize) {
+		final int length = data.readableBytes();
+		final int numChunks = Math.max(1, (length + maxChunkSize - 1) / maxChunkSize);
 		Preconditions.checkArgument(numChunks < 256, "%s chunks? Way too much data, man.", numChunks);
-		byte[][] result = new byte[numChunks][];
+		ByteBuf[] result = new ByteBuf[numChunks];
+
+		final int id = numChunks > 1? packetId.getAndIncrement() & Integer.MAX_VALUE : 0;
 
-		int chunkOffset = 0;
+		int chunkOffset = data.readerIndex();
 		for (int chunkIndex = 0; chunkIndex < numChunks; chunkIndex++) {
 			// size of the current chunk
-			int chunkSize = Math.min(data.length - chunkOffset, maxChunkSize);
+			int chunkSize = Math.min(data.writerIndex() - chunkOffset, maxChunkSize);
 
-			ByteArrayDataOutput buf = ByteStreams.newDataOutput(maxChunkSize);
-
-			buf.writeByte(numChunks);
+			ByteBuf header = Unpooled.buffer(7);
+			header.writeByte(numChunks);
 			if (numChunks > 1) {
-				buf.writeByte(chunkIndex);
-				buf.writeByte(packetId);
+				header.writeByte(chunkIndex);
+				ByteBufUtils.writeVarInt(header, id, 5);
 			}
 
-			buf.write(data, chunkOffset, chunkSize);
-			result[chunkIndex] = buf.toByteArray();
+			result[chunkIndex] = Unpooled.wrappedBuffer(header, data.slice(chunkOffset, chunkSize));
 			chunkOffset += chunkSize;
 		}
-		packetId++;
 		return result;
 	}
 
 	public byte[] consumeChunk(byte[] payload) throws IOException {
-		return consumeChunk(ByteStreams.newDataInput(payload), payload.length);
+		return toArray(consumeChunk(Unpooled.wrappedBuffer(payload)));
 	}
 
 	public byte[] consumeChunk(InputStream stream, int payloadLength) throws IOException {
@@ -64,51 +142,172 @@ public class PacketChunker {
 		return consumeChunk(data, payloadLength);
 	}
 
-	/***
-	 * Get the bytes from the packet. If the total packet is not yet complete
-	 * (and we're waiting for more to complete the sequence), we return null.
-	 * Otherwise we return the full byte array
-	 *
-	 * @param payload
-	 *            one of the chunks
-	 * @return the full byte array or null if not complete
+	public byte[] consumeChunk(DataInput input, int payloadLength) throws IOException {
+		byte[] payload = new byte[payloadLength];
+		input.readFully(payload);
+		return consumeChunk(payload);
+	}
+
+	private static byte[] toArray(ByteBuf buf) {
+		if (buf == null) return null;
+		byte[] result = new byte[buf.readableBytes()];
+		buf.readBytes(result);
+		return result;
+	}
+
+	/**
+	 * Consumes chunk using reassembler shared by all callers. Should be used only when there is single source of chunks.
 	 */
-	public synchronized byte[] consumeChunk(DataInput input, int payloadLength) throws IOException {
-		int numChunks = UnsignedBytes.toInt(input.readByte());
+	public ByteBuf consumeChunk(ByteBuf chunk) {
+		synchronized (this) {
+			if (defaultReassembler == null) defaultReassembler = createReassembler();
+		}
+		return defaultReassembler.consumeChunk(chunk);
+	}
+
+	public Reassembler createReassembler() {
+		return new Reassembler();
+	}
+
+	private static class PartialPacket {
+		public final ByteBuf[] chunks;
 
-		if (numChunks == 1) {
-			byte[] payload = new byte[payloadLength - 1];
-			input.readFully(payload);
-			return payload;
+		public final long deadline;
+
+		public int received;
+
+		public int size;
+
+		public PartialPacket(int numChunks, long deadline) {
+			this.chunks = new ByteBuf[numChunks];
+			this.deadline = deadline;
 		}
+	}
 
-		int chunkIndex = UnsignedBytes.toInt(input.readByte());
-		byte incomingPacketId = input.readByte();
+	/**
+	 * Keeps incomplete packets from single source. Packets are dropped when they don't complete before timeout or when buffer or packet limit is reached (oldest first).
+	 */
+	public class Reassembler {
 
-		byte[][] alreadyReceived = chunks.get(incomingPacketId);
+		// all packets have same timeout, so insertion order is also deadline order
+		private final Map<Integer, PartialPacket> packets = Maps.newLinkedHashMap();
+
+		private int bufferedBytes;
+
+		private Reassembler() {}
+
+		public synchronized int getBufferedBytes() {
+			return bufferedBytes;
+		}
 
-		if (alreadyReceived == null) {
-			alreadyReceived = new byte[numChunks][];
-			chunks.put(incomingPacketId, alreadyReceived);
+		public synchronized int getPendingPackets() {
+			return packets.size();
 		}
 
-		byte[] chunkBytes = new byte[payloadLength - 3];
-		input.readFully(chunkBytes);
+		/***
+		 * Get the bytes from the packet. If the total packet is not yet complete
+		 * (and we're waiting for more to complete the sequence), we return null.
+		 * Otherwise we return buffer with full payload.
+		 * Result is made of slices of received chunks (joined with composite buffer), so they must not be modified or released while it's in use.
+		 *
+		 * @param chunk
+		 *            one of the chunks
+		 * @return the full payload or null if not complete (or dropped)
+		 */
+		public synchronized ByteBuf consumeChunk(ByteBuf chunk) {
+			int numChunks = chunk.readUnsignedByte();
 
-		alreadyReceived[chunkIndex] = chunkBytes;
+			if (numChunks == 1) return chunk.slice();
 
-		for (byte[] s : alreadyReceived)
-			if (s == null) return null; // not completed yet
+			final long now = ticker.read();
+			expire(now);
 
-		ByteArrayDataOutput fullPacket = ByteStreams.newDataOutput();
+			int chunkIndex = chunk.readUnsignedByte();
+			int incomingPacketId = ByteBufUtils.readVarInt(chunk, 5);
+			final int chunkSize = chunk.readableBytes();
 
-		for (short i = 0; i < numChunks; i++) {
-			byte[] chunkPart = alreadyReceived[i];
-			fullPacket.write(chunkPart);
+			if (chunkIndex >= numChunks) {
+				droppedFragments.incrementAndGet();
+				return null;
+			}
+
+			PartialPacket packet = packets.get(incomingPacketId);
+
+			if (packet == null) {
+				final int packetCost = PACKET_OVERHEAD + numChunks * CHUNK_OVERHEAD;
+				if (!makeSpace(packetCost, 1, null)) {
+					droppedFragments.incrementAndGet();
+					return null;
+				}
+				packet = new PartialPacket(numChunks, now + timeoutNs);
+				packet.size = packetCost;
+				bufferedBytes += packetCost;
+				packets.put(incomingPacketId, packet);
+			} else if (packet.chunks.length != numChunks || packet.chunks[chunkIndex] != null) {
+				droppedFragments.incrementAndGet();
+				return null;
+			}
+
+			if (packet.received + 1 < numChunks) {
+				if (!makeSpace(chunkSize, 0, packet)) {
+					// even dropping all other packets is not enough
+					droppedFragments.addAndGet(packet.received + 1);
+					bufferedBytes -= packet.size;
+					packets.remove(incomingPacketId);
+					return null;
+				}
+				packet.chunks[chunkIndex] = chunk.slice();
+				packet.received++;
+				packet.size += chunkSize;
+				bufferedBytes += chunkSize;
+				return null;
+			}
+
+			packet.chunks[chunkIndex] = chunk.slice();
+			packets.remove(incomingPacketId);
+			bufferedBytes -= packet.size;
+
+			return Unpooled.wrappedBuffer(packet.chunks);
 		}
 
-		chunks.remove(incomingPacketId);
+		/**
+		 * Removes incomplete packets that timed out. Also called on every received chunk.
+		 */
+		public synchronized void expire() {
+			expire(ticker.read());
+		}
 
-		return fullPacket.toByteArray();
+		private void expire(long now) {
+			final Iterator<PartialPacket> it = packets.values().iterator();
+			while (it.hasNext()) {
+				final PartialPacket packet = it.next();
+				if (packet.deadline - now > 0) break;
+				expiredFragments.addAndGet(packet.received);
+				bufferedBytes -= packet.size;
+				it.remove();
+			}
+		}
+
+		private boolean makeSpace(int size, int newPackets, PartialPacket current) {
+			final Iterator<PartialPacket> it = packets.values().iterator();
+			while (bufferedBytes + size > maxBufferedBytes || packets.size() + newPackets > maxPendingPackets) {
+				PartialPacket oldest = null;
+				while (it.hasNext()) {
+					final PartialPacket packet = it.next();
+					if (packet != current) {
+						oldest = packet;
+						break;
+					}
+				}
+
+				if (oldest == null) return false;
+
+				droppedFragments.addAndGet(oldest.received);
+				bufferedBytes -= oldest.size;
+				it.remove();
+			}
+
+			return true;
+		}
 	}
 }
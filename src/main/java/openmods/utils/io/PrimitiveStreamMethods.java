@@ -0,0 +1,62 @@
+package openmods.utils.io;
+
+import org.objectweb.asm.Type;
+
+/**
+ * Names and descriptors of {@link java.io.DataOutput} and {@link java.io.DataInput} methods for primitive types, for use in generated code.
+ * Format is same as primitive serializers in {@link TypeRW}.
+ */
+public class PrimitiveStreamMethods {
+
+	public static final String DATA_OUTPUT_CLS = Type.getInternalName(java.io.DataOutput.class);
+
+	public static final String DATA_INPUT_CLS = Type.getInternalName(java.io.DataInput.class);
+
+	private static String getTypeName(Type type) {
+		switch (type.getSort()) {
+			case Type.BOOLEAN:
+				return "Boolean";
+			case Type.BYTE:
+				return "Byte";
+			case Type.CHAR:
+				return "Char";
+			case Type.SHORT:
+				return "Short";
+			case Type.INT:
+				return "Int";
+			case Type.LONG:
+				return "Long";
+			case Type.FLOAT:
+				return "Float";
+			case Type.DOUBLE:
+				return "Double";
+			default:
+				throw new IllegalArgumentException("Not primitive type: " + type);
+		}
+	}
+
+	public static String getWriteMethod(Type type) {
+		return "write" + getTypeName(type);
+	}
+
+	public static String getWriteDesc(Type type) {
+		switch (type.getSort()) {
+			case Type.BOOLEAN:
+			case Type.LONG:
+			case Type.FLOAT:
+			case Type.DOUBLE:
+				return Type.getMethodDescriptor(Type.VOID_TYPE, type);
+			default:
+				// writeByte, writeShort and writeChar take int
+				return Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE);
+		}
+	}
+
+	public static String getReadMethod(Type type) {
+		return "read" + getTypeName(type);
+	}
+
+	public static String getReadDesc(Type type) {
+		return Type.getMethodDescriptor(type);
+	}
+}
@@ -32,4 +32,17 @@ public class StreamUtils {
 
 		return buffer;
 	}
+
+	public static void skipBytes(DataInput stream, int count) throws IOException {
+		while (count > 0) {
+			final int skipped = stream.skipBytes(count);
+			if (skipped > 0) {
+				count -= skipped;
+			} else {
+				// skipBytes may give up before end of stream, readByte will throw EOFException if stream really ended
+				stream.readByte();
+				count--;
+			}
+		}
+	}
 }
@@ -1,5 +1,6 @@
 package openmods.utils.io;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import java.io.DataInput;
@@ -16,10 +17,62 @@ import net.minecraft.nbt.NBTTagInt;
 import net.minecraft.nbt.NBTTagLong;
 import net.minecraft.nbt.NBTTagShort;
 import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
 import openmods.utils.ByteUtils;
 
 public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<T>, IStringSerializer<T> {
 
+	/**
+	 * @return type of tag written by {@link #writeToNbtVisitor(Object, INbtVisitor)} or {@link Constants.NBT#TAG_END}, if not known before conversion
+	 */
+	public int getTagType() {
+		return Constants.NBT.TAG_END;
+	}
+
+	/**
+	 * Default implementation creates tag with {@link #writeToNBT(Object, NBTTagCompound, String)}, override to visit value directly.
+	 */
+	public void writeToNbtVisitor(T o, INbtVisitor visitor) throws IOException {
+		NbtTreeWalker.accept(toTag(o), visitor);
+	}
+
+	private NBTBase toTag(T o) {
+		final NBTTagCompound wrapper = new NBTTagCompound();
+		writeToNBT(o, wrapper, "value");
+		return wrapper.getTag("value");
+	}
+
+	/**
+	 * Writes value as entry of compound visited by {@link NbtStreamWriter}. Built-in serializers do it without creating tags.
+	 */
+	public void writeToNbtStream(T o, INbtCompoundVisitor compound, String name) throws IOException {
+		final int tagType = getTagType();
+		if (tagType != Constants.NBT.TAG_END) {
+			final INbtVisitor visitor = compound.visitEntry(tagType, name);
+			if (visitor != null) writeToNbtVisitor(o, visitor);
+		} else {
+			final NBTBase tag = toTag(o);
+			final INbtVisitor visitor = compound.visitEntry(tag.getId(), name);
+			if (visitor != null) NbtTreeWalker.accept(tag, visitor);
+		}
+	}
+
+	/**
+	 * Reads single value from serialized compound (see {@link NbtStreamReader#readPath(DataInput, long, String...)}), other entries are skipped.
+	 *
+	 * @return value or null, if entry is missing or has different type
+	 */
+	public T readFromNbtStream(DataInput input, long maxBytes, String... path) throws IOException {
+		Preconditions.checkArgument(path.length > 0, "Empty path");
+		final NBTBase tag = NbtStreamReader.readPath(input, maxBytes, path);
+		if (tag == null || !checkTagType(tag)) return null;
+
+		final String name = path[path.length - 1];
+		final NBTTagCompound wrapper = new NBTTagCompound();
+		wrapper.setTag(name, tag);
+		return readFromNBT(wrapper, name);
+	}
+
 	public static final TypeRW<Integer> INTEGER = new TypeRW<Integer>() {
 
 		@Override
@@ -37,6 +90,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagInt;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_INT;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Integer o, INbtVisitor visitor) throws IOException {
+			visitor.visitInt(o);
+		}
+
 		@Override
 		public Integer readFromNBT(NBTTagCompound tag, String name) {
 			return tag.getInteger(name);
@@ -74,6 +137,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagFloat;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_FLOAT;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Float o, INbtVisitor visitor) throws IOException {
+			visitor.visitFloat(o);
+		}
+
 		@Override
 		public void writeToStream(Float o, DataOutput output) throws IOException {
 			output.writeFloat(o);
@@ -112,6 +185,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagDouble;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_DOUBLE;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Double o, INbtVisitor visitor) throws IOException {
+			visitor.visitDouble(o);
+		}
+
 		@Override
 		public void writeToStream(Double o, DataOutput output) throws IOException {
 			output.writeDouble(o);
@@ -149,6 +232,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagString;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_STRING;
+		}
+
+		@Override
+		public void writeToNbtVisitor(String o, INbtVisitor visitor) throws IOException {
+			visitor.visitString(Strings.nullToEmpty(o));
+		}
+
 		@Override
 		public void writeToStream(String o, DataOutput output) throws IOException {
 			output.writeUTF(Strings.nullToEmpty(o));
@@ -182,6 +275,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagShort;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_SHORT;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Short o, INbtVisitor visitor) throws IOException {
+			visitor.visitShort(o);
+		}
+
 		@Override
 		public void writeToStream(Short o, DataOutput output) throws IOException {
 			output.writeShort(o);
@@ -219,6 +322,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagByte;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_BYTE;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Byte o, INbtVisitor visitor) throws IOException {
+			visitor.visitByte(o);
+		}
+
 		@Override
 		public void writeToStream(Byte o, DataOutput output) throws IOException {
 			output.writeByte(o);
@@ -256,6 +369,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagByte;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_BYTE;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Boolean o, INbtVisitor visitor) throws IOException {
+			visitor.visitByte(o? (byte)1 : (byte)0);
+		}
+
 		@Override
 		public void writeToStream(Boolean o, DataOutput output) throws IOException {
 			output.writeBoolean(o);
@@ -292,6 +415,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 			return tag instanceof NBTTagLong;
 		}
 
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_LONG;
+		}
+
+		@Override
+		public void writeToNbtVisitor(Long o, INbtVisitor visitor) throws IOException {
+			visitor.visitLong(o);
+		}
+
 		@Override
 		public void writeToStream(Long o, DataOutput output) throws IOException {
 			output.writeLong(o);
@@ -347,6 +480,16 @@ public abstract class TypeRW<T> implements INBTSerializer<T>, IStreamSerializer<
 		public boolean checkTagType(NBTBase tag) {
 			return tag instanceof NBTTagByteArray;
 		}
+
+		@Override
+		public int getTagType() {
+			return Constants.NBT.TAG_BYTE_ARRAY;
+		}
+
+		@Override
+		public void writeToNbtVisitor(byte[] o, INbtVisitor visitor) throws IOException {
+			visitor.visitByteArray(o);
+		}
 	};
 
 	public static final IStreamSerializer<Integer> VLI_SERIALIZABLE = new IStreamSerializer<Integer>() {
@@ -0,0 +1,110 @@
+package openmods.world;
+
+import com.google.common.collect.ImmutableSet;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerManager;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.event.world.ChunkWatchEvent;
+import net.minecraftforge.event.world.WorldEvent;
+
+/**
+ * Caches players watching chunk. Every entry is calculated at most once per world tick (or after chunk watch state changes),
+ * so multiple tiles in single chunk share single scan of player list.
+ */
+public class ChunkWatchersIndex {
+
+	private static class WorldIndex {
+		private final TLongObjectMap<Set<EntityPlayerMP>> watchers = new TLongObjectHashMap<Set<EntityPlayerMP>>();
+
+		private long lastTick = -1;
+
+		public synchronized Set<EntityPlayerMP> getPlayersWatchingChunk(WorldServer world, int chunkX, int chunkZ) {
+			final long tick = world.getTotalWorldTime();
+			if (tick != lastTick) {
+				watchers.clear();
+				lastTick = tick;
+			}
+
+			final long key = ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ);
+			Set<EntityPlayerMP> result = watchers.get(key);
+
+			if (result == null) {
+				result = findPlayersWatchingChunk(world, chunkX, chunkZ);
+				watchers.put(key, result);
+			}
+
+			return result;
+		}
+
+		public synchronized void invalidate(int chunkX, int chunkZ) {
+			watchers.remove(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ));
+		}
+	}
+
+	public static final ChunkWatchersIndex instance = new ChunkWatchersIndex();
+
+	private ChunkWatchersIndex() {}
+
+	private final Map<World, WorldIndex> worldIndices = new WeakHashMap<World, WorldIndex>();
+
+	private static Set<EntityPlayerMP> findPlayersWatchingChunk(WorldServer world, int chunkX, int chunkZ) {
+		final PlayerManager manager = world.getPlayerManager();
+
+		final ImmutableSet.Builder<EntityPlayerMP> result = ImmutableSet.builder();
+		for (Object o : world.playerEntities) {
+			EntityPlayerMP player = (EntityPlayerMP)o;
+			if (manager.isPlayerWatchingChunk(player, chunkX, chunkZ)) result.add(player);
+		}
+
+		return result.build();
+	}
+
+	private WorldIndex getIndex(World world, boolean create) {
+		synchronized (worldIndices) {
+			WorldIndex result = worldIndices.get(world);
+			if (result == null && create) {
+				result = new WorldIndex();
+				worldIndices.put(world, result);
+			}
+			return result;
+		}
+	}
+
+	public Set<EntityPlayerMP> getPlayersWatchingChunk(WorldServer world, int chunkX, int chunkZ) {
+		return getIndex(world, true).getPlayersWatchingChunk(world, chunkX, chunkZ);
+	}
+
+	public Set<EntityPlayerMP> getPlayersWatchingBlock(WorldServer world, int blockX, int blockZ) {
+		return getPlayersWatchingChunk(world, blockX >> 4, blockZ >> 4);
+	}
+
+	private void invalidate(EntityPlayerMP player, ChunkCoordIntPair chunk) {
+		final WorldIndex index = getIndex(player.worldObj, false);
+		if (index != null) index.invalidate(chunk.chunkXPos, chunk.chunkZPos);
+	}
+
+	@SubscribeEvent
+	public void onChunkWatch(ChunkWatchEvent.Watch evt) {
+		invalidate(evt.player, evt.chunk);
+	}
+
+	@SubscribeEvent
+	public void onChunkUnwatch(ChunkWatchEvent.UnWatch evt) {
+		invalidate(evt.player, evt.chunk);
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload evt) {
+		synchronized (worldIndices) {
+			worldIndices.remove(evt.world);
+		}
+	}
+}
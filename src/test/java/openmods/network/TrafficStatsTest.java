@@ -0,0 +1,73 @@
+package openmods.network;
+
+import java.util.List;
+import openmods.network.TrafficStats.Direction;
+import openmods.network.TrafficStats.Histogram;
+import openmods.network.TrafficStats.Snapshot;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrafficStatsTest {
+
+	@Before
+	public void setup() {
+		TrafficStats.reset();
+		TrafficStats.setEnabled(true);
+	}
+
+	@After
+	public void cleanup() {
+		TrafficStats.setEnabled(false);
+		TrafficStats.reset();
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		Assert.assertEquals(0, Histogram.bucket(0));
+		Assert.assertEquals(1, Histogram.bucket(1));
+		Assert.assertEquals(2, Histogram.bucket(2));
+		Assert.assertEquals(2, Histogram.bucket(3));
+		Assert.assertEquals(3, Histogram.bucket(4));
+		Assert.assertEquals(11, Histogram.bucket(1024));
+		Assert.assertEquals(Histogram.BUCKETS - 1, Histogram.bucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testStartReturnsZeroWhenDisabled() {
+		TrafficStats.setEnabled(false);
+		Assert.assertEquals(0, TrafficStats.start());
+		TrafficStats.setEnabled(true);
+		Assert.assertTrue(TrafficStats.start() != 0);
+	}
+
+	@Test
+	public void testCountersAreSeparatedByKeyAndDirection() {
+		final long start = TrafficStats.start();
+		TrafficStats.EVENTS.record(Direction.SENT, String.class, 1, 10, start);
+		TrafficStats.EVENTS.record(Direction.SENT, String.class, 3, 1000, start);
+		TrafficStats.EVENTS.record(Direction.RECEIVED, String.class, 1, 20, start);
+		TrafficStats.SYNC.record(Direction.SENT, Integer.class, 1, 5, start);
+
+		final List<Snapshot> stats = TrafficStats.snapshot();
+		Assert.assertEquals(3, stats.size());
+
+		// sorted by bytes
+		final Snapshot first = stats.get(0);
+		Assert.assertEquals("event", first.category);
+		Assert.assertEquals(Direction.SENT, first.direction);
+		Assert.assertEquals(String.class.getName(), first.name);
+		Assert.assertEquals(2, first.count);
+		Assert.assertEquals(4, first.packets);
+		Assert.assertEquals(1010, first.bytes);
+		Assert.assertEquals(1, first.sizeHistogram[Histogram.bucket(10)]);
+		Assert.assertEquals(1, first.sizeHistogram[Histogram.bucket(1000)]);
+
+		Assert.assertEquals(Direction.RECEIVED, stats.get(1).direction);
+		Assert.assertEquals("sync", stats.get(2).category);
+
+		TrafficStats.reset();
+		Assert.assertTrue(TrafficStats.snapshot().isEmpty());
+	}
+}
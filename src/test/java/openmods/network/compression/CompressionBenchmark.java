@@ -0,0 +1,153 @@
+package openmods.network.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares throughput and compression ratio of gzip streams (previous implementation) and {@link DeflateCompressionStrategy} on payloads similar to real events.
+ * Not a unit test - run manually with {@link #main(String[])}.
+ */
+public class CompressionBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 2000;
+
+	private static final long MEASURE_TIME_NS = 2000000000L;
+
+	private interface Codec {
+		public ByteBuf compress(ByteBuf input) throws IOException;
+
+		public void decompress(ByteBuf input) throws IOException;
+	}
+
+	private static final Codec GZIP = new Codec() {
+		private final byte[] buffer = new byte[4096];
+
+		@Override
+		public ByteBuf compress(ByteBuf input) throws IOException {
+			final ByteBuf output = Unpooled.buffer();
+			final OutputStream stream = new GZIPOutputStream(new ByteBufOutputStream(output));
+			stream.write(input.array(), input.arrayOffset() + input.readerIndex(), input.readableBytes());
+			stream.close();
+			return output;
+		}
+
+		@Override
+		public void decompress(ByteBuf input) throws IOException {
+			final InputStream stream = new GZIPInputStream(new ByteBufInputStream(input));
+			while (stream.read(buffer) >= 0) {}
+			stream.close();
+		}
+	};
+
+	private static Codec createStrategyCodec(final ICompressionStrategy strategy) {
+		final ICompressor compressor = strategy.createCompressor();
+		return new Codec() {
+			@Override
+			public ByteBuf compress(ByteBuf input) throws IOException {
+				final ByteBuf output = Unpooled.buffer();
+				PayloadCompression.write(strategy, compressor, input, output);
+				return output;
+			}
+
+			@Override
+			public void decompress(ByteBuf input) throws IOException {
+				PayloadCompression.read(compressor, input, PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+			}
+		};
+	}
+
+	// few coordinates and flags, like most of gameplay events
+	private static byte[] createSmallEvent(Random random) throws IOException {
+		final ByteBuf result = Unpooled.buffer();
+		final DataOutputStream output = new DataOutputStream(new ByteBufOutputStream(result));
+		output.writeInt(random.nextInt(30000));
+		output.writeInt(random.nextInt(256));
+		output.writeInt(random.nextInt(30000));
+		output.writeFloat(random.nextFloat());
+		output.writeBoolean(random.nextBoolean());
+		output.writeUTF("openblocks:elevator");
+		return toArray(result);
+	}
+
+	// list of entries with names and counters, like inventory or GUI state
+	private static byte[] createMediumEvent(Random random) throws IOException {
+		final ByteBuf result = Unpooled.buffer();
+		final DataOutputStream output = new DataOutputStream(new ByteBufOutputStream(result));
+		output.writeShort(40);
+		for (int i = 0; i < 40; i++) {
+			output.writeUTF("minecraft:item_" + random.nextInt(20));
+			output.writeShort(random.nextInt(16));
+			output.writeByte(random.nextInt(64));
+		}
+		return toArray(result);
+	}
+
+	// big structured data with repeated keys, like serialized NBT or map data
+	private static byte[] createLargeEvent(Random random) throws IOException {
+		final ByteBuf result = Unpooled.buffer();
+		final DataOutputStream output = new DataOutputStream(new ByteBufOutputStream(result));
+		for (int i = 0; i < 1000; i++) {
+			output.writeUTF("x");
+			output.writeInt(random.nextInt(16));
+			output.writeUTF("y");
+			output.writeInt(random.nextInt(256));
+			output.writeUTF("z");
+			output.writeInt(random.nextInt(16));
+			output.writeUTF("color");
+			output.writeInt(random.nextInt(4) * 0x3F3F3F);
+		}
+		return toArray(result);
+	}
+
+	private static byte[] toArray(ByteBuf buf) {
+		final byte[] result = new byte[buf.readableBytes()];
+		buf.readBytes(result);
+		return result;
+	}
+
+	private static void measure(String name, Codec codec, byte[] payload) throws IOException {
+		final ByteBuf input = Unpooled.wrappedBuffer(payload);
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			codec.decompress(codec.compress(input.duplicate()));
+
+		final int compressedSize = codec.compress(input.duplicate()).readableBytes();
+
+		long iterations = 0;
+		final long start = System.nanoTime();
+		long elapsed;
+		do {
+			codec.decompress(codec.compress(input.duplicate()));
+			iterations++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < MEASURE_TIME_NS);
+
+		final double megabytesPerSecond = (double)payload.length * iterations / (elapsed / 1e9) / (1024 * 1024);
+		final double ratio = (double)compressedSize / payload.length;
+		System.out.println(String.format("  %-20s %10.1f MB/s %8d -> %8d bytes (%5.1f%%)", name, megabytesPerSecond, payload.length, compressedSize, ratio * 100));
+	}
+
+	private static void measureAll(String name, byte[] payload) throws IOException {
+		System.out.println(name + ":");
+		measure("gzip", GZIP, payload);
+		measure("deflate (fast)", createStrategyCodec(DeflateCompressionStrategy.DEFAULT), payload);
+		measure("deflate (default)", createStrategyCodec(new DeflateCompressionStrategy(Deflater.DEFAULT_COMPRESSION, DeflateCompressionStrategy.DEFAULT_THRESHOLD)), payload);
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Random random = new Random(0);
+		measureAll("small", createSmallEvent(random));
+		measureAll("medium", createMediumEvent(random));
+		measureAll("large", createLargeEvent(random));
+	}
+}
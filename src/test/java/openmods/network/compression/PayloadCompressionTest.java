@@ -0,0 +1,154 @@
+package openmods.network.compression;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PayloadCompressionTest {
+
+	private static final ICompressionStrategy STRATEGY = new DeflateCompressionStrategy(Deflater.BEST_SPEED, 64);
+
+	private static byte[] createCompressibleData(int size) {
+		byte[] result = new byte[size];
+		for (int i = 0; i < size; i++)
+			result[i] = (byte)(i % 13);
+		return result;
+	}
+
+	private static byte[] createRandomData(int size) {
+		byte[] result = new byte[size];
+		new Random(size).nextBytes(result);
+		return result;
+	}
+
+	private static byte[] toArray(ByteBuf buf) {
+		byte[] result = new byte[buf.readableBytes()];
+		buf.getBytes(buf.readerIndex(), result);
+		return result;
+	}
+
+	private static ByteBuf write(ICompressor compressor, byte[] data) throws IOException {
+		ByteBuf output = Unpooled.buffer();
+		PayloadCompression.write(STRATEGY, compressor, Unpooled.wrappedBuffer(data), output);
+		return output;
+	}
+
+	private static void checkRoundTrip(ICompressor sender, ICompressor receiver, byte[] data, int expectedFlag) throws IOException {
+		final ByteBuf packet = write(sender, data);
+		Assert.assertEquals(expectedFlag, packet.getByte(packet.readerIndex()));
+		Assert.assertArrayEquals(data, toArray(PayloadCompression.read(receiver, packet, PayloadCompression.MAX_UNCOMPRESSED_SIZE)));
+	}
+
+	@Test
+	public void testSmallPayloadSentRaw() throws IOException {
+		final byte[] data = createCompressibleData(63);
+		final ByteBuf packet = write(STRATEGY.createCompressor(), data);
+		Assert.assertEquals(data.length + 1, packet.readableBytes());
+		checkRoundTrip(STRATEGY.createCompressor(), STRATEGY.createCompressor(), data, PayloadCompression.FLAG_RAW);
+	}
+
+	@Test
+	public void testEmptyPayload() throws IOException {
+		checkRoundTrip(STRATEGY.createCompressor(), STRATEGY.createCompressor(), new byte[0], PayloadCompression.FLAG_RAW);
+	}
+
+	@Test
+	public void testLargePayloadCompressed() throws IOException {
+		final byte[] data = createCompressibleData(64 * 1024);
+		final ByteBuf packet = write(STRATEGY.createCompressor(), data);
+		Assert.assertTrue(packet.readableBytes() < data.length / 10);
+		checkRoundTrip(STRATEGY.createCompressor(), STRATEGY.createCompressor(), data, PayloadCompression.FLAG_COMPRESSED);
+	}
+
+	@Test
+	public void testIncompressiblePayload() throws IOException {
+		checkRoundTrip(STRATEGY.createCompressor(), STRATEGY.createCompressor(), createRandomData(10000), PayloadCompression.FLAG_COMPRESSED);
+	}
+
+	@Test
+	public void testCompressorReuse() throws IOException {
+		final ICompressor sender = STRATEGY.createCompressor();
+		final ICompressor receiver = STRATEGY.createCompressor();
+
+		for (int size : new int[] { 100, 5000, 10, 70000, 64, 1000 })
+			checkRoundTrip(sender, receiver, createRandomData(size), size < 64? PayloadCompression.FLAG_RAW : PayloadCompression.FLAG_COMPRESSED);
+	}
+
+	@Test
+	public void testPooledRoundTrip() throws IOException {
+		final byte[] data = createCompressibleData(5000);
+		final ByteBuf packet = Unpooled.buffer();
+		PayloadCompression.write(STRATEGY, Unpooled.wrappedBuffer(data), packet);
+		Assert.assertArrayEquals(data, toArray(PayloadCompression.read(STRATEGY, packet, PayloadCompression.MAX_UNCOMPRESSED_SIZE)));
+	}
+
+	@Test
+	public void testPoolClosesExtraCompressors() throws IOException {
+		final ICompressionStrategy strategy = new DeflateCompressionStrategy(Deflater.BEST_SPEED, 64);
+		final ICompressor[] compressors = new ICompressor[PayloadCompression.MAX_IDLE_COMPRESSORS + 1];
+		for (int i = 0; i < compressors.length; i++)
+			compressors[i] = PayloadCompression.acquireCompressor(strategy);
+
+		for (ICompressor compressor : compressors)
+			PayloadCompression.releaseCompressor(strategy, compressor);
+
+		for (int i = 0; i < PayloadCompression.MAX_IDLE_COMPRESSORS; i++)
+			Assert.assertSame(compressors[i], PayloadCompression.acquireCompressor(strategy));
+
+		try {
+			write(compressors[PayloadCompression.MAX_IDLE_COMPRESSORS], createCompressibleData(1000));
+			Assert.fail();
+		} catch (NullPointerException e) {
+			// deflater already ended
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedPayload() throws IOException {
+		final ByteBuf packet = write(STRATEGY.createCompressor(), createRandomData(1000));
+		packet.writerIndex(packet.writerIndex() - 10);
+		PayloadCompression.read(STRATEGY.createCompressor(), packet, PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFlag() throws IOException {
+		PayloadCompression.read(STRATEGY.createCompressor(), Unpooled.wrappedBuffer(new byte[] { 5, 1, 2 }), PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooLargeDeclaredSize() throws IOException {
+		final ByteBuf packet = Unpooled.buffer();
+		packet.writeByte(PayloadCompression.FLAG_COMPRESSED);
+		ByteBufUtils.writeVarInt(packet, PayloadCompression.MAX_UNCOMPRESSED_SIZE + 1, 5);
+		PayloadCompression.read(STRATEGY.createCompressor(), packet, PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+	}
+
+	@Test(expected = IOException.class)
+	public void testSizeAboveCallerLimit() throws IOException {
+		final ByteBuf packet = write(STRATEGY.createCompressor(), createCompressibleData(10000));
+		PayloadCompression.read(STRATEGY.createCompressor(), packet, 9999);
+	}
+
+	@Test
+	public void testDeclaredSizeNotAllocatedUpfront() throws IOException {
+		final ByteBuf packet = write(STRATEGY.createCompressor(), createCompressibleData(1000));
+		// skip flag and real size
+		packet.readByte();
+		ByteBufUtils.readVarInt(packet, 5);
+
+		final ByteBuf output = Unpooled.buffer(0, PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+		try {
+			STRATEGY.createCompressor().decompress(packet, output, PayloadCompression.MAX_UNCOMPRESSED_SIZE);
+			Assert.fail();
+		} catch (IOException e) {
+			// expected - payload is shorter than declared
+		}
+		Assert.assertEquals(1000, output.writerIndex());
+		Assert.assertTrue(output.capacity() < 64 * 1024);
+	}
+}
@@ -0,0 +1,213 @@
+package openmods.network.rpc;
+
+import com.google.common.collect.Lists;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import io.netty.buffer.ByteBufInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import net.minecraft.entity.player.EntityPlayer;
+import openmods.network.senders.IPacketSender;
+import openmods.utils.ByteUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+public class RpcProxyFactoryTest {
+
+	public interface ITestRpc {
+		public void primitives(int a, long b, boolean c, byte d, short e, char f, float g, double h);
+
+		public void objects(String a, @NullableArg String b, int[] c);
+
+		@RpcIgnore
+		public void ignored();
+	}
+
+	public static class TestTarget implements IRpcTarget {
+		@Override
+		public Object getTarget() {
+			return null;
+		}
+
+		@Override
+		public void writeToStream(DataOutput output) throws IOException {
+			output.writeInt(42);
+		}
+
+		@Override
+		public void readFromStreamStream(EntityPlayer player, DataInput input) {}
+
+		@Override
+		public void afterCall() {}
+	}
+
+	private static class CapturingSender implements IPacketSender {
+		public final List<Object> messages = Lists.newArrayList();
+
+		@Override
+		public void sendMessage(Object msg) {
+			messages.add(msg);
+		}
+
+		@Override
+		public void sendMessages(Collection<Object> msgs) {
+			messages.addAll(msgs);
+		}
+	}
+
+	private MethodIdRegistry methodRegistry;
+
+	private TargetWrapperRegistry targetRegistry;
+
+	private RpcProxyFactory factory;
+
+	private static String methodEntry(Method m) {
+		return m.getDeclaringClass().getName() + RpcSetup.ID_FIELDS_SEPARATOR + m.getName() + RpcSetup.ID_FIELDS_SEPARATOR + Type.getMethodDescriptor(m);
+	}
+
+	private static Method method(String name) {
+		for (Method m : ITestRpc.class.getMethods())
+			if (m.getName().equals(name)) return m;
+		throw new AssertionError(name);
+	}
+
+	@Before
+	public void setup() {
+		methodRegistry = new MethodIdRegistry();
+		methodRegistry.begin(2);
+		methodRegistry.entry(methodEntry(method("primitives")), 3);
+		methodRegistry.entry(methodEntry(method("objects")), 7);
+		methodRegistry.end();
+
+		targetRegistry = new TargetWrapperRegistry();
+		targetRegistry.begin(1);
+		targetRegistry.entry(TestTarget.class.getName(), 5);
+		targetRegistry.end();
+
+		factory = new RpcProxyFactory(methodRegistry, targetRegistry);
+	}
+
+	private static Object[] decode(Object message, int expectedMethodId, Method method) throws IOException {
+		return decode(message, 5, expectedMethodId, method);
+	}
+
+	private static Object[] decode(Object message, int expectedTargetId, int expectedMethodId, Method method) throws IOException {
+		Assert.assertTrue(message instanceof FMLProxyPacket);
+		final FMLProxyPacket packet = (FMLProxyPacket)message;
+		Assert.assertEquals(RpcCallDispatcher.CHANNEL_NAME, packet.channel());
+
+		final ByteBufInputStream input = new ByteBufInputStream(packet.payload());
+		Assert.assertEquals(expectedTargetId, ByteUtils.readVLI(input));
+		Assert.assertEquals(42, input.readInt());
+		Assert.assertEquals(expectedMethodId, ByteUtils.readVLI(input));
+		final Object[] args = MethodParamsCodec.create(method).readArgs(input);
+		Assert.assertEquals(0, input.available());
+		return args;
+	}
+
+	@Test
+	public void testPrimitiveArgs() throws IOException {
+		final CapturingSender sender = new CapturingSender();
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+
+		proxy.primitives(1, Long.MAX_VALUE, true, (byte)-3, (short)400, 'x', 1.5f, -2.25);
+
+		Assert.assertEquals(1, sender.messages.size());
+		final Object[] args = decode(sender.messages.get(0), 3, method("primitives"));
+		Assert.assertArrayEquals(new Object[] { 1, Long.MAX_VALUE, true, (byte)-3, (short)400, 'x', 1.5f, -2.25 }, args);
+	}
+
+	@Test
+	public void testObjectArgs() throws IOException {
+		final CapturingSender sender = new CapturingSender();
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+
+		proxy.objects("a", null, new int[] { 1, 2 });
+		proxy.objects("b", "c", new int[0]);
+
+		final Object[] first = decode(sender.messages.get(0), 7, method("objects"));
+		Assert.assertEquals("a", first[0]);
+		Assert.assertNull(first[1]);
+		Assert.assertArrayEquals(new int[] { 1, 2 }, (int[])first[2]);
+
+		final Object[] second = decode(sender.messages.get(1), 7, method("objects"));
+		Assert.assertEquals("b", second[0]);
+		Assert.assertEquals("c", second[1]);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullForNonNullableArg() {
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), new CapturingSender(), new TestTarget(), ITestRpc.class);
+		proxy.objects(null, null, new int[0]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIgnoredMethod() {
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), new CapturingSender(), new TestTarget(), ITestRpc.class);
+		proxy.ignored();
+	}
+
+	@Test
+	public void testExistingProxyUsesUpdatedIds() throws IOException {
+		final CapturingSender sender = new CapturingSender();
+		final ITestRpc first = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+
+		methodRegistry.begin(2);
+		methodRegistry.entry(methodEntry(method("primitives")), 1);
+		methodRegistry.entry(methodEntry(method("objects")), 0);
+		methodRegistry.end();
+
+		final ITestRpc second = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+		Assert.assertSame(first.getClass(), second.getClass());
+
+		first.objects("a", null, new int[0]);
+		decode(sender.messages.get(0), 0, method("objects"));
+	}
+
+	@Test
+	public void testExistingProxyUsesUpdatedTargetIds() throws IOException {
+		final CapturingSender sender = new CapturingSender();
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+		proxy.objects("a", null, new int[0]);
+
+		targetRegistry.begin(1);
+		targetRegistry.entry(TestTarget.class.getName(), 2);
+		targetRegistry.end();
+
+		proxy.objects("b", null, new int[0]);
+		decode(sender.messages.get(0), 5, 7, method("objects"));
+		decode(sender.messages.get(1), 2, 7, method("objects"));
+	}
+
+	@Test
+	public void testProxyCreatedBeforeTargetIdsPublished() throws IOException {
+		targetRegistry = new TargetWrapperRegistry();
+		factory = new RpcProxyFactory(methodRegistry, targetRegistry);
+
+		final CapturingSender sender = new CapturingSender();
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), sender, new TestTarget(), ITestRpc.class);
+
+		targetRegistry.begin(1);
+		targetRegistry.entry(TestTarget.class.getName(), 1);
+		targetRegistry.end();
+
+		proxy.objects("a", null, new int[0]);
+		decode(sender.messages.get(0), 1, 7, method("objects"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnregisteredMethod() {
+		final ITestRpc proxy = factory.createProxy(getClass().getClassLoader(), new CapturingSender(), new TestTarget(), ITestRpc.class);
+
+		methodRegistry.begin(1);
+		methodRegistry.entry(methodEntry(method("objects")), 0);
+		methodRegistry.end();
+
+		proxy.primitives(1, 2, true, (byte)3, (short)4, 'x', 5, 6);
+	}
+}
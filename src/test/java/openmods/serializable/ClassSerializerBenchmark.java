@@ -0,0 +1,141 @@
+package openmods.serializable;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import openmods.serializable.cls.ClassSerializerBuilder;
+import openmods.serializable.cls.Serialize;
+
+/**
+ * Compares reflection-based class serializer (previous implementation) with generated one on 20 field object.
+ * Not a unit test - run manually with {@link #main(String[])}.
+ */
+public class ClassSerializerBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 200000;
+
+	private static final long MEASURE_TIME_NS = 2000000000L;
+
+	public static class Pojo {
+		@Serialize(nullable = false)
+		public int x;
+		@Serialize(nullable = false)
+		public int y;
+		@Serialize(nullable = false)
+		public int z;
+		@Serialize
+		public boolean active;
+		@Serialize
+		public byte facing;
+		@Serialize
+		public short meta;
+		@Serialize
+		public long time;
+		@Serialize
+		public float progress;
+		@Serialize
+		public double speed;
+		@Serialize
+		public int color;
+		@Serialize
+		public int counter0;
+		@Serialize
+		public int counter1;
+		@Serialize
+		public int counter2;
+		@Serialize
+		public int counter3;
+		@Serialize
+		public String owner;
+		@Serialize
+		public String label;
+		@Serialize
+		public String target;
+		@Serialize
+		public Integer boxedA;
+		@Serialize
+		public Integer boxedB;
+		@Serialize(nullable = false)
+		public String id;
+	}
+
+	private static Pojo createPojo() {
+		final Pojo result = new Pojo();
+		result.x = 1234;
+		result.y = 64;
+		result.z = -5678;
+		result.active = true;
+		result.facing = 3;
+		result.meta = 7;
+		result.time = 123456789L;
+		result.progress = 0.75f;
+		result.speed = 1.5;
+		result.color = 0xFF00FF;
+		result.counter0 = 1;
+		result.counter1 = 2;
+		result.counter2 = 3;
+		result.counter3 = 4;
+		result.owner = "player";
+		result.label = "Some label";
+		result.target = null;
+		result.boxedA = 42;
+		result.boxedB = null;
+		result.id = "openblocks:tank";
+		return result;
+	}
+
+	private static ClassSerializerBuilder<Pojo> createBuilder() {
+		final List<Field> fields = Lists.newArrayList(Pojo.class.getFields());
+		Collections.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field o1, Field o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+
+		final ClassSerializerBuilder<Pojo> builder = new ClassSerializerBuilder<Pojo>(Pojo.class);
+		for (Field f : fields)
+			builder.appendField(f);
+		return builder;
+	}
+
+	private static void roundTrip(IObjectSerializer<Pojo> serializer, Pojo source, Pojo target) throws IOException {
+		final ByteArrayDataOutput output = ByteStreams.newDataOutput(128);
+		serializer.writeToStream(source, output);
+		final ByteArrayDataInput input = ByteStreams.newDataInput(output.toByteArray());
+		serializer.readFromStream(target, input);
+	}
+
+	private static void measure(String name, IObjectSerializer<Pojo> serializer) throws IOException {
+		final Pojo source = createPojo();
+		final Pojo target = new Pojo();
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			roundTrip(serializer, source, target);
+
+		long iterations = 0;
+		final long start = System.nanoTime();
+		long elapsed;
+		do {
+			roundTrip(serializer, source, target);
+			iterations++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < MEASURE_TIME_NS);
+
+		System.out.println(String.format("  %-12s %10.1f ns/round trip", name, (double)elapsed / iterations));
+	}
+
+	public static void main(String[] args) throws IOException {
+		final ClassSerializerBuilder<Pojo> builder = createBuilder();
+		measure("reflective", builder.createReflective());
+		measure("generated", builder.create());
+		measure("reflective", builder.createReflective());
+		measure("generated", builder.create());
+	}
+}
@@ -1,9 +1,16 @@
 package openmods.serializable;
 
+import com.google.common.collect.Lists;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import openmods.serializable.cls.ClassSerializerBase;
+import openmods.serializable.cls.ClassSerializerBuilder;
 import openmods.serializable.cls.ClassSerializersProvider;
 import openmods.serializable.cls.Serialize;
 import org.junit.Assert;
@@ -194,4 +201,196 @@ public class ClassSerializerTest {
 
 		testSerializer(serializer, source, target);
 	}
+
+	public static class ManyFieldsClass {
+		@Serialize
+		public boolean boolField;
+
+		@Serialize
+		public byte byteField;
+
+		@Serialize
+		public char charField;
+
+		@Serialize
+		public short shortField;
+
+		@Serialize
+		public int intField;
+
+		@Serialize
+		public long longField;
+
+		@Serialize
+		public float floatField;
+
+		@Serialize
+		public double doubleField;
+
+		@Serialize
+		public String string0;
+
+		@Serialize
+		public String string1;
+
+		@Serialize
+		public String string2;
+
+		@Serialize
+		public String string3;
+
+		@Serialize
+		public String string4;
+
+		@Serialize
+		public Integer boxed5;
+
+		@Serialize
+		public Integer boxed6;
+
+		@Serialize
+		public Integer boxed7;
+
+		@Serialize
+		public Integer boxed8;
+
+		@Serialize
+		public Integer boxed9;
+
+		@Serialize(nullable = false)
+		public String nonNullable = "x";
+
+		@Serialize
+		public int[] array;
+	}
+
+	private static ManyFieldsClass createManyFields() {
+		ManyFieldsClass result = new ManyFieldsClass();
+		result.boolField = true;
+		result.byteField = -3;
+		result.charField = 'q';
+		result.shortField = 1234;
+		result.intField = -99999;
+		result.longField = Long.MIN_VALUE + 5;
+		result.floatField = 1.5f;
+		result.doubleField = -2.25;
+		result.string0 = "a";
+		result.string2 = "c";
+		result.string4 = "";
+		result.boxed6 = 6;
+		result.boxed9 = 9;
+		result.nonNullable = "y";
+		result.array = new int[] { 1, 2, 3 };
+		return result;
+	}
+
+	private static void assertManyFieldsEqual(ManyFieldsClass expected, ManyFieldsClass actual) {
+		Assert.assertEquals(expected.boolField, actual.boolField);
+		Assert.assertEquals(expected.byteField, actual.byteField);
+		Assert.assertEquals(expected.charField, actual.charField);
+		Assert.assertEquals(expected.shortField, actual.shortField);
+		Assert.assertEquals(expected.intField, actual.intField);
+		Assert.assertEquals(expected.longField, actual.longField);
+		Assert.assertEquals(expected.floatField, actual.floatField, 0);
+		Assert.assertEquals(expected.doubleField, actual.doubleField, 0);
+		Assert.assertEquals(expected.string0, actual.string0);
+		Assert.assertEquals(expected.string1, actual.string1);
+		Assert.assertEquals(expected.string2, actual.string2);
+		Assert.assertEquals(expected.string3, actual.string3);
+		Assert.assertEquals(expected.string4, actual.string4);
+		Assert.assertEquals(expected.boxed5, actual.boxed5);
+		Assert.assertEquals(expected.boxed6, actual.boxed6);
+		Assert.assertEquals(expected.boxed7, actual.boxed7);
+		Assert.assertEquals(expected.boxed8, actual.boxed8);
+		Assert.assertEquals(expected.boxed9, actual.boxed9);
+		Assert.assertEquals(expected.nonNullable, actual.nonNullable);
+		Assert.assertArrayEquals(expected.array, actual.array);
+	}
+
+	private static ClassSerializerBuilder<ManyFieldsClass> createManyFieldsBuilder() {
+		final List<Field> fields = Lists.newArrayList(ManyFieldsClass.class.getFields());
+		// same order as in ClassSerializersProvider (all ranks are equal)
+		Collections.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field o1, Field o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+
+		final ClassSerializerBuilder<ManyFieldsClass> builder = new ClassSerializerBuilder<ManyFieldsClass>(ManyFieldsClass.class);
+		for (Field f : fields)
+			builder.appendField(f);
+		return builder;
+	}
+
+	private static <T> byte[] write(IObjectSerializer<T> serializer, T object) throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		serializer.writeToStream(object, output);
+		return output.toByteArray();
+	}
+
+	private static <T> void read(IObjectSerializer<T> serializer, T object, byte[] data) throws IOException {
+		ByteArrayDataInput input = ByteStreams.newDataInput(data);
+		serializer.readFromStream(object, input);
+		assertFullyRead(input);
+	}
+
+	@Test
+	public void testGeneratedSerializerRoundTrip() {
+		IObjectSerializer<ManyFieldsClass> serializer = ClassSerializersProvider.instance.getSerializer(ManyFieldsClass.class);
+		Assert.assertTrue(serializer instanceof ClassSerializerBase);
+
+		ManyFieldsClass source = createManyFields();
+		ManyFieldsClass target = new ManyFieldsClass();
+		target.string1 = "not null";
+		target.boxed5 = 5;
+		testSerializer(serializer, source, target);
+		assertManyFieldsEqual(source, target);
+	}
+
+	@Test
+	public void testGeneratedSerializerCompatibleWithReflective() throws IOException {
+		final IObjectSerializer<ManyFieldsClass> generated = ClassSerializersProvider.instance.getSerializer(ManyFieldsClass.class);
+		final IObjectSerializer<ManyFieldsClass> reflective = createManyFieldsBuilder().createReflective();
+		Assert.assertFalse(reflective instanceof ClassSerializerBase);
+
+		final ManyFieldsClass source = createManyFields();
+		final byte[] generatedData = write(generated, source);
+		Assert.assertArrayEquals(write(reflective, source), generatedData);
+
+		final ManyFieldsClass target = new ManyFieldsClass();
+		read(reflective, target, generatedData);
+		assertManyFieldsEqual(source, target);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testGeneratedNonNullableFail() throws IOException {
+		ManyFieldsClass source = createManyFields();
+		source.nonNullable = null;
+		write(ClassSerializersProvider.instance.getSerializer(ManyFieldsClass.class), source);
+	}
+
+	private static class PrivateClass {
+		@Serialize
+		public String stringField;
+
+		@Serialize
+		public int intField;
+	}
+
+	@Test
+	public void testReflectiveFallbackForInaccessibleClass() {
+		IObjectSerializer<PrivateClass> serializer = ClassSerializersProvider.instance.getSerializer(PrivateClass.class);
+		Assert.assertFalse(serializer instanceof ClassSerializerBase);
+
+		PrivateClass source = new PrivateClass();
+		source.stringField = "hello";
+		source.intField = 42;
+
+		PrivateClass target = new PrivateClass();
+		testSerializer(serializer, source, target);
+
+		Assert.assertEquals(source.stringField, target.stringField);
+		Assert.assertEquals(source.intField, target.intField);
+	}
 }
@@ -0,0 +1,155 @@
+package openmods.serializable;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.Random;
+import openmods.serializable.providers.PrimitiveArraySerializers;
+import openmods.utils.ByteUtils;
+import openmods.utils.io.IStreamSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveArraySerializersTest {
+
+	private static <T> byte[] write(IStreamSerializer<T> serializer, T value) throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		serializer.writeToStream(value, output);
+		return output.toByteArray();
+	}
+
+	private static <T> T read(IStreamSerializer<T> serializer, byte[] data) throws IOException {
+		ByteArrayDataInput input = ByteStreams.newDataInput(data);
+		T result = serializer.readFromStream(input);
+		Assert.assertEquals(0, input.skipBytes(256));
+		return result;
+	}
+
+	private static <T> T roundTrip(IStreamSerializer<T> serializer, T value) throws IOException {
+		return read(serializer, write(serializer, value));
+	}
+
+	private static int[] createInts(Random random, int length, int range, int offset) {
+		int[] result = new int[length];
+		for (int i = 0; i < length; i++)
+			result[i] = random.nextInt(range) + offset;
+		return result;
+	}
+
+	@Test
+	public void testProviderUsesBulkSerializers() {
+		Assert.assertSame(PrimitiveArraySerializers.INT_ARRAY, new SerializerRegistry().findSerializer(int[].class));
+		Assert.assertSame(PrimitiveArraySerializers.DOUBLE_ARRAY, new SerializerRegistry().findSerializer(double[].class));
+	}
+
+	@Test
+	public void testIntArrayFormatMatchesElementWiseWrites() throws IOException {
+		final int[] data = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+		ByteArrayDataOutput expected = ByteStreams.newDataOutput();
+		ByteUtils.writeVLI(expected, data.length);
+		for (int value : data)
+			expected.writeInt(value);
+
+		Assert.assertArrayEquals(expected.toByteArray(), write(PrimitiveArraySerializers.INT_ARRAY, data));
+		Assert.assertArrayEquals(data, roundTrip(PrimitiveArraySerializers.INT_ARRAY, data));
+	}
+
+	@Test
+	public void testAllTypesRoundTrip() throws IOException {
+		final boolean[] booleans = { true, false, true };
+		Assert.assertArrayEquals(booleans, roundTrip(PrimitiveArraySerializers.BOOLEAN_ARRAY, booleans));
+
+		final byte[] bytes = { 1, -2, 3 };
+		Assert.assertArrayEquals(bytes, roundTrip(PrimitiveArraySerializers.BYTE_ARRAY, bytes));
+
+		final char[] chars = { 'a', '\u1234', 0 };
+		Assert.assertArrayEquals(chars, roundTrip(PrimitiveArraySerializers.CHAR_ARRAY, chars));
+
+		final short[] shorts = { Short.MIN_VALUE, 0, Short.MAX_VALUE };
+		Assert.assertArrayEquals(shorts, roundTrip(PrimitiveArraySerializers.SHORT_ARRAY, shorts));
+
+		final long[] longs = { Long.MIN_VALUE, 0, Long.MAX_VALUE };
+		Assert.assertArrayEquals(longs, roundTrip(PrimitiveArraySerializers.LONG_ARRAY, longs));
+
+		final float[] floats = { 1.5f, -0.0f, Float.POSITIVE_INFINITY };
+		Assert.assertArrayEquals(floats, roundTrip(PrimitiveArraySerializers.FLOAT_ARRAY, floats), 0);
+
+		final double[] doubles = { 1.5, Double.MIN_VALUE, Double.NEGATIVE_INFINITY };
+		Assert.assertArrayEquals(doubles, roundTrip(PrimitiveArraySerializers.DOUBLE_ARRAY, doubles), 0);
+
+		Assert.assertEquals(0, roundTrip(PrimitiveArraySerializers.LONG_ARRAY, new long[0]).length);
+	}
+
+	@Test
+	public void testDirectBufferWrite() throws IOException {
+		final long[] data = { 1, 2, Long.MIN_VALUE };
+		final byte[] expected = write(PrimitiveArraySerializers.LONG_ARRAY, data);
+
+		final ByteBuf buffer = Unpooled.buffer(4);
+		buffer.writeByte(42);
+		final ByteBufOutputStream output = new ByteBufOutputStream(buffer);
+		PrimitiveArraySerializers.LONG_ARRAY.writeToStream(data, output);
+
+		Assert.assertEquals(expected.length, output.writtenBytes());
+		Assert.assertEquals(1 + expected.length, buffer.readableBytes());
+		Assert.assertEquals(42, buffer.readByte());
+		final byte[] actual = new byte[expected.length];
+		buffer.readBytes(actual);
+		Assert.assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void testCompositeBufferWrite() throws IOException {
+		final int[] data = { 1, 2, 3, 4 };
+		final byte[] expected = write(PrimitiveArraySerializers.INT_ARRAY, data);
+
+		// array spans two components, so it can't be written via single NIO buffer
+		final CompositeByteBuf buffer = Unpooled.compositeBuffer();
+		buffer.addComponent(Unpooled.buffer(8, 8));
+		buffer.addComponent(Unpooled.buffer(16, 16));
+		final ByteBufOutputStream output = new ByteBufOutputStream(buffer);
+		PrimitiveArraySerializers.INT_ARRAY.writeToStream(data, output);
+
+		Assert.assertEquals(expected.length, output.writtenBytes());
+		final byte[] actual = new byte[expected.length];
+		buffer.readBytes(actual);
+		Assert.assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void testVarIntArray() throws IOException {
+		final Random random = new Random(0);
+		final int[] small = createInts(random, 1000, 200, -100);
+		final byte[] encoded = write(PrimitiveArraySerializers.INT_ARRAY_VARINT, small);
+		Assert.assertTrue(encoded.length < small.length * 2 + 10);
+		Assert.assertArrayEquals(small, read(PrimitiveArraySerializers.INT_ARRAY_VARINT, encoded));
+
+		final int[] extremes = { Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1 };
+		Assert.assertArrayEquals(extremes, roundTrip(PrimitiveArraySerializers.INT_ARRAY_VARINT, extremes));
+		Assert.assertEquals(0, roundTrip(PrimitiveArraySerializers.INT_ARRAY_VARINT, new int[0]).length);
+	}
+
+	@Test
+	public void testBitPackedArray() throws IOException {
+		final Random random = new Random(0);
+		// heightmap-like: values 60-123 need 6 bits
+		final int[] heights = createInts(random, 256, 64, 60);
+		final byte[] encoded = write(PrimitiveArraySerializers.INT_ARRAY_BIT_PACKED, heights);
+		Assert.assertTrue(encoded.length <= 256 * 6 / 8 + 10);
+		Assert.assertArrayEquals(heights, read(PrimitiveArraySerializers.INT_ARRAY_BIT_PACKED, encoded));
+
+		final int[] extremes = { Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, 7 };
+		Assert.assertArrayEquals(extremes, roundTrip(PrimitiveArraySerializers.INT_ARRAY_BIT_PACKED, extremes));
+
+		final int[] constant = { 5, 5, 5, 5 };
+		Assert.assertArrayEquals(constant, roundTrip(PrimitiveArraySerializers.INT_ARRAY_BIT_PACKED, constant));
+
+		Assert.assertEquals(0, roundTrip(PrimitiveArraySerializers.INT_ARRAY_BIT_PACKED, new int[0]).length);
+	}
+}
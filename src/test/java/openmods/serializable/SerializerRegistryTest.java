@@ -0,0 +1,79 @@
+package openmods.serializable;
+
+import com.google.common.reflect.TypeToken;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import openmods.utils.io.IStreamSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SerializerRegistryTest {
+
+	public static class Unregistered {}
+
+	private static class DummySerializer implements IStreamSerializer<Unregistered> {
+		@Override
+		public Unregistered readFromStream(DataInput input) {
+			return new Unregistered();
+		}
+
+		@Override
+		public void writeToStream(Unregistered o, DataOutput output) {}
+	}
+
+	@Test
+	public void testGenericSerializerIsCached() {
+		final SerializerRegistry registry = new SerializerRegistry();
+		final Type listType = new TypeToken<List<String>>() {}.getType();
+		final Type mapType = new TypeToken<Map<Integer, String>>() {}.getType();
+
+		final IStreamSerializer<Object> listSerializer = registry.findSerializer(listType);
+		Assert.assertNotNull(listSerializer);
+		Assert.assertSame(listSerializer, registry.findSerializer(listType));
+		Assert.assertSame(registry.findSerializer(mapType), registry.findSerializer(mapType));
+	}
+
+	@Test
+	public void testMissingSerializer() {
+		final SerializerRegistry registry = new SerializerRegistry();
+		Assert.assertNull(registry.findSerializer(Unregistered.class));
+		Assert.assertNull(registry.findSerializer(Unregistered.class));
+	}
+
+	@Test
+	public void testRegistrationInvalidatesMissingEntry() {
+		final SerializerRegistry registry = new SerializerRegistry();
+		Assert.assertNull(registry.findSerializer(Unregistered.class));
+
+		final DummySerializer serializer = new DummySerializer();
+		registry.register(Unregistered.class, serializer);
+		Assert.assertSame(serializer, registry.findSerializer(Unregistered.class));
+		Assert.assertSame(serializer, registry.findSerializer((Type)Unregistered.class));
+	}
+
+	@Test
+	public void testProviderRegistrationInvalidatesMissingEntry() {
+		final SerializerRegistry registry = new SerializerRegistry();
+		Assert.assertNull(registry.findSerializer(Unregistered.class));
+
+		final DummySerializer serializer = new DummySerializer();
+		registry.registerProvider(new ISerializerProvider() {
+			@Override
+			public IStreamSerializer<?> getSerializer(Class<?> cls) {
+				return cls == Unregistered.class? serializer : null;
+			}
+		});
+
+		Assert.assertSame(serializer, registry.findSerializer(Unregistered.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDuplicateRegistration() {
+		final SerializerRegistry registry = new SerializerRegistry();
+		registry.register(Unregistered.class, new DummySerializer());
+		registry.register(Unregistered.class, new DummySerializer());
+	}
+}
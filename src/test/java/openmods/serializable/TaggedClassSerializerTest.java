@@ -0,0 +1,147 @@
+package openmods.serializable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.util.List;
+import openmods.serializable.cls.ClassSerializersProvider;
+import openmods.serializable.cls.SerializableClass;
+import openmods.serializable.cls.Serialize;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaggedClassSerializerTest {
+
+	private static byte[] write(Object source) throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		ClassSerializersProvider.instance.writeToStream(source, output);
+		return output.toByteArray();
+	}
+
+	private static void read(Object target, byte[] data) throws IOException {
+		ByteArrayDataInput input = ByteStreams.newDataInput(data);
+		ClassSerializersProvider.instance.readFromStream(target, input);
+		Assert.assertEquals(0, input.skipBytes(256));
+	}
+
+	@SerializableClass(tagged = true)
+	public static class V1 {
+		@Serialize
+		public int count;
+
+		@Serialize
+		public String name;
+
+		@Serialize
+		public List<String> removed;
+	}
+
+	@SerializableClass(tagged = true)
+	public static class V2 {
+		@Serialize
+		public String name;
+
+		@Serialize(id = "count")
+		public int renamedCount;
+
+		@Serialize
+		public float added = 4.5f;
+	}
+
+	@SerializableClass(tagged = true)
+	public static class V3 {
+		@Serialize
+		public long count = 7;
+
+		@Serialize(nullable = false)
+		public String name = "default";
+	}
+
+	@Test
+	public void testSameClass() throws IOException {
+		V1 source = new V1();
+		source.count = 42;
+		source.name = "hello";
+		source.removed = ImmutableList.of("a", "b");
+
+		V1 target = new V1();
+		target.name = "not null";
+		read(target, write(source));
+
+		Assert.assertEquals(42, target.count);
+		Assert.assertEquals("hello", target.name);
+		Assert.assertEquals(source.removed, target.removed);
+	}
+
+	@Test
+	public void testNullValue() throws IOException {
+		V1 source = new V1();
+
+		V1 target = new V1();
+		target.name = "not null";
+		target.removed = ImmutableList.of("c");
+		read(target, write(source));
+
+		Assert.assertNull(target.name);
+		Assert.assertNull(target.removed);
+	}
+
+	@Test
+	public void testAddedRemovedAndRenamedFields() throws IOException {
+		V1 source = new V1();
+		source.count = 42;
+		source.name = "hello";
+		source.removed = ImmutableList.of("a", "b");
+
+		V2 target = new V2();
+		read(target, write(source));
+
+		Assert.assertEquals(42, target.renamedCount);
+		Assert.assertEquals("hello", target.name);
+		Assert.assertEquals(4.5f, target.added, 0);
+	}
+
+	@Test
+	public void testBackwardCompatibility() throws IOException {
+		V2 source = new V2();
+		source.renamedCount = 5;
+		source.name = "world";
+		source.added = 1.0f;
+
+		V1 target = new V1();
+		read(target, write(source));
+
+		Assert.assertEquals(5, target.count);
+		Assert.assertEquals("world", target.name);
+		Assert.assertNull(target.removed);
+	}
+
+	@Test
+	public void testChangedTypeAndNullForNonNullable() throws IOException {
+		V1 source = new V1();
+		source.count = 42;
+		source.name = null;
+
+		V3 target = new V3();
+		read(target, write(source));
+
+		Assert.assertEquals(7, target.count);
+		Assert.assertEquals("default", target.name);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNonNullableWrite() throws IOException {
+		V3 source = new V3();
+		source.name = null;
+		write(source);
+	}
+
+	@Test
+	public void testSchemaHashDiffers() throws IOException {
+		final byte[] v1 = write(new V1());
+		final byte[] v2 = write(new V2());
+		Assert.assertFalse(ByteStreams.newDataInput(v1).readInt() == ByteStreams.newDataInput(v2).readInt());
+	}
+}
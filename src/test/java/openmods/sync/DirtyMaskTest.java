@@ -0,0 +1,139 @@
+package openmods.sync;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirtyMaskTest {
+
+	private static void assertFullyRead(ByteArrayDataInput input) {
+		Assert.assertEquals(0, input.skipBytes(256));
+	}
+
+	private static byte[] write(DirtyMask mask) throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		mask.writeToStream(output);
+		return output.toByteArray();
+	}
+
+	private static DirtyMask read(byte[] data) throws IOException {
+		ByteArrayDataInput input = ByteStreams.newDataInput(data);
+		DirtyMask result = new DirtyMask();
+		result.readFromStream(input);
+		assertFullyRead(input);
+		return result;
+	}
+
+	private static DirtyMask create(int... bits) {
+		DirtyMask result = new DirtyMask();
+		for (int bit : bits)
+			result.set(bit);
+		return result;
+	}
+
+	private static void assertBits(DirtyMask mask, int... bits) {
+		int pos = 0;
+		for (int bit = mask.nextSetBit(0); bit >= 0; bit = mask.nextSetBit(bit + 1)) {
+			Assert.assertTrue("Unexpected bit " + bit, pos < bits.length);
+			Assert.assertEquals(bits[pos++], bit);
+		}
+
+		Assert.assertEquals(bits.length, pos);
+	}
+
+	private static void testRoundTrip(int expectedSize, int... bits) throws IOException {
+		final byte[] data = write(create(bits));
+		Assert.assertEquals(expectedSize, data.length);
+		assertBits(read(data), bits);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		final byte[] data = write(new DirtyMask());
+		Assert.assertArrayEquals(new byte[] { 0 }, data);
+		Assert.assertTrue(read(data).isEmpty());
+	}
+
+	@Test
+	public void testLowBitsTakeSingleByte() throws IOException {
+		Assert.assertArrayEquals(new byte[] { 0x01 }, write(create(0)));
+		Assert.assertArrayEquals(new byte[] { 0x7F }, write(create(0, 1, 2, 3, 4, 5, 6)));
+		Assert.assertArrayEquals(new byte[] { 0x45 }, write(create(0, 2, 6)));
+	}
+
+	@Test
+	public void testContinuation() throws IOException {
+		Assert.assertArrayEquals(new byte[] { (byte)0x80, 0x01 }, write(create(7)));
+		Assert.assertArrayEquals(new byte[] { (byte)0x81, (byte)0x80, 0x02 }, write(create(0, 15)));
+	}
+
+	@Test
+	public void testSparse() throws IOException {
+		testRoundTrip(1, 3);
+		testRoundTrip(3, 0, 20);
+		testRoundTrip(10, 63);
+		testRoundTrip(10, 64);
+		testRoundTrip(29, 0, 200);
+		testRoundTrip(143, 1, 62, 63, 64, 65, 500, 1000);
+	}
+
+	@Test
+	public void testDense() throws IOException {
+		for (int count : new int[] { 1, 7, 8, 16, 17, 63, 64, 65, 128, 300 }) {
+			final int[] bits = new int[count];
+			for (int i = 0; i < count; i++)
+				bits[i] = i;
+
+			testRoundTrip((count + 6) / 7, bits);
+		}
+	}
+
+	@Test
+	public void testGroupsCrossingWordBoundary() throws IOException {
+		// group 9 covers bits 63-69
+		testRoundTrip(10, 62, 63, 64, 69);
+	}
+
+	@Test
+	public void testClear() {
+		DirtyMask mask = create(1, 70, 130);
+		mask.clear(70);
+		assertBits(mask, 1, 130);
+		Assert.assertEquals(130, mask.highestSetBit());
+
+		mask.clearAll();
+		Assert.assertTrue(mask.isEmpty());
+		Assert.assertEquals(-1, mask.highestSetBit());
+		Assert.assertEquals(-1, mask.nextSetBit(0));
+	}
+
+	@Test
+	public void testReadClearsPreviousState() throws IOException {
+		DirtyMask mask = create(5, 100);
+		mask.readFromStream(ByteStreams.newDataInput(new byte[] { 0x02 }));
+		assertBits(mask, 1);
+	}
+
+	@Test
+	public void testFilledMask() throws IOException {
+		for (int count = 0; count < 200; count++) {
+			ByteArrayDataOutput output = ByteStreams.newDataOutput();
+			DirtyMask.writeFilledMask(output, count);
+
+			final int[] bits = new int[count];
+			for (int i = 0; i < count; i++)
+				bits[i] = i;
+
+			Assert.assertArrayEquals(write(create(bits)), output.toByteArray());
+		}
+	}
+
+	@Test
+	public void testCardinality() {
+		Assert.assertEquals(0, new DirtyMask().cardinality());
+		Assert.assertEquals(4, create(0, 63, 64, 300).cardinality());
+	}
+}
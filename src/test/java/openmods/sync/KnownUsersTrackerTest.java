@@ -0,0 +1,73 @@
+package openmods.sync;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KnownUsersTrackerTest {
+
+	private static boolean[] update(KnownUsersTracker tracker, int... users) {
+		final boolean[] result = new boolean[users.length];
+		tracker.beginUpdate();
+		for (int i = 0; i < users.length; i++)
+			result[i] = tracker.markSeen(users[i]);
+		tracker.endUpdate();
+		return result;
+	}
+
+	@Test
+	public void testNewUsers() {
+		KnownUsersTracker tracker = new KnownUsersTracker();
+		Assert.assertArrayEquals(new boolean[] { true, true }, update(tracker, 1, 2));
+		Assert.assertArrayEquals(new boolean[] { false, false, true }, update(tracker, 1, 2, 3));
+		Assert.assertEquals(3, tracker.size());
+	}
+
+	@Test
+	public void testDuplicateInSingleUpdate() {
+		KnownUsersTracker tracker = new KnownUsersTracker();
+		Assert.assertArrayEquals(new boolean[] { true, false }, update(tracker, 5, 5));
+		Assert.assertEquals(1, tracker.size());
+	}
+
+	@Test
+	public void testReturningUserIsNew() {
+		KnownUsersTracker tracker = new KnownUsersTracker();
+		update(tracker, 1, 2);
+		Assert.assertArrayEquals(new boolean[] { false }, update(tracker, 1));
+		Assert.assertEquals(1, tracker.size());
+		Assert.assertArrayEquals(new boolean[] { false, true }, update(tracker, 1, 2));
+	}
+
+	@Test
+	public void testAllUsersLeft() {
+		KnownUsersTracker tracker = new KnownUsersTracker();
+		update(tracker, 1, 2, 3);
+		update(tracker);
+		Assert.assertEquals(0, tracker.size());
+		Assert.assertArrayEquals(new boolean[] { true }, update(tracker, 3));
+	}
+
+	@Test
+	public void testStableMemoryOnJoinLeaveCycles() {
+		KnownUsersTracker tracker = new KnownUsersTracker();
+
+		final int permanentUsers = 20;
+		final int[] users = new int[permanentUsers + 1];
+		for (int i = 0; i < permanentUsers; i++)
+			users[i] = i;
+
+		int maxCapacity = 0;
+		for (int cycle = 0; cycle < 10000; cycle++) {
+			// every cycle new entity id joins and leaves in next one
+			users[permanentUsers] = 1000 + cycle;
+			final boolean[] result = update(tracker, users);
+			Assert.assertTrue(result[permanentUsers]);
+			Assert.assertEquals(permanentUsers + 1, tracker.size());
+			maxCapacity = Math.max(maxCapacity, tracker.capacity());
+		}
+
+		update(tracker, 1);
+		Assert.assertEquals(1, tracker.size());
+		Assert.assertTrue("Capacity grew to " + maxCapacity, maxCapacity < 10 * (permanentUsers + 1));
+	}
+}
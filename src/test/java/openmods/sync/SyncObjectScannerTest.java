@@ -0,0 +1,66 @@
+package openmods.sync;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+public class SyncObjectScannerTest {
+
+	public static class Base {
+		private SyncableInt a = new SyncableInt();
+		protected SyncableBoolean b = new SyncableBoolean();
+	}
+
+	public static class Derived extends Base {
+		public SyncableInt c = new SyncableInt();
+		SyncableString d = new SyncableString();
+		public int notSynced;
+	}
+
+	private static class Private extends Derived {
+		public SyncableInt e = new SyncableInt();
+	}
+
+	public static class NullField {
+		public SyncableInt a;
+	}
+
+	@Test
+	public void testFieldsRegisteredInNameOrder() {
+		final SyncObjectScanner scanner = new SyncObjectScanner();
+		final SyncMap<?> map = Mockito.mock(SyncMap.class);
+		final Derived target = new Derived();
+
+		scanner.registerAllFields(map, target);
+
+		InOrder order = Mockito.inOrder(map);
+		order.verify(map).put("a", target.a);
+		order.verify(map).put("b", target.b);
+		order.verify(map).put("c", target.c);
+		order.verify(map).put("d", target.d);
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testInaccessibleClass() {
+		final SyncObjectScanner scanner = new SyncObjectScanner();
+		final SyncMap<?> map = Mockito.mock(SyncMap.class);
+		final Private target = new Private();
+
+		scanner.registerAllFields(map, target);
+		scanner.registerAllFields(map, target);
+
+		Mockito.verify(map, Mockito.times(2)).put("a", target.a);
+		Mockito.verify(map, Mockito.times(2)).put("e", target.e);
+	}
+
+	@Test
+	public void testNullFieldReplacedWithDummy() {
+		final SyncObjectScanner scanner = new SyncObjectScanner();
+		final SyncMap<?> map = Mockito.mock(SyncMap.class);
+
+		scanner.registerAllFields(map, new NullField());
+
+		Mockito.verify(map).put("a", DummySyncableObject.INSTANCE);
+	}
+}
@@ -0,0 +1,98 @@
+package openmods.sync;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import net.minecraft.tileentity.TileEntity;
+
+/**
+ * Measures bytes allocated per single sync (payload encoding and distribution to N recipients).
+ * Not a unit test - run manually with {@link #main(String[])}.
+ */
+public class SyncPayloadAllocationBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 20000;
+
+	private static final int ITERATIONS = 100000;
+
+	private static final int[] RECIPIENTS = { 1, 10, 100 };
+
+	private static class BenchmarkTile extends TileEntity implements ISyncMapProvider {
+		private final SyncMapTile<BenchmarkTile> syncMap = new SyncMapTile<BenchmarkTile>(this);
+
+		public BenchmarkTile() {
+			for (int i = 0; i < 8; i++)
+				syncMap.put("field" + i, new SyncableInt(i));
+		}
+
+		@Override
+		public SyncMap<?> getSyncMap() {
+			return syncMap;
+		}
+	}
+
+	private interface SyncStrategy {
+		public void sync(SyncMap<?> map, ByteBuf[] frames) throws IOException;
+	}
+
+	// replays previous implementation (SyncMap.createPayload and SyncPacketAggregator before shared entries):
+	// payload encoded into new growable buffer and copied, then copied again into new growable frame for every recipient
+	private static final SyncStrategy LEGACY = new SyncStrategy() {
+		@Override
+		public void sync(SyncMap<?> map, ByteBuf[] frames) throws IOException {
+			final ByteBuf output = Unpooled.buffer();
+			map.writePayload(output, null);
+			final ByteBuf payload = output.copy();
+
+			for (int i = 0; i < frames.length; i++) {
+				final ByteBuf frame = Unpooled.buffer();
+				ByteBufUtils.writeVarInt(frame, payload.readableBytes(), 5);
+				frame.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+				frames[i] = frame;
+			}
+		}
+	};
+
+	private static final SyncStrategy SHARED = new SyncStrategy() {
+		@Override
+		public void sync(SyncMap<?> map, ByteBuf[] frames) throws IOException {
+			final ByteBuf entry = map.createFrameEntry(true);
+
+			for (int i = 0; i < frames.length; i++) {
+				final SyncFrame frame = new SyncFrame();
+				frame.add(entry);
+				frames[i] = frame.build();
+			}
+		}
+	};
+
+	private static long allocatedBytes() {
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static double measure(SyncStrategy strategy, SyncMap<?> map, int recipients) throws IOException {
+		final ByteBuf[] frames = new ByteBuf[recipients];
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			strategy.sync(map, frames);
+
+		final long start = allocatedBytes();
+		for (int i = 0; i < ITERATIONS; i++)
+			strategy.sync(map, frames);
+		final long end = allocatedBytes();
+
+		return (double)(end - start) / ITERATIONS;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final SyncMap<?> map = new BenchmarkTile().getSyncMap();
+
+		for (int recipients : RECIPIENTS) {
+			final double legacy = measure(LEGACY, map, recipients);
+			final double shared = measure(SHARED, map, recipients);
+			System.out.println(String.format("%3d recipients: before %10.1f B/sync, after %10.1f B/sync", recipients, legacy, shared));
+		}
+	}
+}
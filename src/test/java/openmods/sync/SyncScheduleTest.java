@@ -0,0 +1,38 @@
+package openmods.sync;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyncScheduleTest {
+
+	@Test
+	public void testFrequency() {
+		Assert.assertEquals(20, SyncSchedule.atFrequency(1, SyncPriority.LOW).interval);
+		Assert.assertEquals(5, SyncSchedule.atFrequency(4, SyncPriority.NORMAL).interval);
+		Assert.assertEquals(1, SyncSchedule.atFrequency(20, SyncPriority.NORMAL).interval);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFrequency() {
+		SyncSchedule.atFrequency(0, SyncPriority.LOW);
+	}
+
+	@Test
+	public void testHighPriorityIgnoresBudget() {
+		Assert.assertTrue(SyncPriority.HIGH.fitsBudget(100000, 1000));
+	}
+
+	@Test
+	public void testBudgetFractions() {
+		Assert.assertTrue(SyncPriority.NORMAL.fitsBudget(999, 1000));
+		Assert.assertFalse(SyncPriority.NORMAL.fitsBudget(1000, 1000));
+
+		Assert.assertTrue(SyncPriority.LOW.fitsBudget(499, 1000));
+		Assert.assertFalse(SyncPriority.LOW.fitsBudget(500, 1000));
+	}
+
+	@Test
+	public void testNoBudget() {
+		Assert.assertTrue(SyncPriority.LOW.fitsBudget(Integer.MAX_VALUE, 0));
+	}
+}
@@ -0,0 +1,123 @@
+package openmods.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyncableArrayDeltaTest {
+
+	private static byte[] writeFull(ISyncableObject object) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		object.writeToStream(new DataOutputStream(output));
+		return output.toByteArray();
+	}
+
+	private static byte[] writeDelta(IDeltaSyncableObject object) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		object.writeDeltaToStream(new DataOutputStream(output));
+		return output.toByteArray();
+	}
+
+	private static void read(ISyncableObject object, byte[] data) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+		object.readFromStream(input);
+		Assert.assertEquals(0, input.available());
+	}
+
+	private static int[] sequence(int length) {
+		int[] result = new int[length];
+		for (int i = 0; i < length; i++)
+			result[i] = i * 1000;
+		return result;
+	}
+
+	@Test
+	public void testIntArrayFullRoundTrip() throws IOException {
+		SyncableIntArray source = new SyncableIntArray(new int[] { 1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE });
+		SyncableIntArray target = new SyncableIntArray();
+
+		read(target, writeFull(source));
+		Assert.assertArrayEquals(source.getValue(), target.getValue());
+	}
+
+	@Test
+	public void testIntArrayDelta() throws IOException {
+		SyncableIntArray source = new SyncableIntArray(sequence(100));
+		SyncableIntArray target = new SyncableIntArray();
+		read(target, writeFull(source));
+
+		source.setValue(3, -5);
+		source.setValue(4, 7);
+		source.setValue(50, Integer.MIN_VALUE);
+		source.setValue(99, 12);
+
+		final byte[] delta = writeDelta(source);
+		Assert.assertTrue(delta.length < 20);
+		read(target, delta);
+		Assert.assertArrayEquals(source.getValue(), target.getValue());
+	}
+
+	@Test
+	public void testMarkCleanResetsDelta() throws IOException {
+		SyncableIntArray source = new SyncableIntArray(sequence(100));
+		SyncableIntArray target = new SyncableIntArray();
+		read(target, writeFull(source));
+
+		source.setValue(10, 1);
+		read(target, writeDelta(source));
+		source.markClean();
+
+		source.setValue(20, 2);
+		final byte[] delta = writeDelta(source);
+		// type, range count, offset, length, value
+		Assert.assertEquals(5, delta.length);
+		read(target, delta);
+		Assert.assertArrayEquals(source.getValue(), target.getValue());
+	}
+
+	@Test
+	public void testReplacedArraySentInFull() throws IOException {
+		SyncableIntArray source = new SyncableIntArray(sequence(10));
+		SyncableIntArray target = new SyncableIntArray(sequence(10));
+
+		source.setValue(new int[] { 4, 5 });
+		read(target, writeDelta(source));
+		Assert.assertArrayEquals(new int[] { 4, 5 }, target.getValue());
+	}
+
+	@Test
+	public void testMostlyChangedArraySentInFull() throws IOException {
+		SyncableIntArray source = new SyncableIntArray(sequence(4));
+		source.setValue(0, 5);
+		source.setValue(1, 6);
+		source.setValue(2, 7);
+
+		Assert.assertArrayEquals(writeFull(source), writeDelta(source));
+	}
+
+	@Test
+	public void testByteArrayDelta() throws IOException {
+		SyncableByteArray source = new SyncableByteArray(new byte[64]);
+		SyncableByteArray target = new SyncableByteArray();
+		read(target, writeFull(source));
+
+		source.setValue(0, (byte)1);
+		source.setValue(1, (byte)2);
+		source.setValue(63, (byte)-1);
+
+		read(target, writeDelta(source));
+		Assert.assertArrayEquals(source.getValue(), target.getValue());
+	}
+
+	@Test(expected = IOException.class)
+	public void testDeltaOutOfBounds() throws IOException {
+		SyncableByteArray source = new SyncableByteArray(new byte[64]);
+		source.setValue(40, (byte)1);
+
+		read(new SyncableByteArray(new byte[8]), writeDelta(source));
+	}
+}
@@ -0,0 +1,130 @@
+package openmods.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagString;
+import openmods.utils.io.NbtSizeLimitException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SyncableNBTTest {
+
+	private static byte[] writeFull(SyncableNBT object) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		object.writeToStream(new DataOutputStream(output));
+		return output.toByteArray();
+	}
+
+	private static byte[] writeDelta(SyncableNBT object) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		object.writeDeltaToStream(new DataOutputStream(output));
+		return output.toByteArray();
+	}
+
+	private static void read(SyncableNBT object, byte[] data) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+		object.readFromStream(input);
+		Assert.assertEquals(0, input.available());
+	}
+
+	private static SyncableNBT createLarge() {
+		NBTTagCompound tag = new NBTTagCompound();
+		for (int i = 0; i < 100; i++)
+			tag.setString("key" + i, "value" + i);
+
+		NBTTagCompound nested = new NBTTagCompound();
+		nested.setInteger("a", 1);
+		nested.setInteger("b", 2);
+		tag.setTag("nested", nested);
+		return new SyncableNBT(tag);
+	}
+
+	@Test
+	public void testDeltaRoundTrip() throws IOException {
+		SyncableNBT source = createLarge();
+		SyncableNBT target = new SyncableNBT();
+		read(target, writeFull(source));
+		Assert.assertEquals(source.getValue(), target.getValue());
+
+		source.setTag(new NBTTagString("changed"), "key5");
+		source.setTag(new NBTTagInt(5), "nested", "a");
+		source.removeTag("nested", "b");
+		source.setTag(new NBTTagInt(6), "new", "deep");
+		source.removeTag("key7");
+
+		final byte[] delta = writeDelta(source);
+		Assert.assertTrue(delta.length < writeFull(source).length);
+
+		read(target, delta);
+		Assert.assertEquals(source.getValue(), target.getValue());
+		Assert.assertEquals(5, target.getValue().getCompoundTag("nested").getInteger("a"));
+		Assert.assertFalse(target.getValue().getCompoundTag("nested").hasKey("b"));
+		Assert.assertFalse(target.getValue().hasKey("key7"));
+	}
+
+	@Test
+	public void testParentChangeSupersedesChildren() throws IOException {
+		SyncableNBT source = createLarge();
+		SyncableNBT target = new SyncableNBT();
+		read(target, writeFull(source));
+
+		source.setTag(new NBTTagInt(10), "nested", "a");
+		source.removeTag("nested");
+		source.setTag(new NBTTagInt(11), "nested", "c");
+
+		read(target, writeDelta(source));
+		Assert.assertEquals(source.getValue(), target.getValue());
+	}
+
+	@Test
+	public void testReplacedValueSentInFull() throws IOException {
+		SyncableNBT source = createLarge();
+		source.markClean();
+
+		NBTTagCompound replacement = new NBTTagCompound();
+		replacement.setInteger("x", 1);
+		source.setValue(replacement);
+
+		Assert.assertArrayEquals(writeFull(source), writeDelta(source));
+	}
+
+	@Test(expected = NbtSizeLimitException.class)
+	public void testOversizedDeltaRejected() throws IOException {
+		SyncableNBT source = createLarge();
+		source.markClean();
+
+		source.setTag(new NBTTagByteArray(new byte[3 * 1024 * 1024]), "nested", "huge");
+		writeDelta(source);
+	}
+
+	@Test
+	public void testDirectChangesSentWithMarkDirty() throws IOException {
+		SyncableNBT source = createLarge();
+		SyncableNBT target = new SyncableNBT();
+		read(target, writeFull(source));
+		source.markClean();
+
+		source.getValue().getCompoundTag("nested").setInteger("a", 10);
+		source.getValue().setString("key3", "changed");
+		source.markDirty();
+
+		Assert.assertArrayEquals(writeFull(source), writeDelta(source));
+		read(target, writeDelta(source));
+		Assert.assertEquals(source.getValue(), target.getValue());
+		Assert.assertEquals(10, target.getValue().getCompoundTag("nested").getInteger("a"));
+	}
+
+	@Test
+	public void testViewReflectsChanges() {
+		SyncableNBT object = createLarge();
+		NBTTagCompound view = object.getValue();
+		object.setTag(new NBTTagInt(3), "key1");
+		Assert.assertEquals(3, view.getInteger("key1"));
+	}
+}
@@ -0,0 +1,141 @@
+package openmods.utils.io;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NbtStreamTest {
+
+	private static NBTTagCompound createTag() {
+		NBTTagCompound result = new NBTTagCompound();
+		result.setInteger("int", 42);
+		result.setString("string", "hello \u1234");
+		result.setByteArray("bytes", new byte[] { 1, 2, 3 });
+		result.setDouble("double", 0.5);
+
+		NBTTagList items = new NBTTagList();
+		for (int i = 0; i < 3; i++) {
+			NBTTagCompound item = new NBTTagCompound();
+			item.setShort("slot", (short)i);
+			item.setLong("id", 1000L + i);
+			items.appendTag(item);
+		}
+		result.setTag("items", items);
+
+		NBTTagCompound nested = new NBTTagCompound();
+		nested.setTag("ints", new NBTTagList());
+		nested.setFloat("float", 1.5f);
+		result.setTag("nested", nested);
+		return result;
+	}
+
+	private static byte[] write(NBTTagCompound tag) throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		NbtStreamWriter.write(tag, output, Long.MAX_VALUE);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final NBTTagCompound tag = createTag();
+		final byte[] data = write(tag);
+		NBTTagCompound result = NbtStreamReader.read(ByteStreams.newDataInput(data), data.length);
+		Assert.assertEquals(tag, result);
+	}
+
+	@Test
+	public void testReadPath() throws IOException {
+		final byte[] data = write(createTag());
+
+		Assert.assertEquals(new NBTTagInt(42), NbtStreamReader.readPath(ByteStreams.newDataInput(data), Long.MAX_VALUE, "int"));
+		Assert.assertEquals(1.5f, ((NBTBase.NBTPrimitive)NbtStreamReader.readPath(ByteStreams.newDataInput(data), Long.MAX_VALUE, "nested", "float")).func_150288_h(), 0);
+		Assert.assertNull(NbtStreamReader.readPath(ByteStreams.newDataInput(data), Long.MAX_VALUE, "nested", "missing"));
+		Assert.assertNull(NbtStreamReader.readPath(ByteStreams.newDataInput(data), Long.MAX_VALUE, "int", "child"));
+	}
+
+	@Test
+	public void testSkippedValuesAreConsumed() throws IOException {
+		final byte[] data = write(createTag());
+		final NbtStreamReader reader = new NbtStreamReader(ByteStreams.newDataInput(data), Long.MAX_VALUE);
+		final int[] entries = new int[1];
+		reader.acceptRoot(new INbtCompoundVisitor() {
+			@Override
+			public INbtVisitor visitEntry(int type, String name) {
+				return new NbtVisitorAdapter() {
+					@Override
+					public INbtCompoundVisitor visitCompound() {
+						return new INbtCompoundVisitor() {
+							@Override
+							public INbtVisitor visitEntry(int type, String name) {
+								entries[0]++;
+								return null;
+							}
+
+							@Override
+							public void visitEnd() {}
+						};
+					}
+				};
+			}
+
+			@Override
+			public void visitEnd() {}
+		});
+
+		Assert.assertEquals(6, entries[0]);
+		Assert.assertEquals(data.length, reader.getBytesRead());
+	}
+
+	@Test(expected = NbtSizeLimitException.class)
+	public void testReadLimit() throws IOException {
+		final byte[] data = write(createTag());
+		NbtStreamReader.read(ByteStreams.newDataInput(data), data.length - 1);
+	}
+
+	@Test(expected = NbtSizeLimitException.class)
+	public void testReadLimitBeforeAllocation() throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		output.writeByte(Constants.NBT.TAG_COMPOUND);
+		output.writeUTF("");
+		output.writeByte(Constants.NBT.TAG_BYTE_ARRAY);
+		output.writeUTF("huge");
+		output.writeInt(Integer.MAX_VALUE);
+		NbtStreamReader.readPath(ByteStreams.newDataInput(output.toByteArray()), 1024, "other");
+	}
+
+	@Test(expected = NbtSizeLimitException.class)
+	public void testWriteLimit() throws IOException {
+		final byte[] data = write(createTag());
+		NbtStreamWriter.write(createTag(), ByteStreams.newDataOutput(), data.length - 1);
+	}
+
+	@Test
+	public void testTypeRW() throws IOException {
+		ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		final NbtStreamWriter writer = new NbtStreamWriter(output, Long.MAX_VALUE);
+		final INbtCompoundVisitor root = writer.visitRoot();
+		final INbtCompoundVisitor entries = root.visitEntry(Constants.NBT.TAG_COMPOUND, "").visitCompound();
+		TypeRW.INTEGER.writeToNbtStream(5, entries, "a");
+		TypeRW.STRING.writeToNbtStream("test", entries, "b");
+		TypeRW.BOOL.writeToNbtStream(true, entries, "c");
+		entries.visitEnd();
+		root.visitEnd();
+
+		final byte[] data = output.toByteArray();
+		final NBTTagCompound tag = NbtStreamReader.read(ByteStreams.newDataInput(data), Long.MAX_VALUE);
+		Assert.assertEquals(5, tag.getInteger("a"));
+		Assert.assertEquals(new NBTTagString("test"), tag.getTag("b"));
+		Assert.assertTrue(tag.getBoolean("c"));
+
+		Assert.assertEquals("test", TypeRW.STRING.readFromNbtStream(ByteStreams.newDataInput(data), Long.MAX_VALUE, "b"));
+		Assert.assertNull(TypeRW.STRING.readFromNbtStream(ByteStreams.newDataInput(data), Long.MAX_VALUE, "a"));
+	}
+}
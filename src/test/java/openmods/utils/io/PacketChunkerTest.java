@@ -0,0 +1,249 @@
+package openmods.utils.io;
+
+import com.google.common.base.Ticker;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PacketChunkerTest {
+
+	private static class TestTicker extends Ticker {
+		public long time;
+
+		@Override
+		public long read() {
+			return time;
+		}
+	}
+
+	private static byte[] createData(int size) {
+		byte[] result = new byte[size];
+		for (int i = 0; i < size; i++)
+			result[i] = (byte)(i * 31);
+		return result;
+	}
+
+	private static byte[] toArray(ByteBuf buf) {
+		byte[] result = new byte[buf.readableBytes()];
+		buf.getBytes(buf.readerIndex(), result);
+		return result;
+	}
+
+	private static int packetCost(int numChunks) {
+		return PacketChunker.PACKET_OVERHEAD + numChunks * PacketChunker.CHUNK_OVERHEAD;
+	}
+
+	@Test
+	public void testSingleChunk() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+
+		final byte[] data = createData(10);
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		Assert.assertEquals(1, chunks.length);
+		Assert.assertEquals(11, chunks[0].readableBytes());
+
+		ByteBuf result = receiver.consumeChunk(Unpooled.copiedBuffer(chunks[0]));
+		Assert.assertArrayEquals(data, toArray(result));
+	}
+
+	@Test
+	public void testEmptyPayload() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.buffer(), 16);
+		Assert.assertEquals(1, chunks.length);
+
+		ByteBuf result = receiver.consumeChunk(Unpooled.copiedBuffer(chunks[0]));
+		Assert.assertEquals(0, result.readableBytes());
+	}
+
+	@Test
+	public void testMultipleChunksOutOfOrder() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+
+		final byte[] data = createData(40);
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		Assert.assertEquals(3, chunks.length);
+		Assert.assertEquals(16 + 3, chunks[0].readableBytes());
+		Assert.assertEquals(8 + 3, chunks[2].readableBytes());
+
+		Assert.assertNull(receiver.consumeChunk(Unpooled.copiedBuffer(chunks[2])));
+		Assert.assertNull(receiver.consumeChunk(Unpooled.copiedBuffer(chunks[0])));
+		ByteBuf result = receiver.consumeChunk(Unpooled.copiedBuffer(chunks[1]));
+		Assert.assertArrayEquals(data, toArray(result));
+	}
+
+	@Test
+	public void testChunksShareSourceBuffer() {
+		PacketChunker sender = new PacketChunker();
+
+		final byte[] data = createData(20);
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+
+		data[0] = 42;
+		Assert.assertEquals(42, chunks[0].getByte(chunks[0].readerIndex() + 3));
+	}
+
+	@Test
+	public void testLegacyArrayApi() throws Exception {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+
+		final byte[] data = createData(40);
+		byte[][] chunks = sender.splitIntoChunks(data, 16);
+		Assert.assertEquals(3, chunks.length);
+
+		Assert.assertNull(receiver.consumeChunk(chunks[0]));
+		Assert.assertNull(receiver.consumeChunk(chunks[1]));
+		Assert.assertArrayEquals(data, receiver.consumeChunk(chunks[2]));
+	}
+
+	@Test
+	public void testIncompletePacketExpires() {
+		final TestTicker ticker = new TestTicker();
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker(1024, 10, TimeUnit.SECONDS, ticker);
+		PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(createData(40)), 16);
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[1])));
+		Assert.assertEquals(packetCost(3) + 32, reassembler.getBufferedBytes());
+
+		ticker.time = TimeUnit.SECONDS.toNanos(9);
+		reassembler.expire();
+		Assert.assertEquals(1, reassembler.getPendingPackets());
+
+		ticker.time = TimeUnit.SECONDS.toNanos(10);
+		reassembler.expire();
+		Assert.assertEquals(0, reassembler.getPendingPackets());
+		Assert.assertEquals(0, reassembler.getBufferedBytes());
+		Assert.assertEquals(2, receiver.getExpiredFragments());
+
+		// last chunk starts new packet, which never completes
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[2])));
+	}
+
+	@Test
+	public void testOldestPacketDroppedWhenLimitReached() {
+		final TestTicker ticker = new TestTicker();
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker(2 * packetCost(3) + 50, 10, TimeUnit.SECONDS, ticker);
+		PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		final byte[] data = createData(48);
+		ByteBuf[] first = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		ByteBuf[] second = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(first[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(first[1])));
+		ticker.time = 1;
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(second[0])));
+		Assert.assertEquals(0, receiver.getDroppedFragments());
+
+		// 64 bytes would be buffered, so older packet is dropped
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(second[1])));
+		Assert.assertEquals(2, receiver.getDroppedFragments());
+		Assert.assertEquals(1, reassembler.getPendingPackets());
+		Assert.assertEquals(packetCost(3) + 32, reassembler.getBufferedBytes());
+
+		ByteBuf result = reassembler.consumeChunk(Unpooled.copiedBuffer(second[2]));
+		Assert.assertArrayEquals(data, toArray(result));
+		Assert.assertEquals(0, reassembler.getBufferedBytes());
+	}
+
+	@Test
+	public void testPacketLargerThanLimitDropped() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker(packetCost(3) + 20, 10, TimeUnit.SECONDS, new TestTicker());
+		PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(createData(48)), 16);
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[1])));
+		Assert.assertEquals(2, receiver.getDroppedFragments());
+		Assert.assertEquals(0, reassembler.getBufferedBytes());
+	}
+
+	@Test
+	public void testEmptyChunksCountTowardsLimit() {
+		final PacketChunker receiver = new PacketChunker(10 * packetCost(255), 10, TimeUnit.SECONDS, new TestTicker());
+		final PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		for (int id = 0; id < 20; id++) {
+			ByteBuf chunk = Unpooled.buffer();
+			chunk.writeByte(255);
+			chunk.writeByte(0);
+			chunk.writeByte(id);
+			Assert.assertNull(reassembler.consumeChunk(chunk));
+		}
+
+		Assert.assertEquals(10, reassembler.getPendingPackets());
+		Assert.assertEquals(10 * packetCost(255), reassembler.getBufferedBytes());
+		Assert.assertEquals(10, receiver.getDroppedFragments());
+	}
+
+	@Test
+	public void testOldestPacketDroppedWhenPacketLimitReached() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker(PacketChunker.DEFAULT_MAX_BUFFERED_BYTES, 2, 10, TimeUnit.SECONDS, new TestTicker());
+		PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		final byte[] data = createData(40);
+		ByteBuf[] first = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		ByteBuf[] second = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		ByteBuf[] third = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(first[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(second[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(third[0])));
+		Assert.assertEquals(2, reassembler.getPendingPackets());
+		Assert.assertEquals(1, receiver.getDroppedFragments());
+
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(third[1])));
+		Assert.assertArrayEquals(data, toArray(reassembler.consumeChunk(Unpooled.copiedBuffer(third[2]))));
+	}
+
+	@Test
+	public void testDuplicateChunkDropped() {
+		PacketChunker sender = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+		PacketChunker.Reassembler reassembler = receiver.createReassembler();
+
+		final byte[] data = createData(40);
+		ByteBuf[] chunks = sender.splitIntoChunks(Unpooled.wrappedBuffer(data), 16);
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[0])));
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[0])));
+		Assert.assertEquals(1, receiver.getDroppedFragments());
+
+		Assert.assertNull(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[1])));
+		Assert.assertArrayEquals(data, toArray(reassembler.consumeChunk(Unpooled.copiedBuffer(chunks[2]))));
+	}
+
+	@Test
+	public void testSourcesDontCollide() {
+		// both senders start from same packet id
+		PacketChunker senderA = new PacketChunker();
+		PacketChunker senderB = new PacketChunker();
+		PacketChunker receiver = new PacketChunker();
+		PacketChunker.Reassembler reassemblerA = receiver.createReassembler();
+		PacketChunker.Reassembler reassemblerB = receiver.createReassembler();
+
+		final byte[] dataA = createData(40);
+		final byte[] dataB = createData(33);
+		ByteBuf[] chunksA = senderA.splitIntoChunks(Unpooled.wrappedBuffer(dataA), 16);
+		ByteBuf[] chunksB = senderB.splitIntoChunks(Unpooled.wrappedBuffer(dataB), 16);
+
+		Assert.assertNull(reassemblerA.consumeChunk(Unpooled.copiedBuffer(chunksA[0])));
+		Assert.assertNull(reassemblerB.consumeChunk(Unpooled.copiedBuffer(chunksB[0])));
+		Assert.assertNull(reassemblerA.consumeChunk(Unpooled.copiedBuffer(chunksA[1])));
+		Assert.assertNull(reassemblerB.consumeChunk(Unpooled.copiedBuffer(chunksB[1])));
+		Assert.assertArrayEquals(dataB, toArray(reassemblerB.consumeChunk(Unpooled.copiedBuffer(chunksB[2]))));
+		Assert.assertArrayEquals(dataA, toArray(reassemblerA.consumeChunk(Unpooled.copiedBuffer(chunksA[2]))));
+	}
+}